@@ -18,14 +18,17 @@
 package de.clemensbartz.android.launcher;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
+import android.content.pm.LauncherApps;
 import android.content.pm.PackageManager;
 import android.content.res.Configuration;
 import android.graphics.drawable.Drawable;
 import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Looper;
 import android.view.GestureDetector;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -33,36 +36,49 @@ import android.view.MenuItem;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewStub;
 import android.widget.AbsListView;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
-import android.widget.ListView;
 import android.widget.SearchView;
 import android.widget.ViewFlipper;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 
 import de.clemensbartz.android.launcher.adapters.DrawerListAdapter;
+import de.clemensbartz.android.launcher.caches.CatalogCache;
+import de.clemensbartz.android.launcher.caches.IconCache;
+import de.clemensbartz.android.launcher.caches.LaunchCountCache;
+import de.clemensbartz.android.launcher.caches.ShortcutInfoCache;
 import de.clemensbartz.android.launcher.controllers.DockController;
 import de.clemensbartz.android.launcher.controllers.DrawerController;
 import de.clemensbartz.android.launcher.controllers.ViewController;
 import de.clemensbartz.android.launcher.controllers.WidgetController;
 import de.clemensbartz.android.launcher.daos.SharedPreferencesDAO;
 import de.clemensbartz.android.launcher.listeners.AbsListViewOnCreateContextMenuListener;
+import de.clemensbartz.android.launcher.listeners.AbsListViewOnScrollListener;
 import de.clemensbartz.android.launcher.listeners.AdapterViewOnItemClickListener;
+import de.clemensbartz.android.launcher.listeners.DrawerInflatingIdleHandler;
 import de.clemensbartz.android.launcher.listeners.SearchViewOnActionExpandListener;
 import de.clemensbartz.android.launcher.observers.LinearLayoutSectionsObserver;
+import de.clemensbartz.android.launcher.receivers.LauncherAppsCallback;
 import de.clemensbartz.android.launcher.receivers.PackageChangedBroadcastReceiver;
 import de.clemensbartz.android.launcher.tasks.FilterDrawerListAdapterTask;
 import de.clemensbartz.android.launcher.tasks.LoadDockTask;
 import de.clemensbartz.android.launcher.tasks.LoadDrawerListAdapterTask;
 import de.clemensbartz.android.launcher.tasks.LoadSharedPreferencesDAOTask;
+import de.clemensbartz.android.launcher.util.Bootstrap;
+import de.clemensbartz.android.launcher.util.FrameMetricsCollector;
 import de.clemensbartz.android.launcher.util.IntentUtil;
+import de.clemensbartz.android.launcher.util.LocaleUtil;
+import de.clemensbartz.android.launcher.util.LowRamUtil;
+import de.clemensbartz.android.launcher.util.MemoryCoordinator;
+import de.clemensbartz.android.launcher.util.StartupTracer;
 import de.clemensbartz.android.launcher.util.StrictModeUtil;
 import de.clemensbartz.android.launcher.util.SystemServiceUtil;
 import de.clemensbartz.android.launcher.util.ThemeUtil;
@@ -97,25 +113,33 @@ public final class Launcher extends Activity {
     /** The gesture detector. */
     @Nullable
     private GestureDetector gestureDetector = null;
+    /** The drawer view or <code>null</code>, if the drawer has not been inflated yet. */
+    @Nullable
+    private AbsListView drawerView = null;
 
     /** The action bar menu. */
     private Menu actionBarMenu = null;
 
     @Override
     protected void onCreate(@Nullable final Bundle savedInstanceState) {
+        final StartupTracer startupTracer = StartupTracer.getInstance();
+        startupTracer.beginStart();
+        startupTracer.beginPhase(StartupTracer.PHASE_ON_CREATE);
+
         // Set theme
+        startupTracer.beginPhase(StartupTracer.PHASE_THEME);
         ThemeUtil.setTheme(this);
+        startupTracer.endPhase(StartupTracer.PHASE_THEME);
         // Create activity
         super.onCreate(savedInstanceState);
         // Set layout
+        startupTracer.beginPhase(StartupTracer.PHASE_CONTENT_VIEW);
         setContentView(R.layout.launcher);
+        startupTracer.endPhase(StartupTracer.PHASE_CONTENT_VIEW);
         // Adjust strict mode
         StrictModeUtil.adjustStrictMode();
 
-        // Get action bar height
-        final int topPx = ThemeUtil.getActionBarHeight(this);
-
-        // Create shared preference DAO
+        // Create shared preference DAO, the preferences have been loaded by the bootstrap
         sharedPreferencesDAO = SharedPreferencesDAO.getInstance(getPreferences(Context.MODE_PRIVATE));
 
         // Set up view handling
@@ -126,8 +150,10 @@ public final class Launcher extends Activity {
         // Set up widget handling
         final boolean supportingWidgets = Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2 || getPackageManager().hasSystemFeature(PackageManager.FEATURE_APP_WIDGETS);
         if (supportingWidgets) {
+            startupTracer.beginPhase(StartupTracer.PHASE_WIDGET_CONTROLLER);
             widgetController = new WidgetController(this, sharedPreferencesDAO);
-            widgetController.startListening();
+            viewController.setWidgetController(widgetController);
+            startupTracer.endPhase(StartupTracer.PHASE_WIDGET_CONTROLLER);
         }
 
         // Load the default drawable
@@ -143,6 +169,7 @@ public final class Launcher extends Activity {
         }
 
         // Set up dock handling
+        startupTracer.beginPhase(StartupTracer.PHASE_DOCK);
         final ArrayList<ImageView> dockImageViews = new ArrayList<>(DockController.NUMBER_OF_ITEMS);
         dockImageViews.add((ImageView) findViewById(R.id.ivDock1));
         dockImageViews.add((ImageView) findViewById(R.id.ivDock2));
@@ -151,51 +178,117 @@ public final class Launcher extends Activity {
         dockImageViews.add((ImageView) findViewById(R.id.ivDock5));
         dockImageViews.add((ImageView) findViewById(R.id.ivDock6));
         dockImageViews.add((ImageView) findViewById(R.id.ivDock7));
+        // Icons of the process can only be shown in the same density and night mode
+        IconCache.getInstance().validate(getResources().getConfiguration());
         dockController = new DockController(this, getPackageManager(), sharedPreferencesDAO, icLauncher, dockImageViews);
         dockController.updateVisibility(getResources().getConfiguration());
+        dockController.restore();
+        startupTracer.endPhase(StartupTracer.PHASE_DOCK);
 
         // Create and assign adapter to views
-        drawerListAdapter = new DrawerListAdapter(this, icLauncher);
+        startupTracer.beginPhase(StartupTracer.PHASE_ADAPTER);
+        // Attach to the catalog of the process, which survives recreating this activity
+        drawerListAdapter = new DrawerListAdapter(this, icLauncher, CatalogCache.getInstance().getApplicationModels(LocaleUtil.getLocale(this)));
         // Create and assign the drawer controller
         drawerController = new DrawerController(drawerListAdapter, sharedPreferencesDAO);
-        // Update the sections indexer
-        new LinearLayoutSectionsObserver<>(this, topPx, (ListView) findViewById(R.id.lvApplications), (LinearLayout) findViewById(R.id.lvApplicationsSections), drawerListAdapter);
-
-        // Get all detail content views
-        final List<AbsListView> listViews = Arrays.asList(
-                (AbsListView) findViewById(R.id.gvApplications),
-                (AbsListView) findViewById(R.id.lvApplications)
-        );
-        // Assign adapter and set offset for list views
-        for (final AbsListView listView : listViews) {
-            adjustActionBarOffset(listView, topPx);
-
-            registerForContextMenu(listView);
-            listView.setAdapter(drawerListAdapter);
-            listView.setOnItemClickListener(new AdapterViewOnItemClickListener(this));
-            listView.setOnCreateContextMenuListener(new AbsListViewOnCreateContextMenuListener(getPackageManager(), drawerController, drawerListAdapter, dockController, this));
+        // Show a warm catalog at once
+        if (!drawerListAdapter.isEmpty()) {
+            drawerListAdapter.filter();
+        }
+        // Inflate the drawer after the home page has been shown, unless it is shown earlier
+        Looper.myQueue().addIdleHandler(new DrawerInflatingIdleHandler(this));
+        startupTracer.endPhase(StartupTracer.PHASE_ADAPTER);
+
+        // Register launcher apps callback
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            final LauncherApps launcherApps = (LauncherApps) getSystemService(Context.LAUNCHER_APPS_SERVICE);
+
+            if (launcherApps != null) {
+                final LauncherAppsCallback launcherAppsCallback = LauncherAppsCallback.getInstance();
+                launcherAppsCallback.setLauncherApps(launcherApps);
+                launcherAppsCallback.setContext(this);
+                launcherAppsCallback.setDockController(dockController);
+                launcherAppsCallback.setDrawerController(drawerController);
+                launcherAppsCallback.setDrawerListAdapter(drawerListAdapter);
+
+                launcherApps.registerCallback(launcherAppsCallback);
+            }
+        }
+
+        startupTracer.endPhase(StartupTracer.PHASE_ON_CREATE);
+    }
+
+    /**
+     * Inflate the drawer and attach the adapter to it, if this has not been done yet.
+     * @return the drawer view, which shows the grid and the list layout
+     */
+    @NonNull
+    public AbsListView inflateDrawer() {
+        if (drawerView != null) {
+            return drawerView;
         }
+
+        if (drawerListAdapter == null || drawerController == null) {
+            throw new IllegalStateException("The drawer can only be inflated after creating the adapter.");
+        }
+
+        final StartupTracer startupTracer = StartupTracer.getInstance();
+        startupTracer.beginPhase(StartupTracer.PHASE_DRAWER);
+
+        ((ViewStub) findViewById(R.id.vsDrawer)).inflate();
+
+        // Get action bar height
+        final int topPx = ThemeUtil.getActionBarHeight(this);
+        // Get the drawer view, which shows the grid and the list layout
+        final AbsListView listView = findViewById(R.id.gvApplications);
+        // Update the sections indexer
+        new LinearLayoutSectionsObserver<>(this, topPx, listView, (LinearLayout) findViewById(R.id.lvApplicationsSections), drawerListAdapter);
+        // Assign adapter and set offset for the drawer view
+        adjustActionBarOffset(listView, topPx);
+
+        registerForContextMenu(listView);
+        listView.setAdapter(drawerListAdapter);
+        listView.setOnItemClickListener(new AdapterViewOnItemClickListener(this));
+        listView.setOnScrollListener(new AbsListViewOnScrollListener());
+        listView.setOnCreateContextMenuListener(new AbsListViewOnCreateContextMenuListener(getPackageManager(), drawerController, drawerListAdapter, dockController, this));
         // Adjust offset for sections
         adjustActionBarOffset(findViewById(R.id.lvApplicationsSections), topPx);
+        // Inflate the first items in the background, before the drawer is shown
+        drawerListAdapter.prepareItemViews();
+
+        drawerView = listView;
+        startupTracer.endPhase(StartupTracer.PHASE_DRAWER);
+
+        return listView;
     }
 
     @Override
     protected void onStart() {
+        final StartupTracer startupTracer = StartupTracer.getInstance();
+        startupTracer.beginPhase(StartupTracer.PHASE_ON_START);
+
         super.onStart();
 
+        // Only receive widget updates while visible, the newest state is delivered when listening again
+        if (widgetController != null) {
+            widgetController.startListening();
+        }
+
         // Initialize DAOs
-        new LoadSharedPreferencesDAOTask(this, sharedPreferencesDAO, viewController, widgetController).execute();
+        new LoadSharedPreferencesDAOTask(this, sharedPreferencesDAO, viewController, widgetController, dockController).execute();
 
-        // Register receivers
-        final PackageChangedBroadcastReceiver receiver = PackageChangedBroadcastReceiver.getInstance();
-        receiver.setDockController(dockController);
-        receiver.setDrawerController(drawerController);
-        receiver.setDrawerListAdapter(drawerListAdapter);
-        receiver.setSharedPreferencesDAO(sharedPreferencesDAO);
+        // Register receivers, newer versions use the launcher apps callback instead
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            final PackageChangedBroadcastReceiver receiver = PackageChangedBroadcastReceiver.getInstance();
+            receiver.setDockController(dockController);
+            receiver.setDrawerController(drawerController);
+            receiver.setDrawerListAdapter(drawerListAdapter);
+            receiver.setSharedPreferencesDAO(sharedPreferencesDAO);
 
-        registerReceiver(receiver, IntentUtil.createdChangeBroadReceiverFilter());
+            registerReceiver(receiver, IntentUtil.createdChangeBroadReceiverFilter());
+        }
 
-        // Update dock
+        // Update dock, the first load takes the pins checked by the bootstrap
         if (LoadDockTask.getRunningTask() != null) {
             LoadDockTask.getRunningTask().cancel(true);
         }
@@ -212,6 +305,13 @@ public final class Launcher extends Activity {
         final LoadDrawerListAdapterTask loadDrawerListAdapterTask = new LoadDrawerListAdapterTask(this, drawerController, drawerListAdapter);
         LoadDrawerListAdapterTask.setRunningTask(loadDrawerListAdapterTask);
         loadDrawerListAdapterTask.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+
+        // Warm shortcuts of the most launched apps
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1) {
+            ShortcutInfoCache.getInstance().warm((LauncherApps) getSystemService(Context.LAUNCHER_APPS_SERVICE), null, LaunchCountCache.getInstance(this).getTopLaunchedPackageNames(ShortcutInfoCache.NUMBER_OF_TOP_LAUNCHED));
+        }
+
+        startupTracer.endPhase(StartupTracer.PHASE_ON_START);
     }
 
     @Override
@@ -230,6 +330,20 @@ public final class Launcher extends Activity {
         }
     }
 
+    @Override
+    public void onTrimMemory(final int level) {
+        super.onTrimMemory(level);
+
+        MemoryCoordinator.getInstance().onTrimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+
+        MemoryCoordinator.getInstance().onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
@@ -241,11 +355,19 @@ public final class Launcher extends Activity {
     }
 
     @Override
-    protected void onDestroy() {
+    protected void onStop() {
+        // Do not request frames in the background, if the drawer was shown last
+        FrameMetricsCollector.stop();
+
         if (widgetController != null) {
             widgetController.stopListening();
         }
 
+        super.onStop();
+    }
+
+    @Override
+    protected void onDestroy() {
         // Prevent leakage
         try {
             unregisterReceiver(PackageChangedBroadcastReceiver.getInstance());
@@ -253,9 +375,37 @@ public final class Launcher extends Activity {
             // do nothing here
         }
 
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            final LauncherApps launcherApps = (LauncherApps) getSystemService(Context.LAUNCHER_APPS_SERVICE);
+
+            if (launcherApps != null) {
+                launcherApps.unregisterCallback(LauncherAppsCallback.getInstance());
+            }
+        }
+
         super.onDestroy();
     }
 
+    @Override
+    public void dump(@NonNull final String prefix, @Nullable final FileDescriptor fd, @NonNull final PrintWriter writer, @Nullable final String[] args) {
+        super.dump(prefix, fd, writer, args);
+
+        StartupTracer.getInstance().dump(prefix, writer);
+        Bootstrap.getInstance().dump(prefix, writer);
+        FrameMetricsCollector.dump(prefix, writer);
+        MemoryCoordinator.getInstance().dump(prefix, writer);
+        LowRamUtil.dump(prefix, writer);
+        IconCache.getInstance().dump(prefix, writer);
+
+        writer.print(prefix);
+        writer.print("Catalog IPC calls of last enumeration: ");
+        writer.println(LoadDrawerListAdapterTask.getLastIpcCallCount());
+
+        if (widgetController != null) {
+            widgetController.dump(prefix, writer);
+        }
+    }
+
     @Override
     public boolean onTouchEvent(@NonNull final MotionEvent event) {
         if (gestureDetector != null) {
@@ -313,6 +463,7 @@ public final class Launcher extends Activity {
         } else {
             final boolean widgetConfigured = widgetController.isAppWidgetConfigured();
 
+            menu.findItem(R.id.abm_choose_widget).setVisible(widgetController.hasFreeCell());
             menu.findItem(R.id.abm_layout_widget).setVisible(widgetConfigured);
             menu.findItem(R.id.abm_remove_widget).setVisible(widgetConfigured);
         }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.clemensbartz.android.launcher;
+
+import android.app.Application;
+
+import de.clemensbartz.android.launcher.util.Bootstrap;
+import de.clemensbartz.android.launcher.util.LowRamUtil;
+
+/**
+ * Application of the launcher. Starts the {@link Bootstrap} as soon as the process starts,
+ * before the launcher activity is created.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class LauncherApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Caches are sized for the mode when they are created
+        LowRamUtil.init(this);
+        Bootstrap.getInstance().start(this);
+    }
+}
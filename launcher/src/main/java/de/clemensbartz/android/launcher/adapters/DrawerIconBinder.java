@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.clemensbartz.android.launcher.adapters;
+
+import android.content.pm.LauncherApps;
+import android.content.pm.PackageManager;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+
+import de.clemensbartz.android.launcher.caches.IconCache;
+import de.clemensbartz.android.launcher.models.ApplicationModel;
+import de.clemensbartz.android.launcher.tasks.LoadApplicationModelIconIntoImageViewTask;
+import de.clemensbartz.android.launcher.util.MemoryCoordinator;
+
+/**
+ * Binder for the icons of the drawer. The wrapped icons of recently bound application models are
+ * kept, so binding a cell of a known application model does not allocate.
+ * <br/>
+ * A drawable can only be shown by one view, so a view showing an icon before loses it when the
+ * icon is bound to another view. The tag of an image view is the application model it shows.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class DrawerIconBinder implements MemoryCoordinator.Trimmable {
+
+    /** The number of wrapped icons to keep, about four screens of the drawer. */
+    private static final int CACHE_SIZE = 128;
+    /** The estimated number of bytes of a wrapped icon without its bitmap, which is shared with the {@link IconCache}. */
+    private static final long ESTIMATED_BYTES_PER_ICON = 512L;
+
+    /** The wrapped icons per application model. */
+    @NonNull
+    private final LruCache<ApplicationModel, BoundIcon> boundIcons = new LruCache<>(CACHE_SIZE);
+    /** The package manager for loading icons. */
+    @NonNull
+    private final PackageManager packageManager;
+    /** The launcher apps for icons of other profiles. */
+    @Nullable
+    private final LauncherApps launcherApps;
+    /** The default drawable. */
+    @NonNull
+    private final Drawable defaultDrawable;
+
+    /**
+     * Create a new binder.
+     * @param packageManager the package manager
+     * @param launcherApps the launcher apps for icons of other profiles, <code>null</code> before Lollipop
+     * @param defaultDrawable the default drawable
+     */
+    public DrawerIconBinder(
+            @NonNull final PackageManager packageManager,
+            @Nullable final LauncherApps launcherApps,
+            @NonNull final Drawable defaultDrawable) {
+
+        this.packageManager = packageManager;
+        this.launcherApps = launcherApps;
+        this.defaultDrawable = defaultDrawable;
+
+        MemoryCoordinator.getInstance().register(this);
+    }
+
+    /**
+     * Show the icon of an application model in an image view. Icons, which are not cached, are
+     * loaded asynchronously.
+     * @param imageView the image view
+     * @param applicationModel the application model
+     */
+    public void bind(@NonNull final ImageView imageView, @NonNull final ApplicationModel applicationModel) {
+        imageView.setTag(applicationModel);
+
+        BoundIcon boundIcon = boundIcons.get(applicationModel);
+
+        if (boundIcon == null) {
+            final Drawable drawable = IconCache.getInstance().get(applicationModel, imageView.getResources());
+
+            if (drawable == null) {
+                imageView.setImageDrawable(defaultDrawable);
+                LoadApplicationModelIconIntoImageViewTask.loadInto(imageView, applicationModel, packageManager, launcherApps, defaultDrawable);
+
+                return;
+            }
+
+            boundIcon = new BoundIcon(LoadApplicationModelIconIntoImageViewTask.wrap(drawable));
+            boundIcons.put(applicationModel, boundIcon);
+        }
+
+        final ImageView owner = boundIcon.owner;
+
+        // Take the icon from the recycled view showing it before
+        if (owner != null && owner != imageView && owner.getDrawable() == boundIcon.drawable) {
+            owner.setTag(null);
+            owner.setImageDrawable(defaultDrawable);
+        }
+
+        boundIcon.owner = imageView;
+        imageView.setImageDrawable(boundIcon.drawable);
+    }
+
+    /**
+     * Check if an image view still shows the icon of an application model.
+     * @param imageView the image view
+     * @param applicationModel the application model
+     * @return <code>true</code>, if the icon is shown or being loaded, otherwise <code>false</code>
+     */
+    public boolean isBound(@NonNull final ImageView imageView, @NonNull final ApplicationModel applicationModel) {
+        return imageView.getTag() == applicationModel;
+    }
+
+    /**
+     * Drop the wrapped icons of a package, e. g. after its icons have been changed. Views showing
+     * them are bound again on the next layout.
+     * @param packageName the package name or <code>null</code>, to drop all wrapped icons
+     */
+    public void removePackage(@Nullable final String packageName) {
+        for (final Map.Entry<ApplicationModel, BoundIcon> entry : boundIcons.snapshot().entrySet()) {
+            if (packageName != null && !packageName.equals(entry.getKey().packageName)) {
+                continue;
+            }
+
+            final ImageView owner = entry.getValue().owner;
+
+            // Skip the fast path of the view showing the icon
+            if (owner != null && owner.getTag() == entry.getKey()) {
+                owner.setTag(null);
+            }
+
+            boundIcons.remove(entry.getKey());
+        }
+    }
+
+    @Override
+    public long trim(final int policy) {
+        final int size = boundIcons.size();
+
+        if (policy == MemoryCoordinator.POLICY_CLEAR) {
+            boundIcons.evictAll();
+        } else if (policy == MemoryCoordinator.POLICY_TRIM) {
+            boundIcons.trimToSize(size / 2);
+        }
+
+        return (size - boundIcons.size()) * ESTIMATED_BYTES_PER_ICON;
+    }
+
+    /**
+     * A wrapped icon and the view showing it.
+     */
+    private static final class BoundIcon {
+        /** The wrapped icon. */
+        @NonNull
+        final Drawable drawable;
+        /** The view the icon has been bound to last. */
+        @Nullable
+        ImageView owner;
+
+        /**
+         * Create a new bound icon.
+         * @param drawable the wrapped icon
+         */
+        BoundIcon(@NonNull final Drawable drawable) {
+            this.drawable = drawable;
+        }
+    }
+}
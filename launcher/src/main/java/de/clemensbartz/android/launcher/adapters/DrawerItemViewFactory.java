@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.clemensbartz.android.launcher.adapters;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.PrecomputedText;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import de.clemensbartz.android.launcher.R;
+import de.clemensbartz.android.launcher.models.ApplicationModel;
+import de.clemensbartz.android.launcher.util.ExecutorUtil;
+import de.clemensbartz.android.launcher.util.LowRamUtil;
+import de.clemensbartz.android.launcher.util.MemoryCoordinator;
+
+/**
+ * Factory for the item views of the drawer. While the home page is shown, item views are inflated
+ * in the background into a pool, so opening the drawer and the first fling take views from the
+ * pool instead of inflating them. On Android Q and later, the labels of the catalog are laid out
+ * in the background as well, so binding a view does not measure its text.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class DrawerItemViewFactory implements MemoryCoordinator.Trimmable {
+
+    /** The number of views to inflate in advance per view type, about the views of a screen. */
+    private static final int POOL_SIZE = 32;
+    /** The number of views to inflate in advance in the low-RAM mode. */
+    private static final int LOW_RAM_POOL_SIZE = 8;
+    /** The estimated number of bytes of an item view. */
+    private static final long ESTIMATED_BYTES_PER_VIEW = 4096L;
+
+    /** The layouts per view type. */
+    @NonNull
+    private final int[] resourceIds;
+    /** The inflater for the main thread. */
+    @NonNull
+    private final LayoutInflater layoutInflater;
+    /** The inflater for the background, as inflaters lock while inflating. */
+    @NonNull
+    private final LayoutInflater backgroundLayoutInflater;
+    /** The parent for creating the layout params of views inflated in the background. */
+    @NonNull
+    private final ViewGroup backgroundParent;
+    /** The handler of the main thread. */
+    @NonNull
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    /** The inflated views per view type. */
+    @NonNull
+    private final List<ArrayDeque<View>> pools;
+    /** The labels to lay out text with per view type, never handed out and only accessed by the background job. */
+    @NonNull
+    private final TextView[] measuringLabels;
+    /** The layout direction of the configuration, which the item views get when attached. */
+    private final int layoutDirection;
+    /** The number of views to inflate in advance per view type. */
+    private final int poolSize = LowRamUtil.isLowRamDevice() ? LOW_RAM_POOL_SIZE : POOL_SIZE;
+    /** If a background job is running, only accessed on the main thread. */
+    private boolean isPreparing = false;
+
+    /**
+     * Create a new factory.
+     * @param context the context to inflate views in
+     * @param resourceIds the layouts per view type
+     */
+    public DrawerItemViewFactory(@NonNull final Context context, @NonNull final int[] resourceIds) {
+        this.resourceIds = resourceIds;
+        this.layoutInflater = LayoutInflater.from(context);
+        this.backgroundLayoutInflater = layoutInflater.cloneInContext(context);
+        this.backgroundParent = new FrameLayout(context);
+        this.pools = new ArrayList<>(resourceIds.length);
+        this.measuringLabels = new TextView[resourceIds.length];
+        this.layoutDirection = context.getResources().getConfiguration().getLayoutDirection();
+
+        for (int i = 0; i < resourceIds.length; i++) {
+            pools.add(new ArrayDeque<View>(poolSize));
+        }
+
+        MemoryCoordinator.getInstance().register(this);
+    }
+
+    /**
+     * Return a view of a view type, either from the pool or inflated now.
+     * @param viewType the view type
+     * @param parent the parent the view will be attached to
+     * @return the view
+     */
+    @NonNull
+    public View obtain(final int viewType, @NonNull final ViewGroup parent) {
+        final ArrayDeque<View> pool = pools.get(viewType);
+        final View view;
+
+        synchronized (pool) {
+            view = pool.poll();
+        }
+
+        if (view != null) {
+            return view;
+        }
+
+        // Inflate with the parent, so the layout params of the item are kept
+        return resolveDirections(layoutInflater.inflate(resourceIds[viewType], parent, false));
+    }
+
+    /**
+     * Resolve the layout and text directions of an item view now instead of when it is attached.
+     * Text is laid out for the text direction of its view, so labels laid out in the background
+     * and labels set before the view is attached match the direction the view has when shown.
+     * @param view the item view
+     * @return the item view
+     */
+    @NonNull
+    private View resolveDirections(@NonNull final View view) {
+        view.setLayoutDirection(layoutDirection);
+
+        return view;
+    }
+
+    /**
+     * Fill the pool of a view type in the background and lay out the labels of the application
+     * models. Laid out labels are set on the application models on the main thread.
+     * @param viewType the view type
+     * @param applicationModels a copy of the application models
+     */
+    public void prepare(final int viewType, @NonNull final List<ApplicationModel> applicationModels) {
+        if (isPreparing) {
+            return;
+        }
+
+        isPreparing = true;
+
+        // Only keep the views of the current view type in the low-RAM mode
+        if (LowRamUtil.isLowRamDevice()) {
+            for (int i = 0; i < pools.size(); i++) {
+                if (i != viewType) {
+                    synchronized (pools.get(i)) {
+                        pools.get(i).clear();
+                    }
+                }
+            }
+        }
+
+        try {
+            ExecutorUtil.getCatalogExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    fillPool(viewType);
+                    final Map<ApplicationModel, CharSequence> labels;
+
+                    // Laid out labels are kept for the whole catalog, which is skipped in the low-RAM mode
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && !LowRamUtil.isLowRamDevice()) {
+                        labels = precomputeLabels(getMeasuringLabel(viewType), applicationModels);
+                    } else {
+                        labels = new HashMap<>();
+                    }
+
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            isPreparing = false;
+
+                            for (final Map.Entry<ApplicationModel, CharSequence> entry : labels.entrySet()) {
+                                // Skip labels that have changed in the meantime
+                                if (TextUtils.equals(entry.getKey().label, entry.getValue())) {
+                                    entry.getKey().precomputedLabel = entry.getValue();
+                                }
+                            }
+                        }
+                    });
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            isPreparing = false;
+        }
+    }
+
+    @Override
+    public long trim(final int policy) {
+        long count = 0;
+
+        // Views are inflated again when the drawer is shown
+        for (final ArrayDeque<View> pool : pools) {
+            synchronized (pool) {
+                count += pool.size();
+                pool.clear();
+            }
+        }
+
+        return count * ESTIMATED_BYTES_PER_VIEW;
+    }
+
+    /**
+     * Inflate views into the pool of a view type. Must not be called on the main thread.
+     * @param viewType the view type
+     */
+    private void fillPool(final int viewType) {
+        final ArrayDeque<View> pool = pools.get(viewType);
+
+        while (true) {
+            synchronized (pool) {
+                if (pool.size() >= poolSize) {
+                    return;
+                }
+            }
+
+            final View view = resolveDirections(backgroundLayoutInflater.inflate(resourceIds[viewType], backgroundParent, false));
+
+            synchronized (pool) {
+                pool.add(view);
+            }
+        }
+    }
+
+    /**
+     * Return the label to lay out text with for a view type. Views in the pool may be bound on the
+     * main thread at any time, so the label belongs to a view that never enters the pool. Must only
+     * be called by the background job.
+     * @param viewType the view type
+     * @return the label
+     */
+    @NonNull
+    private TextView getMeasuringLabel(final int viewType) {
+        if (measuringLabels[viewType] == null) {
+            final View view = resolveDirections(backgroundLayoutInflater.inflate(resourceIds[viewType], backgroundParent, false));
+            measuringLabels[viewType] = (TextView) view.findViewById(R.id.name);
+        }
+
+        return measuringLabels[viewType];
+    }
+
+    /**
+     * Lay out the labels of application models for a text view.
+     * @param textView the text view the labels will be shown in
+     * @param applicationModels the application models
+     * @return the laid out labels per application model
+     */
+    @TargetApi(Build.VERSION_CODES.Q)
+    @RequiresApi(Build.VERSION_CODES.Q)
+    @NonNull
+    private static Map<ApplicationModel, CharSequence> precomputeLabels(@NonNull final TextView textView, @NonNull final List<ApplicationModel> applicationModels) {
+        final PrecomputedText.Params params = textView.getTextMetricsParams();
+        final Map<ApplicationModel, CharSequence> labels = new HashMap<>(applicationModels.size());
+
+        for (final ApplicationModel applicationModel : applicationModels) {
+            final String label = applicationModel.label;
+            final CharSequence precomputedLabel = applicationModel.precomputedLabel;
+
+            // Skip labels laid out for this view type already
+            if (label == null || (precomputedLabel instanceof PrecomputedText && ((PrecomputedText) precomputedLabel).getParams().equals(params))) {
+                continue;
+            }
+
+            labels.put(applicationModel, PrecomputedText.create(label, params));
+        }
+
+        return labels;
+    }
+}
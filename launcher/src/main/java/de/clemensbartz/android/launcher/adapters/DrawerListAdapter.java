@@ -17,10 +17,14 @@
 
 package de.clemensbartz.android.launcher.adapters;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.drawable.Drawable;
-import android.os.AsyncTask;
-import android.view.LayoutInflater;
+import android.content.pm.LauncherApps;
+import android.os.Build;
+import android.os.UserHandle;
+import android.text.PrecomputedText;
+import android.text.TextUtils;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
@@ -31,6 +35,7 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -38,16 +43,18 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.RejectedExecutionException;
 
 import de.clemensbartz.android.launcher.R;
 import de.clemensbartz.android.launcher.comparators.LocaledStringComparator;
 import de.clemensbartz.android.launcher.models.ApplicationModel;
-import de.clemensbartz.android.launcher.tasks.LoadApplicationModelIconIntoImageViewTask;
+import de.clemensbartz.android.launcher.util.FrameMetricsCollector;
 import de.clemensbartz.android.launcher.util.LocaleUtil;
+import de.clemensbartz.android.launcher.util.LowRamUtil;
+import de.clemensbartz.android.launcher.util.UserHandleUtil;
 
 /**
  * Array adapter for the drawer. Takes an @{ApplicationModel}.
@@ -57,7 +64,11 @@ import de.clemensbartz.android.launcher.util.LocaleUtil;
  */
 public final class DrawerListAdapter extends ArrayAdapter<ApplicationModel> implements SearchView.OnQueryTextListener, SectionIndexer {
 
-    /** The layouts per abs list view. */
+    /** View type for grid items. */
+    public static final int VIEW_TYPE_GRID = 0;
+    /** View type for list items. */
+    public static final int VIEW_TYPE_LIST = 1;
+    /** The layouts per view type. */
     private static final int[] ITEM_RESOURCE_IDS = {
             R.layout.grid_drawer_item,
             R.layout.list_drawer_item
@@ -66,36 +77,55 @@ public final class DrawerListAdapter extends ArrayAdapter<ApplicationModel> impl
     /** The separator for search terms. */
     @NonNull
     private static final String FILTER_SEPARATOR = " ";
+    /** The separator for the component keys of stable ids. */
+    @NonNull
+    private static final String STABLE_ID_SEPARATOR = "/";
 
     /** The list of all application models. */
     @NonNull
-    private final List<ApplicationModel> unfilteredList = new ArrayList<>();
+    private final List<ApplicationModel> unfilteredList;
     /** The list of filtered application models. */
     @NonNull
-    private final List<ApplicationModel> filteredList = new ArrayList<>();
+    private List<ApplicationModel> filteredList = new ArrayList<>();
+    /** The list of the previously filtered application models, reused for every filter. */
+    @NonNull
+    private List<ApplicationModel> previousFilteredList = new ArrayList<>();
     /** The list of sections. */
     @NonNull
     private final List<String> sections = new ArrayList<>();
     /** The list of indexes. */
     @NonNull
     private final Map<String, Integer> indexMap = new HashMap<>();
+    /**
+     * The stable ids per component, which survive reloads of the application models. They are
+     * shared by all adapters, as adapters of recreated activities share the application models.
+     */
+    @NonNull
+    private static final Map<String, Long> STABLE_IDS = new HashMap<>();
 
 
-    /** The default drawable. */
-    @NonNull
-    private final Drawable defaultDrawable;
     /** The locale of the context. */
     @NonNull
     private final Locale locale;
+    /** The binder for icons. */
+    @NonNull
+    private final DrawerIconBinder iconBinder;
+    /** The factory for item views, created when item views are needed first. */
+    @Nullable
+    private DrawerItemViewFactory itemViewFactory;
 
     /** The lower-cased lowerCaseFilter string. */
     @NonNull
     private String lowerCaseFilter = "";
     /** Should hidden apps be shown. */
     private boolean showHiddenApps = false;
+    /** The view type of all items. */
+    private int viewType = VIEW_TYPE_GRID;
+    /** If application models have been changed in place, so the next filter has to notify. */
+    private boolean isContentChanged = false;
 
     /**
-     * Initializes a new adapter.
+     * Initializes a new adapter with an empty catalog.
      * @param context the activity
      * @param defaultDrawable the default drawable
      */
@@ -103,9 +133,33 @@ public final class DrawerListAdapter extends ArrayAdapter<ApplicationModel> impl
             @NonNull final Context context,
             @NonNull final Drawable defaultDrawable) {
 
+        this(context, defaultDrawable, new ArrayList<ApplicationModel>());
+    }
+
+    /**
+     * Initializes a new adapter, which holds an existing catalog, e. g. of the {@link de.clemensbartz.android.launcher.caches.CatalogCache}.
+     * @param context the activity
+     * @param defaultDrawable the default drawable
+     * @param applicationModels the sorted catalog, which is modified by this adapter
+     */
+    public DrawerListAdapter(
+            @NonNull final Context context,
+            @NonNull final Drawable defaultDrawable,
+            @NonNull final List<ApplicationModel> applicationModels) {
+
         super(context, R.layout.grid_drawer_item);
-        this.defaultDrawable = defaultDrawable;
+        this.unfilteredList = applicationModels;
         this.locale = LocaleUtil.getLocale(context);
+
+        final LauncherApps launcherApps;
+
+        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.LOLLIPOP) {
+            launcherApps = (LauncherApps) context.getSystemService(Context.LAUNCHER_APPS_SERVICE);
+        } else {
+            launcherApps = null;
+        }
+
+        this.iconBinder = new DrawerIconBinder(context.getPackageManager(), launcherApps, defaultDrawable);
     }
 
     @NonNull
@@ -117,13 +171,13 @@ public final class DrawerListAdapter extends ArrayAdapter<ApplicationModel> impl
         ViewHolder viewHolder;
         View v = convertView;
 
-        if (convertView == null) {
-            v = LayoutInflater.from(getContext()).inflate(getResource(parent), null);
+        if (convertView == null || !(convertView.getTag() instanceof ViewHolder) || ((ViewHolder) convertView.getTag()).viewType != viewType) {
+            v = getItemViewFactory().obtain(viewType, parent);
 
             viewHolder = new ViewHolder();
+            viewHolder.viewType = viewType;
             viewHolder.icon = v.findViewById(R.id.icon);
             viewHolder.name = v.findViewById(R.id.name);
-
             v.setTag(viewHolder);
         } else {
             viewHolder = (ViewHolder) v.getTag();
@@ -132,19 +186,18 @@ public final class DrawerListAdapter extends ArrayAdapter<ApplicationModel> impl
         final ApplicationModel resolveInfo = getItem(position);
 
         if (viewHolder != null && viewHolder.icon != null && viewHolder.name != null) {
-            viewHolder.icon.setImageDrawable(defaultDrawable);
-            viewHolder.icon.setContentDescription(resolveInfo.label);
-            viewHolder.name.setText(resolveInfo.label);
-            // Load icon asynchronously
-            final LoadApplicationModelIconIntoImageViewTask task = new LoadApplicationModelIconIntoImageViewTask(viewHolder.icon, resolveInfo, getContext().getPackageManager(), defaultDrawable);
-            try {
-                // Try to load via parallel execution
-                task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
-            } catch (final RejectedExecutionException exception) {
-                // Otherwise (e. g. queue is full) load via serial execution
-                task.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+            // The abs list view returns the view of the same stable id, keep its icon
+            if (viewHolder.applicationModel == resolveInfo && TextUtils.equals(viewHolder.label, resolveInfo.label)
+                    && iconBinder.isBound(viewHolder.icon, resolveInfo)) {
+                return v;
             }
 
+            viewHolder.applicationModel = resolveInfo;
+            viewHolder.label = resolveInfo.label;
+            viewHolder.icon.setContentDescription(resolveInfo.label);
+            setLabel(viewHolder, resolveInfo);
+            // Show the icon from the cache or load it asynchronously
+            iconBinder.bind(viewHolder.icon, resolveInfo);
         }
 
         return v;
@@ -161,6 +214,129 @@ public final class DrawerListAdapter extends ArrayAdapter<ApplicationModel> impl
         return filteredList.size();
     }
 
+    @Override
+    public long getItemId(final int position) {
+        return getStableId(filteredList.get(position));
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    /**
+     * Get the stable id of an application model. The id only depends on the component and the
+     * profile, so it is the same for the application models of every reload.
+     * @param applicationModel the application model
+     * @return the stable id
+     */
+    private long getStableId(@NonNull final ApplicationModel applicationModel) {
+        if (applicationModel.stableId < 0) {
+            final String key = applicationModel.packageName + STABLE_ID_SEPARATOR + applicationModel.className
+                    + STABLE_ID_SEPARATOR + applicationModel.userSerialNumber;
+            Long stableId = STABLE_IDS.get(key);
+
+            if (stableId == null) {
+                stableId = (long) STABLE_IDS.size();
+                STABLE_IDS.put(key, stableId);
+            }
+
+            applicationModel.stableId = stableId;
+        }
+
+        return applicationModel.stableId;
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        // Share one set of recycled views in the low-RAM mode, views of the other layout are replaced
+        return LowRamUtil.isLowRamDevice() ? 1 : ITEM_RESOURCE_IDS.length;
+    }
+
+    /**
+     * Set the label of an application model, using the label laid out in the background if it
+     * matches the text view.
+     * @param viewHolder the view holder with a text view
+     * @param applicationModel the application model
+     */
+    private static void setLabel(@NonNull final ViewHolder viewHolder, @NonNull final ApplicationModel applicationModel) {
+        if (viewHolder.name == null) {
+            return;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                && applicationModel.precomputedLabel instanceof PrecomputedText
+                && ((PrecomputedText) applicationModel.precomputedLabel).getParams().equals(getTextMetricsParams(viewHolder.name, viewHolder))) {
+
+            viewHolder.name.setText(applicationModel.precomputedLabel);
+        } else {
+            viewHolder.name.setText(applicationModel.label);
+        }
+    }
+
+    /**
+     * Get the text metrics of a text view. The text metrics are kept by the view holder and are
+     * only created again if the text direction of the view has been resolved differently since.
+     * @param textView the text view
+     * @param viewHolder the view holder of the text view
+     * @return the text metrics of the text view
+     */
+    @TargetApi(Build.VERSION_CODES.Q)
+    @RequiresApi(Build.VERSION_CODES.Q)
+    @NonNull
+    private static PrecomputedText.Params getTextMetricsParams(@NonNull final TextView textView, @NonNull final ViewHolder viewHolder) {
+        if (!(viewHolder.textMetricsParams instanceof PrecomputedText.Params)
+                || ((PrecomputedText.Params) viewHolder.textMetricsParams).getTextDirection() != textView.getTextDirectionHeuristic()) {
+            viewHolder.textMetricsParams = textView.getTextMetricsParams();
+        }
+
+        return (PrecomputedText.Params) viewHolder.textMetricsParams;
+    }
+
+    /**
+     * Inflate item views of the current view type and lay out the labels of the catalog in the
+     * background, e. g. while the home page is shown.
+     */
+    public void prepareItemViews() {
+        getItemViewFactory().prepare(viewType, new ArrayList<>(unfilteredList));
+    }
+
+    /**
+     * Get the factory for item views. It is only created when item views are needed, so
+     * filtering the catalog does not need an inflater.
+     * @return the factory for item views
+     */
+    @NonNull
+    private DrawerItemViewFactory getItemViewFactory() {
+        if (itemViewFactory == null) {
+            itemViewFactory = new DrawerItemViewFactory(getContext(), ITEM_RESOURCE_IDS);
+        }
+
+        return itemViewFactory;
+    }
+
+    @Override
+    public int getItemViewType(final int position) {
+        // Must be below the view type count, views of the other layout are replaced by the view holder check
+        return LowRamUtil.isLowRamDevice() ? 0 : viewType;
+    }
+
+    /**
+     * Switch the view type of all items. The recycled views of the previous type are kept by the
+     * abs list view, so switching back does not inflate again.
+     * @param viewType the new view type
+     */
+    public void setViewType(final int viewType) {
+        if (this.viewType == viewType || viewType < 0 || viewType >= ITEM_RESOURCE_IDS.length) {
+            return;
+        }
+
+        this.viewType = viewType;
+
+        prepareItemViews();
+        notifyDataSetChanged();
+    }
+
     @Override
     public int getPosition(@Nullable final ApplicationModel item) {
         if (item != null) {
@@ -204,11 +380,100 @@ public final class DrawerListAdapter extends ArrayAdapter<ApplicationModel> impl
         unfilteredList.clear();
     }
 
+    /**
+     * Return a copy of all application models, e. g. to compare a new catalog against.
+     * @return a new list of all application models
+     */
+    @NonNull
+    public List<ApplicationModel> getApplicationModels() {
+        return new ArrayList<>(unfilteredList);
+    }
+
+    /**
+     * Replace all application models at once. The application models have to be sorted already.
+     * @param collection the new application models
+     */
+    public void replaceAll(@NonNull final Collection<? extends ApplicationModel> collection) {
+        unfilteredList.clear();
+        unfilteredList.addAll(collection);
+    }
+
     @Override
     public void sort(@NonNull final Comparator<? super ApplicationModel> comparator) {
         Collections.sort(unfilteredList, comparator);
     }
 
+    /**
+     * Add application models at their position in the already sorted list.
+     * @param collection the application models to add
+     * @param comparator the comparator the list is sorted with
+     */
+    public void addAllSorted(@NonNull final Collection<? extends ApplicationModel> collection, @NonNull final Comparator<? super ApplicationModel> comparator) {
+        for (final ApplicationModel applicationModel : collection) {
+            final int index = Collections.binarySearch(unfilteredList, applicationModel, comparator);
+
+            if (index < 0) {
+                unfilteredList.add(-index - 1, applicationModel);
+            } else {
+                unfilteredList.add(index, applicationModel);
+            }
+        }
+    }
+
+    /**
+     * Apply changed labels. Only the changed application models are sorted again, as the
+     * rest of the list stays sorted.
+     * @param labels the new labels per application model
+     * @param comparator the comparator the list is sorted with
+     */
+    public void updateLabels(@NonNull final Map<ApplicationModel, String> labels, @NonNull final Comparator<? super ApplicationModel> comparator) {
+        final List<ApplicationModel> changedApplicationModels = new ArrayList<>(labels.size());
+        final Iterator<ApplicationModel> iterator = unfilteredList.iterator();
+
+        while (iterator.hasNext()) {
+            final ApplicationModel applicationModel = iterator.next();
+
+            if (labels.containsKey(applicationModel)) {
+                iterator.remove();
+                changedApplicationModels.add(applicationModel);
+            }
+        }
+
+        for (final ApplicationModel applicationModel : changedApplicationModels) {
+            applicationModel.label = labels.get(applicationModel);
+            applicationModel.precomputedLabel = null;
+        }
+
+        isContentChanged = isContentChanged || !changedApplicationModels.isEmpty();
+
+        addAllSorted(changedApplicationModels, comparator);
+    }
+
+    /**
+     * Drop the icons of a package shown by the drawer, so they are loaded again on the next layout.
+     * @param packageName the package name or <code>null</code>, to drop all icons
+     */
+    public void invalidateIcons(@Nullable final String packageName) {
+        iconBinder.removePackage(packageName);
+    }
+
+    /**
+     * Remove all application models of a package in a profile.
+     * @param packageName the package name
+     * @param userHandle the profile, <code>null</code> for the profile of this process
+     */
+    public void removePackage(@NonNull final String packageName, @Nullable final UserHandle userHandle) {
+        final Iterator<ApplicationModel> iterator = unfilteredList.iterator();
+
+        while (iterator.hasNext()) {
+            final ApplicationModel applicationModel = iterator.next();
+
+            if (packageName.equals(applicationModel.packageName) && UserHandleUtil.isSameUserHandle(userHandle, applicationModel.userHandle)) {
+                iterator.remove();
+            }
+        }
+    }
+
     @Override
     public boolean onQueryTextSubmit(@Nullable final String query) {
         if (query == null) {
@@ -224,6 +489,8 @@ public final class DrawerListAdapter extends ArrayAdapter<ApplicationModel> impl
 
     @Override
     public boolean onQueryTextChange(@Nullable final String newText) {
+        FrameMetricsCollector.markOperation(FrameMetricsCollector.OPERATION_SEARCH);
+
         return onQueryTextSubmit(newText);
     }
 
@@ -276,9 +543,17 @@ public final class DrawerListAdapter extends ArrayAdapter<ApplicationModel> impl
     }
 
     /**
-     * Update the filtered list.
+     * Update the filtered list. Observers are only notified, if the filtered list differs from the
+     * previous one.
      */
     public void filter() {
+        FrameMetricsCollector.markOperation(FrameMetricsCollector.OPERATION_FILTER);
+
+        // Swap the lists to compare against the previous list without allocating
+        final List<ApplicationModel> swapList = previousFilteredList;
+        previousFilteredList = filteredList;
+        filteredList = swapList;
+
         filteredList.clear();
         indexMap.clear();
         sections.clear();
@@ -297,7 +572,7 @@ public final class DrawerListAdapter extends ArrayAdapter<ApplicationModel> impl
                 addSection(applicationModel.label, i);
             }
 
-            notifyDataSetChanged();
+            notifyDataSetChangedIfDifferent();
 
             return;
         }
@@ -333,7 +608,40 @@ public final class DrawerListAdapter extends ArrayAdapter<ApplicationModel> impl
             }
         }
 
-        notifyDataSetChanged();
+        notifyDataSetChangedIfDifferent();
+    }
+
+    /**
+     * Notify the observers, if the filtered list contains different items than the previous one.
+     * Abs list views cannot be notified about single items, but with stable ids, they keep the views
+     * of unchanged items.
+     */
+    private void notifyDataSetChangedIfDifferent() {
+        if (isContentChanged || !isSameItems(previousFilteredList, filteredList)) {
+            isContentChanged = false;
+
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Check if two lists contain the same items in the same order.
+     * @param list1 the first list
+     * @param list2 the second list
+     * @return <code>true</code>, if all items are the same application models
+     */
+    private boolean isSameItems(@NonNull final List<ApplicationModel> list1, @NonNull final List<ApplicationModel> list2) {
+        if (list1.size() != list2.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < list1.size(); i++) {
+            if (list1.get(i) != list2.get(i)) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
     /**
@@ -357,22 +665,6 @@ public final class DrawerListAdapter extends ArrayAdapter<ApplicationModel> impl
         }
     }
 
-    /**
-     * Return the resource for the view.
-     * @param view the view
-     * @return the resource id or <code>-1</code>, if none was found
-     */
-    private int getResource(@NonNull final View view) {
-        switch (view.getId()) {
-            case R.id.gvApplications:
-                return ITEM_RESOURCE_IDS[0];
-            case R.id.lvApplications:
-                return ITEM_RESOURCE_IDS[1];
-            default:
-                return -1;
-        }
-    }
-
     /**
      * View holder class.
      */
@@ -381,5 +673,13 @@ public final class DrawerListAdapter extends ArrayAdapter<ApplicationModel> impl
         @Nullable ImageView icon;
         /** The view for the label. */
         @Nullable TextView name;
+        /** The bound application model. */
+        @Nullable ApplicationModel applicationModel;
+        /** The label of the bound application model. */
+        @Nullable String label;
+        /** The view type of the view. */
+        int viewType;
+        /** The text metrics of the view for the label, only on Android Q and later. */
+        @Nullable Object textMetricsParams;
     }
 }
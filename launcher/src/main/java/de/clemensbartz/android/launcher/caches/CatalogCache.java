@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.clemensbartz.android.launcher.caches;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import de.clemensbartz.android.launcher.controllers.DockController;
+import de.clemensbartz.android.launcher.models.ApplicationModel;
+
+/**
+ * Memory cache for the catalog of the drawer and the items of the dock, shared by all activities
+ * of the process. A recreated activity, e. g. after switching the night mode, attaches its adapter
+ * and dock to this state and shows them at once, before they are loaded again.
+ * <br/>
+ * The catalog is sorted and labelled for one locale, so it is dropped when the locale changes.
+ * Changes of packages are applied by the adapter to the catalog itself. The dock items are
+ * updated by the dock controller.
+ * <br/>
+ * This class is intended to live forever and must only be used on the main thread.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class CatalogCache {
+
+    /** The instance of this class. */
+    @Nullable
+    private static CatalogCache instance = null;
+
+    /** The sorted application models of the drawer. */
+    @NonNull
+    private final List<ApplicationModel> applicationModels = new ArrayList<>();
+    /** The application models of the dock per index. */
+    @NonNull
+    private final ApplicationModel[] dockApplicationModels = new ApplicationModel[DockController.NUMBER_OF_ITEMS];
+    /** The locale of the application models. */
+    @Nullable
+    private Locale locale = null;
+
+    /**
+     * Hidden constructor.
+     */
+    private CatalogCache() {
+
+    }
+
+    /**
+     *
+     * @return the instance of the cache
+     */
+    @NonNull
+    public static CatalogCache getInstance() {
+        if (instance == null) {
+            instance = new CatalogCache();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Get the catalog of the drawer. The returned list is the catalog itself and is meant to be
+     * held by the adapter of the drawer.
+     * @param locale the current locale
+     * @return the catalog, which is empty if it has been loaded in another locale
+     */
+    @NonNull
+    public List<ApplicationModel> getApplicationModels(@NonNull final Locale locale) {
+        if (!locale.equals(this.locale)) {
+            this.locale = locale;
+            applicationModels.clear();
+        }
+
+        return applicationModels;
+    }
+
+    /**
+     * Get the application model of the dock.
+     * @param index the valid index
+     * @return the application model or <code>null</code>, if the index is empty
+     */
+    @Nullable
+    public ApplicationModel getDockApplicationModel(final int index) {
+        return dockApplicationModels[index];
+    }
+
+    /**
+     * Set the application model of the dock.
+     * @param index the valid index
+     * @param applicationModel the application model or <code>null</code>, if the index is empty
+     */
+    public void setDockApplicationModel(final int index, @Nullable final ApplicationModel applicationModel) {
+        dockApplicationModels[index] = applicationModel;
+    }
+
+    /**
+     * Drop the catalog and the dock items.
+     */
+    public void clear() {
+        locale = null;
+        applicationModels.clear();
+
+        for (int i = 0; i < dockApplicationModels.length; i++) {
+            dockApplicationModels[i] = null;
+        }
+    }
+}
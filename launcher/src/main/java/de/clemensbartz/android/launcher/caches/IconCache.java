@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.clemensbartz.android.launcher.caches;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.PrintWriter;
+
+import de.clemensbartz.android.launcher.models.ApplicationModel;
+import de.clemensbartz.android.launcher.util.LowRamUtil;
+import de.clemensbartz.android.launcher.util.MemoryCoordinator;
+import de.clemensbartz.android.launcher.util.UserHandleUtil;
+
+/**
+ * Memory cache for the icons of applications, shared by all activities of the process. Only the
+ * constant states of the icons are kept, so every view gets its own drawable.
+ * <br/>
+ * The cache is dropped when the density or the night mode changes, and the icons of a package are
+ * dropped when the package changes.
+ * <br/>
+ * This class is intended to live forever.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class IconCache implements MemoryCoordinator.Trimmable {
+
+    /** The divisor of the maximum memory of the process for the size of the cache. */
+    private static final int MEMORY_DIVISOR = 8;
+    /** The divisor of the maximum memory of the process for the size of the cache in the low-RAM mode. */
+    private static final int LOW_RAM_MEMORY_DIVISOR = 32;
+    /** Bytes per kilobyte. */
+    private static final int KILOBYTE = 1024;
+    /** The number of bytes per pixel of an icon, if its size is not known. */
+    private static final int BYTES_PER_PIXEL = 4;
+    /** The separator between package name, class name and profile in keys. */
+    @NonNull
+    private static final String SEPARATOR = "|";
+
+    /** The instance of this class. */
+    @Nullable
+    private static IconCache instance = null;
+
+    /** The constant states of the icons per key of component and profile. */
+    @NonNull
+    private final LruCache<String, Drawable.ConstantState> icons = new LruCache<String, Drawable.ConstantState>((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / (LowRamUtil.isLowRamDevice() ? LOW_RAM_MEMORY_DIVISOR : MEMORY_DIVISOR))) {
+        @Override
+        protected int sizeOf(@NonNull final String key, @NonNull final Drawable.ConstantState value) {
+            return getByteCount(value);
+        }
+    };
+
+    /** The density the icons were loaded in. */
+    private int densityDpi = Configuration.DENSITY_DPI_UNDEFINED;
+    /** The night mode the icons were loaded in. */
+    private int nightMode = Configuration.UI_MODE_NIGHT_UNDEFINED;
+
+    /**
+     * Hidden constructor.
+     */
+    private IconCache() {
+
+    }
+
+    /**
+     *
+     * @return the instance of the cache
+     */
+    @NonNull
+    public static synchronized IconCache getInstance() {
+        if (instance == null) {
+            instance = new IconCache();
+            MemoryCoordinator.getInstance().register(instance);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Drop all icons, if they have been loaded in another density or night mode.
+     * @param configuration the current configuration
+     */
+    public synchronized void validate(@NonNull final Configuration configuration) {
+        final int newNightMode = configuration.uiMode & Configuration.UI_MODE_NIGHT_MASK;
+
+        if (configuration.densityDpi != densityDpi || newNightMode != nightMode) {
+            densityDpi = configuration.densityDpi;
+            nightMode = newNightMode;
+            icons.evictAll();
+        }
+    }
+
+    /**
+     * Get a new drawable of a cached icon.
+     * @param applicationModel the application model
+     * @param resources the resources to create the drawable for
+     * @return the drawable or <code>null</code>, if the icon is not cached
+     */
+    @Nullable
+    public Drawable get(@NonNull final ApplicationModel applicationModel, @NonNull final Resources resources) {
+        final String key = getKey(applicationModel);
+        final Drawable.ConstantState constantState = (key != null) ? icons.get(key) : null;
+
+        return (constantState != null) ? constantState.newDrawable(resources) : null;
+    }
+
+    /**
+     * Cache an icon. Icons without a constant state are not cached.
+     * @param applicationModel the application model
+     * @param drawable the icon
+     */
+    public void put(@NonNull final ApplicationModel applicationModel, @NonNull final Drawable drawable) {
+        final String key = getKey(applicationModel);
+        final Drawable.ConstantState constantState = drawable.getConstantState();
+
+        if (key != null && constantState != null) {
+            icons.put(key, constantState);
+        }
+    }
+
+    /**
+     * Drop the icons of a package in all profiles.
+     * @param packageName the package name
+     */
+    public void removePackage(@NonNull final String packageName) {
+        final String prefix = packageName + SEPARATOR;
+
+        for (final String key : icons.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                icons.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Drop all icons.
+     */
+    public void clear() {
+        icons.evictAll();
+    }
+
+    @Override
+    public long trim(final int policy) {
+        final int size = icons.size();
+
+        if (policy == MemoryCoordinator.POLICY_CLEAR) {
+            icons.evictAll();
+        } else if (policy == MemoryCoordinator.POLICY_TRIM) {
+            // Keep the most recently used half, e. g. the icons of the dock and the first page
+            icons.trimToSize(size / 2);
+        }
+
+        return size - icons.size();
+    }
+
+    /**
+     * Print the size of the cache.
+     * @param prefix the prefix for every line
+     * @param writer the writer
+     */
+    public void dump(@NonNull final String prefix, @NonNull final PrintWriter writer) {
+        writer.print(prefix);
+        writer.print("Icon cache (KB): size=");
+        writer.print(icons.size() / KILOBYTE);
+        writer.print(" max=");
+        writer.print(icons.maxSize() / KILOBYTE);
+        writer.print(" icons=");
+        writer.println(icons.snapshot().size());
+    }
+
+    /**
+     * Create the key for an application model.
+     * @param applicationModel the application model
+     * @return the key or <code>null</code>, if the model has no component
+     */
+    @Nullable
+    private static String getKey(@NonNull final ApplicationModel applicationModel) {
+        if (applicationModel.packageName == null || applicationModel.className == null) {
+            return null;
+        }
+
+        // The component does not change, so the key is only created once
+        if (applicationModel.iconKey == null) {
+            applicationModel.iconKey = applicationModel.packageName + SEPARATOR + applicationModel.className + UserHandleUtil.getKeySuffix(applicationModel, SEPARATOR);
+        }
+
+        return applicationModel.iconKey;
+    }
+
+    /**
+     * Estimate the number of bytes of an icon.
+     * @param constantState the constant state of the icon
+     * @return the number of bytes
+     */
+    private static int getByteCount(@NonNull final Drawable.ConstantState constantState) {
+        final Drawable drawable = constantState.newDrawable();
+
+        if (drawable instanceof BitmapDrawable) {
+            final Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+
+            if (bitmap != null) {
+                return bitmap.getRowBytes() * bitmap.getHeight();
+            }
+        }
+
+        return Math.max(1, drawable.getIntrinsicWidth() * drawable.getIntrinsicHeight() * BYTES_PER_PIXEL);
+    }
+}
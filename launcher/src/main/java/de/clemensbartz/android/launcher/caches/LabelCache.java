@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.caches;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
+
+import de.clemensbartz.android.launcher.models.ApplicationModel;
+import de.clemensbartz.android.launcher.util.UserHandleUtil;
+
+/**
+ * Persistent cache for the labels of applications. Loading a label may load the resources of
+ * another app, so the drawer is first shown with the labels of the previous run and refreshed
+ * afterwards. The cache is dropped when the locale changes.
+ * <br/>
+ * This class is intended to live forever.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class LabelCache {
+
+    /** The name of the shared preferences file. */
+    @NonNull
+    private static final String PREFERENCES_NAME = "labels";
+    /** The key for the locale the labels were loaded in. */
+    @NonNull
+    private static final String KEY_LOCALE = "locale";
+    /** The separator between package name, class name and profile in keys. */
+    @NonNull
+    private static final String SEPARATOR = "|";
+
+    /** The instance of this class. */
+    @Nullable
+    private static LabelCache instance = null;
+
+    /** The preferences holding the labels. */
+    @NonNull
+    private final SharedPreferences preferences;
+
+    /**
+     * Create a new cache.
+     * @param preferences the preferences holding the labels
+     */
+    private LabelCache(@NonNull final SharedPreferences preferences) {
+        this.preferences = preferences;
+    }
+
+    /**
+     * Get the cache. The first call reads from disk, so it should not be made on the main thread.
+     * @param context the context
+     * @return the instance of the cache
+     */
+    @NonNull
+    public static synchronized LabelCache getInstance(@NonNull final Context context) {
+        if (instance == null) {
+            instance = new LabelCache(context.getApplicationContext().getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE));
+        }
+
+        return instance;
+    }
+
+    /**
+     * Create the key for an application model.
+     * @param applicationModel the application model
+     * @return the key or <code>null</code>, if the model has no component
+     */
+    @Nullable
+    public static String getKey(@NonNull final ApplicationModel applicationModel) {
+        if (applicationModel.packageName == null || applicationModel.className == null) {
+            return null;
+        }
+
+        return applicationModel.packageName + SEPARATOR + applicationModel.className + UserHandleUtil.getKeySuffix(applicationModel, SEPARATOR);
+    }
+
+    /**
+     * Check if the labels have been loaded in a locale. Otherwise, all labels are dropped.
+     * @param locale the current locale
+     * @return <code>true</code>, if the labels can be used, otherwise <code>false</code>
+     */
+    public boolean validate(@NonNull final Locale locale) {
+        final String localeString = locale.toString();
+
+        if (localeString.equals(preferences.getString(KEY_LOCALE, null))) {
+            return true;
+        }
+
+        preferences.edit().clear().putString(KEY_LOCALE, localeString).apply();
+
+        return false;
+    }
+
+    /**
+     * Get the cached label for an application model.
+     * @param applicationModel the application model
+     * @return the label or <code>null</code>, if it is not cached
+     */
+    @Nullable
+    public String get(@NonNull final ApplicationModel applicationModel) {
+        final String key = getKey(applicationModel);
+
+        if (key == null) {
+            return null;
+        }
+
+        return preferences.getString(key, null);
+    }
+
+    /**
+     * Replace all cached labels, so labels of removed apps are dropped as well. Only added, changed
+     * and removed labels are written, and nothing is written if no label changed.
+     * @param locale the locale the labels were loaded in
+     * @param labels the labels per key
+     */
+    public void replaceAll(@NonNull final Locale locale, @NonNull final Map<String, String> labels) {
+        final Map<String, ?> cachedLabels = preferences.getAll();
+        final String localeString = locale.toString();
+        SharedPreferences.Editor editor = null;
+
+        if (!localeString.equals(cachedLabels.get(KEY_LOCALE))) {
+            editor = preferences.edit();
+            editor.putString(KEY_LOCALE, localeString);
+        }
+
+        for (final Map.Entry<String, String> entry : labels.entrySet()) {
+            final Object cachedLabel = cachedLabels.get(entry.getKey());
+
+            if (entry.getValue() == null ? cachedLabel != null : !entry.getValue().equals(cachedLabel)) {
+                if (editor == null) {
+                    editor = preferences.edit();
+                }
+
+                editor.putString(entry.getKey(), entry.getValue());
+            }
+        }
+
+        for (final String key : cachedLabels.keySet()) {
+            if (!KEY_LOCALE.equals(key) && !labels.containsKey(key)) {
+                if (editor == null) {
+                    editor = preferences.edit();
+                }
+
+                editor.remove(key);
+            }
+        }
+
+        // Do not rewrite the file, if nothing changed
+        if (editor != null) {
+            editor.apply();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.caches;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.UserHandle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import de.clemensbartz.android.launcher.util.UserHandleUtil;
+
+/**
+ * Persistent cache for the number of launches per package of the profile of this process.
+ * The most launched packages are warmed on start, so the counts have to survive the process.
+ * <br/>
+ * This class is intended to live forever.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class LaunchCountCache {
+
+    /** The name of the shared preferences file. */
+    @NonNull
+    private static final String PREFERENCES_NAME = "launchCounts";
+
+    /** The instance of this class. */
+    @Nullable
+    private static LaunchCountCache instance = null;
+
+    /** The preferences holding the launch counts per package name. */
+    @NonNull
+    private final SharedPreferences preferences;
+
+    /**
+     * Create a new cache.
+     * @param preferences the preferences holding the launch counts
+     */
+    private LaunchCountCache(@NonNull final SharedPreferences preferences) {
+        this.preferences = preferences;
+    }
+
+    /**
+     * Get the cache. The first call reads from disk, so it should not be made on the main thread.
+     * @param context the context
+     * @return the instance of the cache
+     */
+    @NonNull
+    public static synchronized LaunchCountCache getInstance(@NonNull final Context context) {
+        if (instance == null) {
+            instance = new LaunchCountCache(context.getApplicationContext().getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE));
+        }
+
+        return instance;
+    }
+
+    /**
+     * Record the launch of a package. Launches in other profiles are not counted.
+     * @param packageName the package name
+     * @param userHandle the profile, <code>null</code> for the profile of this process
+     */
+    public synchronized void recordLaunch(@Nullable final String packageName, @Nullable final UserHandle userHandle) {
+        if (packageName == null || !UserHandleUtil.isMyUserHandle(userHandle)) {
+            return;
+        }
+
+        preferences.edit().putInt(packageName, preferences.getInt(packageName, 0) + 1).apply();
+    }
+
+    /**
+     * Remove the launch count of a package, e. g. after it has been uninstalled.
+     * @param packageName the package name
+     */
+    public synchronized void remove(@NonNull final String packageName) {
+        if (preferences.contains(packageName)) {
+            preferences.edit().remove(packageName).apply();
+        }
+    }
+
+    /**
+     *
+     * @param count the maximum number of package names
+     * @return the most launched package names, most launched first
+     */
+    @NonNull
+    public synchronized String[] getTopLaunchedPackageNames(final int count) {
+        final List<Map.Entry<String, ?>> entries = new ArrayList<Map.Entry<String, ?>>(preferences.getAll().entrySet());
+
+        Collections.sort(entries, new Comparator<Map.Entry<String, ?>>() {
+            @Override
+            public int compare(final Map.Entry<String, ?> o1, final Map.Entry<String, ?> o2) {
+                return ((Integer) o2.getValue()).compareTo((Integer) o1.getValue());
+            }
+        });
+
+        final int size = Math.min(count, entries.size());
+        final String[] packageNames = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            packageNames[i] = entries.get(i).getKey();
+        }
+
+        return packageNames;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.clemensbartz.android.launcher.caches;
+
+import android.annotation.TargetApi;
+import android.content.ComponentName;
+import android.content.pm.LauncherActivityInfo;
+import android.content.pm.LauncherApps;
+import android.os.Build;
+import android.os.UserHandle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache for the enabled state of packages of a profile during one enumeration. Packages with
+ * several launcher activities are only queried once, and activities of disabled packages are
+ * not queried at all. Every query to {@link LauncherApps} is counted, so the calls of an
+ * enumeration can be verified.
+ * <br/>
+ * This class is intended to live for one enumeration of one profile and may be used by several
+ * threads. Then, a package may be queried more than once, if it is checked by several threads at
+ * the same time. The counter may be shared between the caches of several profiles.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+@TargetApi(Build.VERSION_CODES.Q)
+@RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+public final class PackageStateCache {
+
+    /** The launcher apps instance to query on. */
+    @NonNull
+    private final LauncherApps launcherApps;
+    /** The profile to query for. */
+    @NonNull
+    private final UserHandle userHandle;
+    /** The serial number of the profile. */
+    private final long userSerialNumber;
+    /** The number of calls to launcher apps. */
+    @NonNull
+    private final AtomicInteger callCount;
+    /** The enabled state per package name. */
+    @NonNull
+    private final Map<String, Boolean> packageEnabledStates = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new cache for one enumeration of a profile.
+     * @param launcherApps the launcher apps instance to query on
+     * @param userHandle the profile
+     * @param userSerialNumber the serial number of the profile
+     * @param callCount the counter for calls to launcher apps
+     */
+    public PackageStateCache(@NonNull final LauncherApps launcherApps, @NonNull final UserHandle userHandle, final long userSerialNumber, @NonNull final AtomicInteger callCount) {
+        this.launcherApps = launcherApps;
+        this.userHandle = userHandle;
+        this.userSerialNumber = userSerialNumber;
+        this.callCount = callCount;
+    }
+
+    /**
+     *
+     * @return the profile
+     */
+    @NonNull
+    public UserHandle getUserHandle() {
+        return userHandle;
+    }
+
+    /**
+     *
+     * @return the serial number of the profile
+     */
+    public long getUserSerialNumber() {
+        return userSerialNumber;
+    }
+
+    /**
+     * Return the launcher activity infos of the profile.
+     * @param packageName the package name or <code>null</code> for all packages
+     * @return the launcher activity infos
+     */
+    @NonNull
+    public List<LauncherActivityInfo> getActivityList(@Nullable final String packageName) {
+        callCount.incrementAndGet();
+
+        return launcherApps.getActivityList(packageName, userHandle);
+    }
+
+    /**
+     * Check if a package is enabled. The state is only queried once per package and only on
+     * devices since Android Q, otherwise all packages are enabled.
+     * @param packageName the package name
+     * @return <code>true</code>, if the package is enabled
+     */
+    public boolean isPackageEnabled(@NonNull final String packageName) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return true;
+        }
+
+        Boolean packageEnabled = packageEnabledStates.get(packageName);
+
+        if (packageEnabled == null) {
+            callCount.incrementAndGet();
+            packageEnabled = launcherApps.isPackageEnabled(packageName, userHandle);
+            packageEnabledStates.put(packageName, packageEnabled);
+        }
+
+        return packageEnabled;
+    }
+
+    /**
+     * Check if an activity is enabled. The state is only queried on devices since Android Q,
+     * otherwise all activities are enabled.
+     * @param componentName the component name of the activity
+     * @return <code>true</code>, if the activity is enabled
+     */
+    public boolean isActivityEnabled(@NonNull final ComponentName componentName) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return true;
+        }
+
+        callCount.incrementAndGet();
+
+        return launcherApps.isActivityEnabled(componentName, userHandle);
+    }
+}
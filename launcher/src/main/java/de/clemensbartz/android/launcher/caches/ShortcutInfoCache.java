@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.caches;
+
+import android.annotation.TargetApi;
+import android.content.pm.LauncherApps;
+import android.content.pm.ShortcutInfo;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.os.UserHandle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import de.clemensbartz.android.launcher.tasks.LoadShortcutInfosTask;
+import de.clemensbartz.android.launcher.util.MemoryCoordinator;
+import de.clemensbartz.android.launcher.util.UserHandleUtil;
+
+/**
+ * Cache for shortcut infos per package and profile. Context menus read from this cache only, so building
+ * a menu never waits for a {@link LauncherApps#getShortcuts} query. Packages are warmed
+ * in the background, e. g. for dock items and frequently launched apps.
+ * <br/>
+ * This class is intended to live forever.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+@TargetApi(Build.VERSION_CODES.N_MR1)
+@RequiresApi(Build.VERSION_CODES.N_MR1)
+public final class ShortcutInfoCache implements MemoryCoordinator.Trimmable {
+
+    /** The maximum number of packages to keep shortcuts for. */
+    private static final int MAXIMUM_SIZE = 32;
+    /** The load factor of the map. */
+    private static final float LOAD_FACTOR = 0.75f;
+    /** The estimated number of bytes of a shortcut info. */
+    private static final long ESTIMATED_BYTES_PER_SHORTCUT_INFO = 1024L;
+    /** The number of top launched packages to warm, see {@link LaunchCountCache}. */
+    public static final int NUMBER_OF_TOP_LAUNCHED = 8;
+    /** The separator between package name and profile in keys. */
+    @NonNull
+    private static final String SEPARATOR = "|";
+
+    /** The instance of this class. */
+    @Nullable
+    private static ShortcutInfoCache instance = null;
+
+    /**
+     * Listener for the end of warming packages.
+     */
+    public interface OnWarmedListener {
+
+        /**
+         * Called on the main thread after the packages have been warmed. Packages are not cached,
+         * if the launcher has no permission to query shortcuts.
+         */
+        void onWarmed();
+    }
+
+    /** The shortcut infos per key of package name and profile, in least recently used order. */
+    @NonNull
+    private final LinkedHashMap<String, List<ShortcutInfo>> shortcutInfos = new LinkedHashMap<String, List<ShortcutInfo>>(MAXIMUM_SIZE, LOAD_FACTOR, true) {
+        @Override
+        protected boolean removeEldestEntry(@NonNull final Map.Entry<String, List<ShortcutInfo>> eldest) {
+            return size() > MAXIMUM_SIZE;
+        }
+    };
+
+    /**
+     * Hidden constructor.
+     */
+    private ShortcutInfoCache() {
+
+    }
+
+    /**
+     *
+     * @return the instance of the cache
+     */
+    @NonNull
+    public static synchronized ShortcutInfoCache getInstance() {
+        if (instance == null) {
+            instance = new ShortcutInfoCache();
+            MemoryCoordinator.getInstance().register(instance);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Create the key for a package in a profile.
+     * @param packageName the package name
+     * @param userHandle the profile, <code>null</code> for the profile of this process
+     * @return the key
+     */
+    @Nullable
+    private static String getKey(@Nullable final String packageName, @Nullable final UserHandle userHandle) {
+        if (packageName == null || UserHandleUtil.isMyUserHandle(userHandle)) {
+            return packageName;
+        }
+
+        return packageName + SEPARATOR + userHandle.hashCode();
+    }
+
+    /**
+     * Get the cached shortcut infos for a package.
+     * @param packageName the package name
+     * @param userHandle the profile, <code>null</code> for the profile of this process
+     * @return the shortcut infos or <code>null</code>, if the package has not been warmed yet
+     */
+    @Nullable
+    public synchronized List<ShortcutInfo> get(@Nullable final String packageName, @Nullable final UserHandle userHandle) {
+        return shortcutInfos.get(getKey(packageName, userHandle));
+    }
+
+    /**
+     * Set the shortcut infos for a package.
+     * @param packageName the package name
+     * @param userHandle the profile, <code>null</code> for the profile of this process
+     * @param packageShortcutInfos the shortcut infos
+     */
+    public synchronized void put(@NonNull final String packageName, @Nullable final UserHandle userHandle, @NonNull final List<ShortcutInfo> packageShortcutInfos) {
+        shortcutInfos.put(getKey(packageName, userHandle), Collections.unmodifiableList(packageShortcutInfos));
+    }
+
+    /**
+     * Check if shortcuts for a package are cached.
+     * @param packageName the package name
+     * @param userHandle the profile, <code>null</code> for the profile of this process
+     * @return <code>true</code>, if it is cached, otherwise <code>false</code>
+     */
+    public synchronized boolean contains(@Nullable final String packageName, @Nullable final UserHandle userHandle) {
+        return shortcutInfos.containsKey(getKey(packageName, userHandle));
+    }
+
+    /**
+     * Remove the shortcut infos for a package.
+     * @param packageName the package name
+     * @param userHandle the profile, <code>null</code> for the profile of this process
+     */
+    public synchronized void remove(@Nullable final String packageName, @Nullable final UserHandle userHandle) {
+        shortcutInfos.remove(getKey(packageName, userHandle));
+    }
+
+    /**
+     * Remove all shortcut infos.
+     */
+    public synchronized void clear() {
+        shortcutInfos.clear();
+    }
+
+    @Override
+    public synchronized long trim(final int policy) {
+        if (policy < MemoryCoordinator.POLICY_TRIM) {
+            return 0;
+        }
+
+        long count = 0;
+
+        for (final List<ShortcutInfo> packageShortcutInfos : shortcutInfos.values()) {
+            count += packageShortcutInfos.size();
+        }
+
+        // Shortcuts are warmed again when a context menu is opened
+        shortcutInfos.clear();
+
+        return count * ESTIMATED_BYTES_PER_SHORTCUT_INFO;
+    }
+
+    /**
+     * Load shortcut infos for packages in the background.
+     * @param launcherApps the launcher apps to query
+     * @param userHandle the profile, <code>null</code> for the profile of this process
+     * @param packageNames the package names
+     */
+    public void warm(@Nullable final LauncherApps launcherApps, @Nullable final UserHandle userHandle, @Nullable final String... packageNames) {
+        warm(launcherApps, userHandle, null, packageNames);
+    }
+
+    /**
+     * Load shortcut infos for packages in the background.
+     * @param launcherApps the launcher apps to query
+     * @param userHandle the profile, <code>null</code> for the profile of this process
+     * @param onWarmedListener the listener to notify on the main thread after loading, may be <code>null</code>
+     * @param packageNames the package names
+     */
+    public void warm(@Nullable final LauncherApps launcherApps, @Nullable final UserHandle userHandle, @Nullable final OnWarmedListener onWarmedListener, @Nullable final String... packageNames) {
+        if (launcherApps == null || packageNames == null || packageNames.length == 0) {
+            return;
+        }
+
+        final LoadShortcutInfosTask task = new LoadShortcutInfosTask(launcherApps, userHandle, this, onWarmedListener);
+        try {
+            // Try to load via parallel execution
+            task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, packageNames);
+        } catch (final RejectedExecutionException exception) {
+            // Otherwise (e. g. queue is full) load via serial execution
+            task.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR, packageNames);
+        }
+    }
+}
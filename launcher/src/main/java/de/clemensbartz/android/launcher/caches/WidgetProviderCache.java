@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.caches;
+
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProviderInfo;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.AsyncTask;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import de.clemensbartz.android.launcher.comparators.WidgetProviderModelComparator;
+import de.clemensbartz.android.launcher.models.WidgetProviderModel;
+import de.clemensbartz.android.launcher.tasks.LoadWidgetProviderModelsTask;
+import de.clemensbartz.android.launcher.util.IntentUtil;
+import de.clemensbartz.android.launcher.util.MemoryCoordinator;
+
+/**
+ * Cache for the sorted list of widget providers, so the widget picker opens without querying
+ * the system. The list is dropped on package changes and loaded again in the background,
+ * if it has been loaded before.
+ * <br/>
+ * This class is intended to live forever.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class WidgetProviderCache implements MemoryCoordinator.Trimmable {
+
+    /** The estimated number of bytes of a widget provider model. */
+    private static final long ESTIMATED_BYTES_PER_WIDGET_PROVIDER = 512L;
+
+    /** The instance of this class. */
+    @Nullable
+    private static WidgetProviderCache instance = null;
+
+    /** The sorted widget provider models or <code>null</code>, if they have not been loaded. */
+    @Nullable
+    private List<WidgetProviderModel> widgetProviderModels = null;
+    /** The locale the widget provider models were sorted in. */
+    @Nullable
+    private Locale locale = null;
+    /** The generation, increased on every invalidation to drop results of outdated loads. */
+    private int generation = 0;
+
+    /**
+     * Hidden constructor.
+     */
+    private WidgetProviderCache() {
+
+    }
+
+    /**
+     *
+     * @return the instance of the cache
+     */
+    @NonNull
+    public static synchronized WidgetProviderCache getInstance() {
+        if (instance == null) {
+            instance = new WidgetProviderCache();
+            MemoryCoordinator.getInstance().register(instance);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Get the cached widget provider models.
+     * @param currentLocale the current locale
+     * @return the sorted widget provider models or <code>null</code>, if they have not been loaded
+     * in this locale
+     */
+    @Nullable
+    public synchronized List<WidgetProviderModel> get(@NonNull final Locale currentLocale) {
+        if (!currentLocale.equals(locale)) {
+            return null;
+        }
+
+        return widgetProviderModels;
+    }
+
+    /**
+     * Drop the cached widget provider models, e. g. after a package change. If they have been
+     * loaded before, they will be loaded again in the background.
+     * @param context the context to load in or <code>null</code>, to not load again
+     */
+    public void invalidate(@Nullable final Context context) {
+        final boolean wasLoaded;
+
+        synchronized (this) {
+            wasLoaded = widgetProviderModels != null;
+
+            widgetProviderModels = null;
+            locale = null;
+            generation++;
+        }
+
+        if (wasLoaded && context != null) {
+            refresh(context);
+        }
+    }
+
+    @Override
+    public long trim(final int policy) {
+        if (policy < MemoryCoordinator.POLICY_TRIM) {
+            return 0;
+        }
+
+        final int count;
+
+        synchronized (this) {
+            count = (widgetProviderModels != null) ? widgetProviderModels.size() : 0;
+        }
+
+        // The widget picker loads them again on demand
+        invalidate(null);
+
+        return count * ESTIMATED_BYTES_PER_WIDGET_PROVIDER;
+    }
+
+    /**
+     * Load the widget provider models again in the background. A running refresh will be cancelled.
+     * @param context the context to load in
+     */
+    public void refresh(@NonNull final Context context) {
+        if (LoadWidgetProviderModelsTask.getRunningTask() != null) {
+            LoadWidgetProviderModelsTask.getRunningTask().cancel(true);
+        }
+
+        final LoadWidgetProviderModelsTask loadWidgetProviderModelsTask = new LoadWidgetProviderModelsTask(context, this);
+        LoadWidgetProviderModelsTask.setRunningTask(loadWidgetProviderModelsTask);
+        loadWidgetProviderModelsTask.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+    }
+
+    /**
+     * Load all widget providers with an exported configure activity, sort them and put them
+     * into the cache.
+     * @param context the context
+     * @param appWidgetManager the app widget manager
+     * @param currentLocale the current locale to sort in
+     * @return the sorted widget provider models
+     */
+    @WorkerThread
+    @NonNull
+    public List<WidgetProviderModel> load(@NonNull final Context context, @NonNull final AppWidgetManager appWidgetManager, @NonNull final Locale currentLocale) {
+        final int loadGeneration;
+
+        synchronized (this) {
+            loadGeneration = generation;
+        }
+
+        final PackageManager packageManager = context.getPackageManager();
+        final List<AppWidgetProviderInfo> appWidgetProviderInfos = appWidgetManager.getInstalledProviders();
+        final List<WidgetProviderModel> models = new ArrayList<>(appWidgetProviderInfos.size());
+        final Collator collator = Collator.getInstance(currentLocale);
+
+        // Query all callable configure activities at once instead of for every provider
+        final Set<String> callableConfigureComponentNames = IntentUtil.getCallableComponentNames(packageManager, new Intent(AppWidgetManager.ACTION_APPWIDGET_CONFIGURE));
+
+        for (final AppWidgetProviderInfo appWidgetProviderInfo : appWidgetProviderInfos) {
+
+            // Check if configure activity is exported, i. e. callable
+            if (appWidgetProviderInfo.configure != null
+                    && !callableConfigureComponentNames.contains(appWidgetProviderInfo.configure.flattenToString())
+                    && !IntentUtil.isCallable(packageManager, IntentUtil.createWidgetConfigureIntent(appWidgetProviderInfo.configure))) {
+                continue;
+            }
+
+            // Fill info
+            final WidgetProviderModel model = new WidgetProviderModel();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                model.label = appWidgetProviderInfo.loadLabel(packageManager);
+            } else {
+                model.label = appWidgetProviderInfo.label;
+            }
+            model.provider = appWidgetProviderInfo.provider;
+            model.configure = appWidgetProviderInfo.configure;
+            model.collationKey = collator.getCollationKey((model.label != null) ? model.label : "");
+
+            models.add(model);
+        }
+
+        Collections.sort(models, new WidgetProviderModelComparator());
+
+        final List<WidgetProviderModel> unmodifiableModels = Collections.unmodifiableList(models);
+
+        synchronized (this) {
+            // Only cache the result, if nothing changed while loading
+            if (loadGeneration == generation) {
+                widgetProviderModels = unmodifiableModels;
+                locale = currentLocale;
+            }
+        }
+
+        return unmodifiableModels;
+    }
+}
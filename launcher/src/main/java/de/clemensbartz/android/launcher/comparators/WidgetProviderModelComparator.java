@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.comparators;
+
+import androidx.annotation.Nullable;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+import de.clemensbartz.android.launcher.models.WidgetProviderModel;
+
+/**
+ * Comparator for comparing {@link WidgetProviderModel WidgetProviderModels} by their collation keys.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class WidgetProviderModelComparator implements Comparator<WidgetProviderModel>, Serializable {
+
+    @Override
+    public int compare(@Nullable final WidgetProviderModel o1, @Nullable final WidgetProviderModel o2) {
+        if (o1 != null && o1.collationKey != null && o2 != null && o2.collationKey != null) {
+            return o1.collationKey.compareTo(o2.collationKey);
+        }
+
+        String label1 = "";
+        if (o1 != null && o1.label != null) {
+            label1 = o1.label;
+        }
+
+        String label2 = "";
+        if (o2 != null && o2.label != null) {
+            label2 = o2.label;
+        }
+
+        return label1.compareTo(label2);
+    }
+}
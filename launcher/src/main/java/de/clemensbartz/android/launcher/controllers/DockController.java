@@ -17,28 +17,37 @@
 
 package de.clemensbartz.android.launcher.controllers;
 
+import android.annotation.TargetApi;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.LauncherApps;
 import android.content.pm.PackageManager;
 import android.content.res.Configuration;
 import android.graphics.drawable.Drawable;
-import android.os.AsyncTask;
 import android.os.Build;
+import android.os.UserHandle;
+import android.os.UserManager;
 import android.view.View;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.StringTokenizer;
 
+import de.clemensbartz.android.launcher.caches.CatalogCache;
+import de.clemensbartz.android.launcher.caches.ShortcutInfoCache;
 import de.clemensbartz.android.launcher.daos.SharedPreferencesDAO;
 import de.clemensbartz.android.launcher.listeners.DockOnCreateContextMenuListener;
 import de.clemensbartz.android.launcher.models.ApplicationModel;
+import de.clemensbartz.android.launcher.models.SettingsModel;
 import de.clemensbartz.android.launcher.tasks.LoadApplicationModelIconIntoImageViewTask;
 import de.clemensbartz.android.launcher.util.IntentUtil;
+import de.clemensbartz.android.launcher.util.UserHandleUtil;
 
 /**
  * Controller for handling the dock with its items.
@@ -55,12 +64,20 @@ public final class DockController {
     /** The prefix for the pinned dock. */
     @NonNull
     public static final String PIN_PREFIX = "pin_";
-    /** The separator between package and class name. */
+    /** The separator between package name, class name and the serial number of other profiles. */
     @NonNull
     public static final String SEPARATOR = "|";
     /** The key for isShowingAllDockIcons. */
     @NonNull
     public static final String KEY_IS_SHOWING_ALL_DOCK_ICONS = "isShowingAllDockIcons";
+    /** State of a pin, which is shown. */
+    public static final int PIN_SHOWN = 0;
+    /** State of a pin, which is kept but not shown, e. g. while its profile is paused. */
+    public static final int PIN_HIDDEN = 1;
+    /** State of a pin, which is not valid anymore and is removed. */
+    public static final int PIN_REMOVED = 2;
+    /** State of a pin, which could not be checked and is left as it is. */
+    public static final int PIN_UNCHECKED = 3;
 
     /** The list of sorted dock items. */
     @NonNull
@@ -71,12 +88,18 @@ public final class DockController {
     /** The weak reference for the package manager. */
     @NonNull
     private final WeakReference<PackageManager> packageManagerWeakReference;
+    /** The weak reference for the launcher apps. */
+    @NonNull
+    private WeakReference<LauncherApps> launcherAppsWeakReference = new WeakReference<>(null);
+    /** The user manager for pins of other profiles. */
+    @Nullable
+    private final UserManager userManager;
     /** The default drawable. */
     @NonNull
     private final Drawable defaultDrawable;
 
-    /** The state of showing all icons. */
-    private boolean isShowingAllDockIcons = false;
+    /** The state of showing all icons, the default until the settings have been loaded. */
+    private boolean isShowingAllDockIcons = SettingsModel.DEFAULT.showingAllDockIcons;
 
     /**
      * Create a new controller for handling dock items.
@@ -92,20 +115,21 @@ public final class DockController {
         sharedPreferencesDAOWeakReference = new WeakReference<>(sharedPreferencesDAO);
         packageManagerWeakReference = new WeakReference<>(packageManager);
 
-        // Check for isShowingAllDockIcons
-        if (sharedPreferencesDAO != null) {
-            this.isShowingAllDockIcons = sharedPreferencesDAO.getBoolean(KEY_IS_SHOWING_ALL_DOCK_ICONS, false);
-        }
-
         // Check for existing context
         if (context == null) {
+            userManager = null;
+
             return;
         }
 
-        if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1) {
+        userManager = (UserManager) context.getSystemService(Context.USER_SERVICE);
+
+        if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             final LauncherApps launcherApps = (LauncherApps) context.getSystemService(Context.LAUNCHER_APPS_SERVICE);
 
-            if (launcherApps != null) {
+            launcherAppsWeakReference = new WeakReference<>(launcherApps);
+
+            if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1 && launcherApps != null) {
                 for (final ImageView imageView : dockItems) {
                     imageView.setOnCreateContextMenuListener(new DockOnCreateContextMenuListener(launcherApps));
                 }
@@ -118,22 +142,40 @@ public final class DockController {
                 @Override
                 public void onClick(final View view) {
                     if (view instanceof ImageView && view.getTag() instanceof ApplicationModel) {
-                        final ApplicationModel applicationModel = (ApplicationModel) view.getTag();
-
-                        if (applicationModel.packageName == null || applicationModel.className == null) {
-                            return;
-                        }
-
-                        final Intent intent = IntentUtil.newAppMainIntent(applicationModel.packageName, applicationModel.className);
-                        if (IntentUtil.isCallable(context.getPackageManager(), intent)) {
-                            context.startActivity(intent);
-                        }
+                        UserHandleUtil.startMainActivity(context, (ApplicationModel) view.getTag());
                     }
                 }
             });
         }
     }
 
+    /**
+     *
+     * @return the user manager for pins of other profiles
+     */
+    @Nullable
+    public UserManager getUserManager() {
+        return userManager;
+    }
+
+    /**
+     *
+     * @return the package manager for checking pins or <code>null</code>, if it is gone
+     */
+    @Nullable
+    public PackageManager getPackageManager() {
+        return packageManagerWeakReference.get();
+    }
+
+    /**
+     *
+     * @return the launcher apps for pins of other profiles or <code>null</code>, before Lollipop
+     */
+    @Nullable
+    public LauncherApps getLauncherApps() {
+        return launcherAppsWeakReference.get();
+    }
+
     /**
      *
      * @return whether all dock icons are to be shown
@@ -151,51 +193,199 @@ public final class DockController {
     }
 
     /**
-     * Update the dock.
+     * Update the dock. The application model is checked against the installed apps, which
+     * should be avoided on the main thread, see {@link #showPin(int, ApplicationModel, int)}.
      * @param index the index to update
      * @param applicationModel the application model to show or <code>null</code>, if none should be displayed
      */
     public void updateDock(final int index, @Nullable final ApplicationModel applicationModel) {
+        showPin(index, applicationModel, resolvePin(applicationModel, packageManagerWeakReference.get(), launcherAppsWeakReference.get(), userManager));
+    }
+
+    /**
+     * Update the dock with a pin, which has already been checked against the installed apps.
+     * @param index the index to update
+     * @param applicationModel the pinned application model
+     * @param state the state of the pin, see {@link #resolvePin(ApplicationModel, PackageManager, LauncherApps, UserManager)}
+     */
+    public void showPin(final int index, @Nullable final ApplicationModel applicationModel, final int state) {
         if (index < 0 || index >= NUMBER_OF_ITEMS) {
             return;
         }
 
+        switch (state) {
+            case PIN_SHOWN:
+                if (applicationModel != null) {
+                    insertNewItem(index, applicationModel);
+                }
+                break;
+            case PIN_HIDDEN:
+                clearIndex(index);
+                break;
+            case PIN_REMOVED:
+                clearIndex(index);
+                removeFromDatabase(index);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Check a pinned application model against the installed apps. Can be called on any thread.
+     * @param applicationModel the pinned application model or <code>null</code>, if nothing is pinned
+     * @param packageManager the package manager
+     * @param launcherApps the launcher apps for pins of other profiles, <code>null</code> before Lollipop
+     * @param userManager the user manager for pins of other profiles
+     * @return the state of the pin, i. e. {@link #PIN_SHOWN}, {@link #PIN_HIDDEN}, {@link #PIN_REMOVED} or {@link #PIN_UNCHECKED}
+     */
+    public static int resolvePin(
+            @Nullable final ApplicationModel applicationModel,
+            @Nullable final PackageManager packageManager,
+            @Nullable final LauncherApps launcherApps,
+            @Nullable final UserManager userManager) {
+
         // Check for clearing application model
-        if (applicationModel == null) {
-            clearIndex(index);
-            removeFromDatabase(index);
+        if (applicationModel == null || applicationModel.packageName == null || applicationModel.className == null) {
+            return PIN_REMOVED;
+        }
 
-            return;
+        // Apps of other profiles can only be checked via launcher apps
+        if (!UserHandleUtil.isMyUserHandle(applicationModel.userHandle)) {
+            if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && launcherApps != null) {
+                return resolvePinOfOtherProfile(applicationModel, launcherApps, userManager);
+            }
+
+            return PIN_UNCHECKED;
+        }
+
+        if (packageManager == null) {
+            return PIN_UNCHECKED;
+        }
+
+        // Check for deleted packages
+        try {
+            packageManager.getPackageInfo(applicationModel.packageName, PackageManager.GET_ACTIVITIES);
+        } catch (final PackageManager.NameNotFoundException e) {
+            return PIN_REMOVED;
         }
 
+        // Check if app is callable
+        final Intent intent = IntentUtil.newAppMainIntent(applicationModel.packageName, applicationModel.className);
+
+        return IntentUtil.isCallable(packageManager, intent) ? PIN_SHOWN : PIN_REMOVED;
+    }
+
+    /**
+     * Check a pinned application model of another profile against the installed apps.
+     * @param applicationModel the application model of another profile
+     * @param launcherApps the launcher apps
+     * @param userManager the user manager
+     * @return the state of the pin
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    private static int resolvePinOfOtherProfile(
+            @NonNull final ApplicationModel applicationModel,
+            @NonNull final LauncherApps launcherApps,
+            @Nullable final UserManager userManager) {
+
         if (applicationModel.packageName == null || applicationModel.className == null) {
-            clearIndex(index);
-            removeFromDatabase(index);
+            return PIN_UNCHECKED;
+        }
+
+        final ComponentName componentName = new ComponentName(applicationModel.packageName, applicationModel.className);
+
+        if (launcherApps.isActivityEnabled(componentName, applicationModel.userHandle)) {
+            return PIN_SHOWN;
+        }
+
+        // Keep pins of paused profiles
+        if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && userManager != null && userManager.isQuietModeEnabled(applicationModel.userHandle)) {
+            return PIN_HIDDEN;
+        }
+
+        return PIN_REMOVED;
+    }
 
+    /**
+     * Validate all dock items pinned to a package again, e. g. after the package has been
+     * added, changed or removed. Items of packages that no longer exist will be unpinned.
+     * @param packageName the package name
+     */
+    public void updatePackage(@NonNull final String packageName) {
+        final SharedPreferencesDAO sharedPreferencesDAO = sharedPreferencesDAOWeakReference.get();
+
+        if (sharedPreferencesDAO == null) {
             return;
         }
 
-        final PackageManager packageManager = packageManagerWeakReference.get();
+        for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+            final ApplicationModel applicationModel = getPinnedApplicationModel(sharedPreferencesDAO.getString(getKey(i), ""), userManager);
 
-        if (packageManager != null) {
-            // Check for deleted packages
+            if (applicationModel != null && packageName.equals(applicationModel.packageName)) {
+                updateDock(i, applicationModel);
+            }
+        }
+    }
+
+    /**
+     * Clear all dock items of a package without unpinning them, e. g. when the package
+     * is temporarily unavailable.
+     * @param packageName the package name
+     * @param userHandle the profile of the package, <code>null</code> for the profile of this process
+     */
+    public void clearPackage(@NonNull final String packageName, @Nullable final UserHandle userHandle) {
+        for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+            final Object tag = dockItems.get(i).getTag();
+
+            if (tag instanceof ApplicationModel
+                    && packageName.equals(((ApplicationModel) tag).packageName)
+                    && UserHandleUtil.isSameUserHandle(userHandle, ((ApplicationModel) tag).userHandle)) {
+                clearIndex(i);
+            }
+        }
+    }
+
+    /**
+     * Create an application model from a pinned value.
+     * @param value the pinned value, i. e. package and class name divided by the separator,
+     *              followed by the serial number for apps of other profiles
+     * @param userManager the user manager to resolve other profiles
+     * @return the application model or <code>null</code>, if the value is not valid or the profile does not exist
+     */
+    @Nullable
+    public static ApplicationModel getPinnedApplicationModel(@NonNull final String value, @Nullable final UserManager userManager) {
+        if (value.length() <= 0) {
+            return null;
+        }
+
+        final StringTokenizer tokenizer = new StringTokenizer(value, SEPARATOR);
+        final int countTokens = tokenizer.countTokens();
+
+        if (countTokens != 2 && countTokens != 3) {
+            return null;
+        }
+
+        final ApplicationModel applicationModel = new ApplicationModel();
+        applicationModel.packageName = tokenizer.nextToken();
+        applicationModel.className = tokenizer.nextToken();
+
+        if (countTokens == 3) {
             try {
-                packageManager.getPackageInfo(applicationModel.packageName, PackageManager.GET_ACTIVITIES);
+                applicationModel.userSerialNumber = Long.parseLong(tokenizer.nextToken());
+            } catch (final NumberFormatException e) {
+                return null;
+            }
 
-                // Check if app is callable
-                final Intent intent = IntentUtil.newAppMainIntent(applicationModel.packageName, applicationModel.className);
+            applicationModel.userHandle = UserHandleUtil.getUserHandle(userManager, applicationModel.userSerialNumber);
 
-                if (IntentUtil.isCallable(packageManager, intent)) {
-                    insertNewItem(index, applicationModel);
-                } else {
-                    clearIndex(index);
-                    removeFromDatabase(index);
-                }
-            } catch (final PackageManager.NameNotFoundException e) {
-                clearIndex(index);
-                removeFromDatabase(index);
+            if (applicationModel.userHandle == null) {
+                return null;
             }
         }
+
+        return applicationModel;
     }
 
     /**
@@ -209,12 +399,43 @@ public final class DockController {
 
         if (sharedPreferencesDAO != null) {
             final String key = getKey(index);
-            final String value = applicationModel.packageName + SEPARATOR + applicationModel.className;
+            final String value = applicationModel.packageName + SEPARATOR + applicationModel.className
+                    + UserHandleUtil.getKeySuffix(applicationModel, SEPARATOR);
 
             sharedPreferencesDAO.putString(key, value);
         }
 
-        // Update view
+        CatalogCache.getInstance().setDockApplicationModel(index, applicationModel);
+        showItem(index, applicationModel);
+
+        // Warm shortcuts for the context menu
+        if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1) {
+            ShortcutInfoCache.getInstance().warm(launcherAppsWeakReference.get(), applicationModel.userHandle, applicationModel.packageName);
+        }
+    }
+
+    /**
+     * Show the dock items of the {@link CatalogCache}, e. g. after the activity has been recreated.
+     * The items are validated again by loading the dock.
+     */
+    public void restore() {
+        final CatalogCache catalogCache = CatalogCache.getInstance();
+
+        for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+            final ApplicationModel applicationModel = catalogCache.getDockApplicationModel(i);
+
+            if (applicationModel != null) {
+                showItem(i, applicationModel);
+            }
+        }
+    }
+
+    /**
+     * Show an item in the view.
+     * @param index the valid index
+     * @param applicationModel the non-null application model to show
+     */
+    private void showItem(final int index, @NonNull final ApplicationModel applicationModel) {
         final ImageView imageView = dockItems.get(index);
         imageView.setTag(applicationModel);
         imageView.setContentDescription(applicationModel.label);
@@ -223,7 +444,7 @@ public final class DockController {
         final PackageManager packageManager = packageManagerWeakReference.get();
 
         if (packageManager != null) {
-            new LoadApplicationModelIconIntoImageViewTask(imageView, applicationModel, packageManager, defaultDrawable).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+            LoadApplicationModelIconIntoImageViewTask.loadInto(imageView, applicationModel, packageManager, launcherAppsWeakReference.get(), defaultDrawable);
         }
     }
 
@@ -232,6 +453,8 @@ public final class DockController {
      * @param index the valid index to clear
      */
     public void clearIndex(final int index) {
+        CatalogCache.getInstance().setDockApplicationModel(index, null);
+
         // Update view
         final ImageView imageView = dockItems.get(index);
         imageView.setTag(null);
@@ -26,6 +26,7 @@ import de.clemensbartz.android.launcher.adapters.DrawerListAdapter;
 import de.clemensbartz.android.launcher.daos.SharedPreferencesDAO;
 import de.clemensbartz.android.launcher.models.ApplicationModel;
 import de.clemensbartz.android.launcher.tasks.FilterDrawerListAdapterTask;
+import de.clemensbartz.android.launcher.util.UserHandleUtil;
 
 /**
  * Controller for handling information in the drawer.
@@ -64,7 +65,7 @@ public final class DrawerController {
         final SharedPreferencesDAO sharedPreferencesDAO = sharedPreferencesDAOWeakReference.get();
 
         if (sharedPreferencesDAO != null && applicationModel.packageName != null && applicationModel.className != null) {
-            final String key = getKey(applicationModel.packageName, applicationModel.className);
+            final String key = getKey(applicationModel.packageName, applicationModel.className, applicationModel);
 
             applicationModel.hidden = !isHiding(applicationModel);
 
@@ -94,19 +95,20 @@ public final class DrawerController {
             return false;
         }
 
-        final String key = getKey(applicationModel.packageName, applicationModel.className);
+        final String key = getKey(applicationModel.packageName, applicationModel.className, applicationModel);
 
         return sharedPreferencesDAO.contains(key);
     }
 
     /**
-     * Create the key for an app.
+     * Create the key for an app. Apps of other profiles are hidden separately.
      * @param packageName the package name
      * @param className the class name
+     * @param applicationModel the application model for its profile
      * @return the key
      */
     @NonNull
-    private String getKey(@NonNull final String packageName, @NonNull final String className) {
-        return HIDE_PREFIX + packageName + SEPARATOR + className;
+    private String getKey(@NonNull final String packageName, @NonNull final String className, @NonNull final ApplicationModel applicationModel) {
+        return HIDE_PREFIX + packageName + SEPARATOR + className + UserHandleUtil.getKeySuffix(applicationModel, SEPARATOR);
     }
 }
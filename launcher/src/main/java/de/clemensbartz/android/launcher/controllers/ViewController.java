@@ -22,6 +22,8 @@ import android.view.GestureDetector;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.MotionEvent;
+import android.view.View;
+import android.widget.GridView;
 import android.widget.PopupMenu;
 import android.widget.ViewFlipper;
 
@@ -32,7 +34,9 @@ import java.lang.reflect.Method;
 
 import de.clemensbartz.android.launcher.Launcher;
 import de.clemensbartz.android.launcher.R;
+import de.clemensbartz.android.launcher.adapters.DrawerListAdapter;
 import de.clemensbartz.android.launcher.daos.SharedPreferencesDAO;
+import de.clemensbartz.android.launcher.util.FrameMetricsCollector;
 
 /**
  * Controller for flipping between views inside the layout. Central element is the {@link ViewFlipper}.
@@ -91,6 +95,8 @@ public final class ViewController extends GestureDetector.SimpleOnGestureListene
 
     /** Id to identify the home layout. */
     private static final int HOME_ID = 0;
+    /** Index of the drawer page, which shows the grid and the list layout. */
+    private static final int DRAWER_PAGE_INDEX = 1;
     /** Id to identify the grid layout. */
     public static final int GRID_ID = 1;
     /** Id to identify the list layout. */
@@ -117,6 +123,9 @@ public final class ViewController extends GestureDetector.SimpleOnGestureListene
     /** The status bar system service. */
     @Nullable
     private Object statusBarSystemService = null;
+    /** The widget controller, which defers widget updates while home is not shown. */
+    @Nullable
+    private WidgetController widgetController = null;
 
 
     /**
@@ -135,7 +144,7 @@ public final class ViewController extends GestureDetector.SimpleOnGestureListene
      * @return if it is valid
      */
     private boolean isValidDetailIndex(final int detailIndex) {
-        return detailIndex >= 0 && viewFlipper.getChildCount() > detailIndex - 1;
+        return detailIndex == GRID_ID || detailIndex == LIST_ID;
     }
 
     /**
@@ -155,7 +164,43 @@ public final class ViewController extends GestureDetector.SimpleOnGestureListene
             }
         }
 
-        viewFlipper.setDisplayedChild(index);
+        if (index == HOME_ID) {
+            viewFlipper.setDisplayedChild(HOME_ID);
+        } else {
+            applyDrawerLayout(index);
+            viewFlipper.setDisplayedChild(DRAWER_PAGE_INDEX);
+        }
+
+        if (widgetController != null) {
+            widgetController.setDeferringUpdates(index != HOME_ID);
+        }
+
+        // Only collect frame metrics while the drawer is shown
+        if (index == HOME_ID) {
+            FrameMetricsCollector.stop();
+        } else {
+            FrameMetricsCollector.start();
+        }
+    }
+
+    /**
+     * Switch the drawer view between the grid and the list layout. The drawer view stays the same,
+     * so its recycled views are shared by both layouts.
+     * @param detailIndex the layout
+     */
+    private void applyDrawerLayout(final int detailIndex) {
+        launcher.inflateDrawer();
+
+        final GridView gridView = launcher.findViewById(R.id.gvApplications);
+        final View sections = launcher.findViewById(R.id.lvApplicationsSections);
+        final boolean isList = detailIndex == LIST_ID;
+
+        gridView.setNumColumns(isList ? 1 : GridView.AUTO_FIT);
+        sections.setVisibility(isList ? View.VISIBLE : View.GONE);
+
+        if (gridView.getAdapter() instanceof DrawerListAdapter) {
+            ((DrawerListAdapter) gridView.getAdapter()).setViewType(isList ? DrawerListAdapter.VIEW_TYPE_LIST : DrawerListAdapter.VIEW_TYPE_GRID);
+        }
     }
 
     /**
@@ -260,6 +305,14 @@ public final class ViewController extends GestureDetector.SimpleOnGestureListene
         this.actionBar = actionBar;
     }
 
+    /**
+     * Set the widget controller to defer widget updates while home is not shown.
+     * @param widgetController the widget controller, or <code>null</code>, if widgets are not supported
+     */
+    public void setWidgetController(@Nullable final WidgetController widgetController) {
+        this.widgetController = widgetController;
+    }
+
     /**
      * Set the new status bar system service.
      * @param statusBarSystemService the status bar system service, or <code>null</code>, if none should be registered
@@ -289,7 +342,7 @@ public final class ViewController extends GestureDetector.SimpleOnGestureListene
      * Request to layout the widget.
      */
     public void requestGestureChange(@NonNull final Gestures gesture) {
-        final PopupMenu popupMenu = new PopupMenu(launcher, launcher.findViewById(R.id.topFiller));
+        final PopupMenu popupMenu = new PopupMenu(launcher, launcher.findViewById(R.id.flWidget));
 
         final int currentGestureTarget = sharedPreferencesDAO.getInt(gesture.getKey(), gesture.getDefaultValue());
 
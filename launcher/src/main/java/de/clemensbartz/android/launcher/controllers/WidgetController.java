@@ -17,35 +17,48 @@
 
 package de.clemensbartz.android.launcher.controllers;
 
-import android.appwidget.AppWidgetHost;
 import android.appwidget.AppWidgetHostView;
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProviderInfo;
 import android.content.ComponentName;
 import android.content.Intent;
+import android.os.Build;
 import android.os.Bundle;
 import android.view.MenuItem;
 import android.view.View;
-import android.view.ViewGroup;
-import android.widget.FrameLayout;
-import android.widget.LinearLayout;
 import android.widget.PopupMenu;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringTokenizer;
+
 import de.clemensbartz.android.launcher.Launcher;
 import de.clemensbartz.android.launcher.R;
+import de.clemensbartz.android.launcher.caches.WidgetProviderCache;
 import de.clemensbartz.android.launcher.daos.SharedPreferencesDAO;
+import de.clemensbartz.android.launcher.listeners.WidgetGridLayoutOnLayoutChangedListener;
+import de.clemensbartz.android.launcher.models.WidgetCellModel;
+import de.clemensbartz.android.launcher.models.WidgetProviderModel;
 import de.clemensbartz.android.launcher.tasks.CreateWidgetAsyncTask;
 import de.clemensbartz.android.launcher.tasks.ShowWidgetListAsPopupMenuTask;
 import de.clemensbartz.android.launcher.util.BundleUtil;
 import de.clemensbartz.android.launcher.util.IntentUtil;
+import de.clemensbartz.android.launcher.util.LocaleUtil;
+import de.clemensbartz.android.launcher.views.WidgetGridLayout;
+import de.clemensbartz.android.launcher.views.WidgetHost;
+import de.clemensbartz.android.launcher.views.WidgetHostView;
 
 import static android.app.Activity.RESULT_OK;
 
 /**
- * Controlling for handling widgets in a FrameLayout.
+ * Controlling for handling widgets in a {@link WidgetGridLayout}. Every widget spans a rectangle
+ * of cells, which is persisted per appWidgetId.
  * <br/>
  * This class is intended only for the lifetime of an activity.
  * @author Clemens Bartz
@@ -53,20 +66,29 @@ import static android.app.Activity.RESULT_OK;
  */
 public final class WidgetController {
 
-    /** Key for the appWidgetId property. */
+    /** Key for the appWidgetId property, only read for migrating to {@link #KEY_APPWIDGET_CELLS}. */
     @NonNull
     public static final String KEY_APPWIDGET_ID = "appWidgetId";
-    /** Key for the appWidgetLayout property. */
+    /** Key for the appWidgetLayout property, only read for migrating to {@link #KEY_APPWIDGET_CELLS}. */
     @NonNull
     public static final String KEY_APPWIDGET_LAYOUT = "appWidgetLayout";
-    /** The weight sum. */
-    private static final int WEIGHT_SUM = 120;
-    /** Half of the weight sum. */
-    private static final int WEIGHT_SUM_HALF = WEIGHT_SUM / 2;
-    /** A third of the weight sum. */
-    private static final int WEIGHT_SUM_THIRD = WEIGHT_SUM / 3;
-    /** A quarter of the weight sum. */
-    private static final int WEIGHT_SUM_QUARTER = WEIGHT_SUM / 4;
+    /** Key for the cells of all widgets. */
+    @NonNull
+    public static final String KEY_APPWIDGET_CELLS = "appWidgetCells";
+    /** The separator between the values of a cell. */
+    @NonNull
+    private static final String CELL_SEPARATOR = "|";
+    /** The separator between widgets. */
+    @NonNull
+    private static final String WIDGET_SEPARATOR = ";";
+    /** The number of values of a cell. */
+    private static final int CELL_VALUE_COUNT = 5;
+    /** Half of the rows. */
+    private static final int ROWS_HALF = WidgetGridLayout.ROW_COUNT / 2;
+    /** A third of the rows. */
+    private static final int ROWS_THIRD = WidgetGridLayout.ROW_COUNT / 3;
+    /** A quarter of the rows. */
+    private static final int ROWS_QUARTER = WidgetGridLayout.ROW_COUNT / 4;
 
     /** Extra code for APP_WIDGET_CONFIGURE. */
     @NonNull
@@ -75,6 +97,10 @@ public final class WidgetController {
     private static final int REQUEST_BIND_APPWIDGET = 0;
     /** Request code for creating a widget. */
     private static final int REQUEST_CREATE_APPWIDGET = 1;
+    /** Action for changing the layout of a chosen widget. */
+    private static final int ACTION_LAYOUT = 0;
+    /** Action for removing a chosen widget. */
+    private static final int ACTION_REMOVE = 1;
     // Layout constants for widget
     /** Layout constant for default full screen layout. */
     private static final int WIDGET_LAYOUT_FULL_SCREEN = -1;
@@ -109,12 +135,17 @@ public final class WidgetController {
     private final AppWidgetManager appWidgetManager;
     /** The app widget host. */
     @NonNull
-    private final AppWidgetHost appWidgetHost;
+    private final WidgetHost appWidgetHost;
+    /** The cells of all shown widgets. */
+    @NonNull
+    private final List<WidgetCellModel> widgetCells = new ArrayList<>();
 
 
     /** The temporary configure component for widgets. */
     @Nullable
     private ComponentName widgetConfigure = null;
+    /** If widget updates are deferred, because the widgets are not visible. */
+    private boolean isDeferringUpdates = false;
 
     /**
      * Create a new widget controller.
@@ -125,7 +156,9 @@ public final class WidgetController {
         this.sharedPreferencesDAO = sharedPreferencesDAO;
         this.launcher = launcher;
         this.appWidgetManager = AppWidgetManager.getInstance(launcher);
-        this.appWidgetHost = new AppWidgetHost(launcher, R.id.flWidget);
+        this.appWidgetHost = new WidgetHost(launcher, R.id.flWidget);
+
+        getWidgetGridLayout().setOnLayoutChangedListener(new WidgetGridLayoutOnLayoutChangedListener(this));
     }
 
     /**
@@ -142,12 +175,48 @@ public final class WidgetController {
         appWidgetHost.stopListening();
     }
 
+    /**
+     * Defer widget updates while the widgets are not visible, e. g. while the drawer is shown. Only
+     * the newest update of every widget is applied once updates are not deferred anymore.
+     * @param isDeferringUpdates if updates should be deferred
+     */
+    public void setDeferringUpdates(final boolean isDeferringUpdates) {
+        if (this.isDeferringUpdates == isDeferringUpdates) {
+            return;
+        }
+
+        this.isDeferringUpdates = isDeferringUpdates;
+
+        final WidgetGridLayout widgetGridLayout = getWidgetGridLayout();
+
+        for (int i = 0; i < widgetGridLayout.getChildCount(); i++) {
+            final View child = widgetGridLayout.getChildAt(i);
+
+            if (child instanceof WidgetHostView) {
+                ((WidgetHostView) child).setDeferringUpdates(isDeferringUpdates);
+            }
+        }
+    }
+
+    /**
+     * Print the number of widget updates applied and dropped.
+     * @param prefix the prefix for every line
+     * @param writer the writer
+     */
+    public void dump(@NonNull final String prefix, @NonNull final PrintWriter writer) {
+        writer.print(prefix);
+        writer.print("Widget updates: applied=");
+        writer.print(appWidgetHost.getAppliedUpdateCount());
+        writer.print(" dropped=");
+        writer.println(appWidgetHost.getDroppedUpdateCount());
+    }
+
     /**
      *
      * @return if an app widget is configured
      */
     public boolean isAppWidgetConfigured() {
-        return sharedPreferencesDAO.getInt(KEY_APPWIDGET_ID, DEFAULT_APPWIDGET_ID) > -1;
+        return !widgetCells.isEmpty();
     }
 
     /**
@@ -180,82 +249,150 @@ public final class WidgetController {
     }
 
     /**
-     * Add a host view to the frame layout for a widget id.
-     * @param appWidgetId the widget id
+     * Show the widgets of the loaded cells. Shown widgets of unchanged cells are kept with their
+     * reported size, so they neither get created nor get their options again. Moved widgets are
+     * laid out again, only removed and added widgets are removed and created. Added widgets whose
+     * provider does not exist anymore are dropped and their ids are deleted.
+     * @param cells the cells of all widgets
      */
-    public void addHostView(final int appWidgetId) {
-        final FrameLayout flWidget = launcher.findViewById(R.id.flWidget);
+    public void addHostViews(@NonNull final List<WidgetCellModel> cells) {
+        final WidgetGridLayout widgetGridLayout = getWidgetGridLayout();
+        final List<WidgetCellModel> shownCells = new ArrayList<>(widgetCells);
+        final Set<Integer> keptAppWidgetIds = new HashSet<>();
 
-        flWidget.removeAllViews();
+        for (int i = widgetGridLayout.getChildCount() - 1; i >= 0; i--) {
+            final View child = widgetGridLayout.getChildAt(i);
+            final int appWidgetId = (child instanceof AppWidgetHostView) ? ((AppWidgetHostView) child).getAppWidgetId() : DEFAULT_APPWIDGET_ID;
+            final WidgetCellModel cell = findWidgetCell(cells, appWidgetId);
+            final WidgetCellModel shownCell = findWidgetCell(shownCells, appWidgetId);
 
-        final AppWidgetProviderInfo appWidgetInfo = appWidgetManager.getAppWidgetInfo(appWidgetId);
-        if (appWidgetInfo != null) {
-            final AppWidgetHostView hostView = appWidgetHost.createView(launcher, appWidgetId, appWidgetInfo);
-            hostView.setAppWidget(appWidgetId, appWidgetInfo);
+            if (cell == null || shownCell == null) {
+                widgetGridLayout.removeViewAt(i);
 
-            flWidget.addView(hostView);
-            flWidget.requestLayout();
+                continue;
+            }
 
-            final Bundle options = BundleUtil.getWidgetOptionsBundle(flWidget.getMeasuredWidth(), flWidget.getMeasuredHeight(), flWidget.getMeasuredWidth(), flWidget.getMeasuredHeight());
+            if (cell.cellX != shownCell.cellX || cell.cellY != shownCell.cellY
+                    || cell.spanX != shownCell.spanX || cell.spanY != shownCell.spanY) {
+                shownCell.cellX = cell.cellX;
+                shownCell.cellY = cell.cellY;
+                shownCell.spanX = cell.spanX;
+                shownCell.spanY = cell.spanY;
 
-            hostView.updateAppWidgetOptions(options);
+                // The options follow after the layout pass, if the size changed
+                child.setLayoutParams(new WidgetGridLayout.LayoutParams(cell.cellX, cell.cellY, cell.spanX, cell.spanY));
+            }
 
-            sharedPreferencesDAO.putInt(KEY_APPWIDGET_ID, appWidgetId);
-        } else {
-            sharedPreferencesDAO.putInt(KEY_APPWIDGET_ID, DEFAULT_APPWIDGET_ID);
+            keptAppWidgetIds.add(appWidgetId);
         }
+
+        widgetCells.clear();
+
+        for (final WidgetCellModel cell : cells) {
+            if (keptAppWidgetIds.contains(cell.appWidgetId)) {
+                widgetCells.add(findWidgetCell(shownCells, cell.appWidgetId));
+            } else {
+                addHostView(cell);
+            }
+        }
+
+        if (widgetCells.size() != cells.size()) {
+            saveWidgetCells();
+        }
+
+        updateActionBarMenuItems();
     }
 
     /**
-     * Adjust widget layout according to layout id.
-     * @param appWidgetLayout the layout id.
+     * Add a host view to the grid for a widget cell. If the provider of the widget does not exist
+     * anymore, the id of the widget is deleted.
+     * @param cell the cell of the widget
+     * @return <code>true</code>, if the widget could be added, otherwise <code>false</code>
      */
-    public void adjustWidget(final int appWidgetLayout) {
-        // Get views
-        final View vBottomFiller = launcher.findViewById(R.id.bottomFiller);
-        final View vTopFiller = getTopFiller();
-        final FrameLayout flWidget = launcher.findViewById(R.id.flWidget);
+    private boolean addHostView(@NonNull final WidgetCellModel cell) {
+        final AppWidgetProviderInfo appWidgetInfo = appWidgetManager.getAppWidgetInfo(cell.appWidgetId);
 
-        // Get layouts
-        final ViewGroup.LayoutParams bottomLayout = vBottomFiller.getLayoutParams();
-        final ViewGroup.LayoutParams topLayout = vTopFiller.getLayoutParams();
-        final ViewGroup.LayoutParams flWidgetLayout = flWidget.getLayoutParams();
+        if (appWidgetInfo == null) {
+            appWidgetHost.deleteAppWidgetId(cell.appWidgetId);
 
-        // Adjust weights individually
-        if (bottomLayout instanceof LinearLayout.LayoutParams) {
-            final LinearLayout.LayoutParams layoutParams = (LinearLayout.LayoutParams) bottomLayout;
-            layoutParams.weight = getPreciseBottomWeight(appWidgetLayout);
+            return false;
         }
 
-        if (topLayout instanceof LinearLayout.LayoutParams) {
-            final LinearLayout.LayoutParams layoutParams = (LinearLayout.LayoutParams) topLayout;
-            layoutParams.weight = getPreciseTopWeight(appWidgetLayout);
+        final AppWidgetHostView hostView = appWidgetHost.createView(launcher, cell.appWidgetId, appWidgetInfo);
+        hostView.setAppWidget(cell.appWidgetId, appWidgetInfo);
+
+        if (hostView instanceof WidgetHostView) {
+            ((WidgetHostView) hostView).setDeferringUpdates(isDeferringUpdates);
         }
 
-        if (flWidgetLayout instanceof LinearLayout.LayoutParams) {
-            final LinearLayout.LayoutParams layoutParams = (LinearLayout.LayoutParams) flWidgetLayout;
-            layoutParams.weight = getPreciseWidgetWeight(appWidgetLayout);
+        // All views are added before the next layout pass, so this does not cause additional passes.
+        // The options are updated after that pass has measured the widget.
+        getWidgetGridLayout().addView(hostView, new WidgetGridLayout.LayoutParams(cell.cellX, cell.cellY, cell.spanX, cell.spanY));
+        widgetCells.add(cell);
+
+        return true;
+    }
+
+    /**
+     * Tell all widgets their measured size in dp. Widgets whose size did not change are skipped, as
+     * every update causes the widget to send new remote views.
+     */
+    public void updateAppWidgetOptions() {
+        final WidgetGridLayout widgetGridLayout = getWidgetGridLayout();
+        final float density = launcher.getResources().getDisplayMetrics().density;
+
+        for (int i = 0; i < widgetGridLayout.getChildCount(); i++) {
+            final View child = widgetGridLayout.getChildAt(i);
+
+            if (!(child instanceof AppWidgetHostView)) {
+                continue;
+            }
+
+            final AppWidgetHostView hostView = (AppWidgetHostView) child;
+            final WidgetCellModel cell = getWidgetCell(hostView.getAppWidgetId());
+            final int width = (int) (hostView.getWidth() / density);
+            final int height = (int) (hostView.getHeight() / density);
+
+            if (cell == null || width <= 0 || height <= 0
+                    || (cell.reportedWidth == width && cell.reportedHeight == height)) {
+                continue;
+            }
+
+            cell.reportedWidth = width;
+            cell.reportedHeight = height;
+
+            hostView.updateAppWidgetOptions(BundleUtil.getWidgetOptionsBundle(width, height, width, height));
         }
+    }
+
+    /**
+     * Adjust the layout of a widget according to layout id.
+     * @param appWidgetId the widget id
+     * @param appWidgetLayout the layout id.
+     */
+    public void adjustWidget(final int appWidgetId, final int appWidgetLayout) {
+        final WidgetCellModel cell = getWidgetCell(appWidgetId);
 
-        // Request layout change
-        vBottomFiller.requestLayout();
-        vTopFiller.requestLayout();
-        flWidget.requestLayout();
+        if (cell == null) {
+            return;
+        }
 
-        // Notify widget
-        if (flWidget.getChildCount() == 1) {
-            final View child = flWidget.getChildAt(0);
+        setPresetCell(cell, appWidgetLayout);
 
-            if (child instanceof AppWidgetHostView) {
-                final AppWidgetHostView hostView = (AppWidgetHostView) child;
+        final WidgetGridLayout widgetGridLayout = getWidgetGridLayout();
 
-                final Bundle options = BundleUtil.getWidgetOptionsBundle(flWidget.getMeasuredWidth(), flWidget.getMeasuredHeight(), flWidget.getMeasuredWidth(), flWidget.getMeasuredHeight());
+        for (int i = 0; i < widgetGridLayout.getChildCount(); i++) {
+            final View child = widgetGridLayout.getChildAt(i);
 
-                hostView.updateAppWidgetOptions(options);
+            // Setting the layout params requests a single layout pass, the options follow after it
+            if (child instanceof AppWidgetHostView && ((AppWidgetHostView) child).getAppWidgetId() == appWidgetId) {
+                child.setLayoutParams(new WidgetGridLayout.LayoutParams(cell.cellX, cell.cellY, cell.spanX, cell.spanY));
             }
         }
 
-        sharedPreferencesDAO.putInt(KEY_APPWIDGET_LAYOUT, appWidgetLayout);
+        saveWidgetCells();
+        // The free space has changed
+        updateActionBarMenuItems();
     }
 
     /**
@@ -264,7 +401,10 @@ public final class WidgetController {
      * @param configure the configure component
      */
     public void bindWidget(@NonNull final ComponentName provider, @Nullable final ComponentName configure) {
-        final FrameLayout flWidget = launcher.findViewById(R.id.flWidget);
+        // Widgets never overlap
+        if (!hasFreeCell()) {
+            return;
+        }
 
         final int appWidgetId = appWidgetHost.allocateAppWidgetId();
 
@@ -277,12 +417,17 @@ public final class WidgetController {
 
             final Intent intent = IntentUtil.createWidgetBindIntent(provider, appWidgetId);
 
-            final Bundle options = new Bundle();
+            // Tell the size of the cells the widget will get
+            final WidgetCellModel cell = getFreeCell(appWidgetId);
+            final WidgetGridLayout widgetGridLayout = getWidgetGridLayout();
+            final float density = launcher.getResources().getDisplayMetrics().density;
+            final int spanX = (cell != null) ? cell.spanX : WidgetGridLayout.COLUMN_COUNT;
+            final int spanY = (cell != null) ? cell.spanY : ROWS_QUARTER;
+            final int width = (int) (widgetGridLayout.getCellWidth() * spanX / density);
+            final int height = (int) (widgetGridLayout.getCellHeight() * spanY / density);
+
+            final Bundle options = BundleUtil.getWidgetOptionsBundle(width, height, width, height);
             options.putInt(AppWidgetManager.OPTION_APPWIDGET_HOST_CATEGORY, AppWidgetProviderInfo.WIDGET_CATEGORY_HOME_SCREEN);
-            options.putInt(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH, flWidget.getMinimumWidth());
-            options.putInt(AppWidgetManager.OPTION_APPWIDGET_MAX_WIDTH, flWidget.getWidth());
-            options.putInt(AppWidgetManager.OPTION_APPWIDGET_MIN_HEIGHT, flWidget.getMinimumHeight());
-            options.putInt(AppWidgetManager.OPTION_APPWIDGET_MAX_HEIGHT, flWidget.getHeight());
 
             intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_OPTIONS, options);
 
@@ -320,73 +465,149 @@ public final class WidgetController {
     }
 
     /**
-     * Create a widget from an intent.
+     * Create a widget in the next free cells.
      * @param appWidgetId the appWidgetId
      */
     public void createWidget(final int appWidgetId) {
-        final FrameLayout flWidget = launcher.findViewById(R.id.flWidget);
+        if (appWidgetId < 0 || getWidgetCell(appWidgetId) != null) {
+            return;
+        }
+
+        final WidgetCellModel cell = getFreeCell(appWidgetId);
+
+        if (cell == null) {
+            // The space has been used in the meantime
+            appWidgetHost.deleteAppWidgetId(appWidgetId);
+        } else {
+            makeRoom(cell);
+
+            if (addHostView(cell)) {
+                saveWidgetCells();
+            }
+        }
+
+        updateActionBarMenuItems();
+    }
+
+    /**
+     * Remove a widget.
+     * @param appWidgetId the appWidgetId
+     */
+    public void removeWidget(final int appWidgetId) {
+        final WidgetCellModel cell = getWidgetCell(appWidgetId);
+
+        if (cell == null) {
+            return;
+        }
+
+        appWidgetHost.deleteAppWidgetId(appWidgetId);
+        widgetCells.remove(cell);
 
-        final int currentAppWidgetId = sharedPreferencesDAO.getInt(KEY_APPWIDGET_ID, DEFAULT_APPWIDGET_ID);
+        final WidgetGridLayout widgetGridLayout = getWidgetGridLayout();
 
-        if (currentAppWidgetId > -1) {
-            appWidgetHost.deleteAppWidgetId(currentAppWidgetId);
-            flWidget.removeAllViews();
-            // Reset view
-            adjustWidget(WIDGET_LAYOUT_FULL_SCREEN);
+        for (int i = widgetGridLayout.getChildCount() - 1; i >= 0; i--) {
+            final View child = widgetGridLayout.getChildAt(i);
+
+            if (child instanceof AppWidgetHostView && ((AppWidgetHostView) child).getAppWidgetId() == appWidgetId) {
+                widgetGridLayout.removeViewAt(i);
+            }
         }
 
-        sharedPreferencesDAO.putInt(KEY_APPWIDGET_ID, appWidgetId);
+        saveWidgetCells();
+        updateActionBarMenuItems();
+    }
+
+    /**
+     * Update the visibility of the action bar items for existing widgets.
+     */
+    private void updateActionBarMenuItems() {
+        final MenuItem chooseWidgetMenuItem = launcher.getActionBarMenuItem(R.id.abm_choose_widget);
+        if (chooseWidgetMenuItem != null) {
+            chooseWidgetMenuItem.setVisible(hasFreeCell());
+        }
 
         final MenuItem removeWidgetMenuItem = launcher.getActionBarMenuItem(R.id.abm_remove_widget);
         if (removeWidgetMenuItem != null) {
-            removeWidgetMenuItem.setVisible(appWidgetId > -1);
+            removeWidgetMenuItem.setVisible(isAppWidgetConfigured());
         }
 
         final MenuItem layoutWidgetMenuItem = launcher.getActionBarMenuItem(R.id.abm_layout_widget);
         if (layoutWidgetMenuItem != null) {
-            layoutWidgetMenuItem.setVisible(appWidgetId > -1);
+            layoutWidgetMenuItem.setVisible(isAppWidgetConfigured());
         }
+    }
 
-        addHostView(appWidgetId);
+    /**
+     *
+     * @return the grid layout holding the widgets
+     */
+    @NonNull
+    private WidgetGridLayout getWidgetGridLayout() {
+        return launcher.findViewById(R.id.flWidget);
     }
 
     /**
      *
-     * @return the top filler view
+     * @return the view to anchor popup menus at
      */
     @NonNull
-    public View getTopFiller() {
-        return launcher.findViewById(R.id.topFiller);
+    public View getPopupAnchor() {
+        return getWidgetGridLayout();
     }
 
     /**
      * Request to choose the widget.
      */
     public void requestWidgetChoosing() {
-        new ShowWidgetListAsPopupMenuTask(this, launcher, appWidgetManager).execute();
+        final List<WidgetProviderModel> widgetProviderModels = WidgetProviderCache.getInstance().get(LocaleUtil.getLocale(launcher));
+
+        if (widgetProviderModels != null) {
+            // Open instantly from the cache
+            ShowWidgetListAsPopupMenuTask.showPopupMenu(launcher, this, widgetProviderModels);
+        } else {
+            new ShowWidgetListAsPopupMenuTask(this, launcher, appWidgetManager).execute();
+        }
     }
 
     /**
-     * Request to layout the widget.
+     * Request to layout a widget.
      */
     public void requestWidgetLayoutChange() {
-        final PopupMenu popupMenu = new PopupMenu(launcher, getTopFiller());
+        requestWidgetAction(ACTION_LAYOUT);
+    }
 
-        final int currentLayout = sharedPreferencesDAO.getInt(KEY_APPWIDGET_LAYOUT, DEFAULT_APPWIDGET_LAYOUT);
+    /**
+     * Request the removal of a widget.
+     */
+    public void requestWidgetRemoval() {
+        requestWidgetAction(ACTION_REMOVE);
+    }
+
+    /**
+     * Perform an action on a widget. If there is more than one widget, the user chooses it first.
+     * @param action the action
+     */
+    private void requestWidgetAction(final int action) {
+        if (widgetCells.isEmpty()) {
+            return;
+        }
 
-        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_FULL_SCREEN, currentLayout, R.string.widgetLayoutFull);
-        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_TOP_QUARTER, currentLayout, R.string.widgetLayoutTopQuarter);
-        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_TOP_THIRD, currentLayout, R.string.widgetLayoutTopThird);
-        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_TOP_HALF, currentLayout, R.string.widgetLayoutTopHalf);
-        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_CENTER, currentLayout, R.string.widgetLayoutCenter);
-        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_BOTTOM_HALF, currentLayout, R.string.widgetLayoutBottomHalf);
-        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_BOTTOM_THIRD, currentLayout, R.string.widgetLayoutBottomThird);
-        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_BOTTOM_QUARTER, currentLayout, R.string.widgetLayoutBottomQuarter);
+        if (widgetCells.size() == 1) {
+            performWidgetAction(action, widgetCells.get(0).appWidgetId);
+
+            return;
+        }
+
+        final PopupMenu popupMenu = new PopupMenu(launcher, getPopupAnchor());
+
+        for (final WidgetCellModel cell : widgetCells) {
+            popupMenu.getMenu().add(0, cell.appWidgetId, 0, getWidgetLabel(cell.appWidgetId));
+        }
 
         popupMenu.setOnMenuItemClickListener(new PopupMenu.OnMenuItemClickListener() {
             @Override
             public boolean onMenuItemClick(final MenuItem item) {
-                adjustWidget(item.getItemId());
+                performWidgetAction(action, item.getItemId());
                 return true;
             }
         });
@@ -395,84 +616,392 @@ public final class WidgetController {
     }
 
     /**
-     * Request the removal of the widget.
+     * Perform an action on a widget.
+     * @param action the action
+     * @param appWidgetId the widget id
      */
-    public void requestWidgetRemoval() {
-        new CreateWidgetAsyncTask(this).execute(-1);
+    private void performWidgetAction(final int action, final int appWidgetId) {
+        switch (action) {
+            case ACTION_LAYOUT:
+                showLayoutPopupMenu(appWidgetId);
+                break;
+            case ACTION_REMOVE:
+                removeWidget(appWidgetId);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Show the layouts for a widget.
+     * @param appWidgetId the widget id
+     */
+    private void showLayoutPopupMenu(final int appWidgetId) {
+        final WidgetCellModel cell = getWidgetCell(appWidgetId);
+
+        if (cell == null) {
+            return;
+        }
+
+        final PopupMenu popupMenu = new PopupMenu(launcher, getPopupAnchor());
+
+        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_FULL_SCREEN, cell, R.string.widgetLayoutFull);
+        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_TOP_QUARTER, cell, R.string.widgetLayoutTopQuarter);
+        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_TOP_THIRD, cell, R.string.widgetLayoutTopThird);
+        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_TOP_HALF, cell, R.string.widgetLayoutTopHalf);
+        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_CENTER, cell, R.string.widgetLayoutCenter);
+        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_BOTTOM_HALF, cell, R.string.widgetLayoutBottomHalf);
+        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_BOTTOM_THIRD, cell, R.string.widgetLayoutBottomThird);
+        addLayoutPopupMenuItem(popupMenu, WIDGET_LAYOUT_BOTTOM_QUARTER, cell, R.string.widgetLayoutBottomQuarter);
+
+        popupMenu.setOnMenuItemClickListener(new PopupMenu.OnMenuItemClickListener() {
+            @Override
+            public boolean onMenuItemClick(final MenuItem item) {
+                adjustWidget(appWidgetId, item.getItemId());
+                return true;
+            }
+        });
+
+        popupMenu.show();
     }
 
     /**
-     * Add a menu item for the layout popup menu.
+     * Add a menu item for the layout popup menu. Layouts overlapping another widget are disabled,
+     * as widgets never overlap.
      * @param popupMenu the popup menu
      * @param widgetLayout the layout for the item
-     * @param currentLayout the currently active item
+     * @param cell the current cell of the widget
      * @param resourceId the resource for the string
      */
-    private void addLayoutPopupMenuItem(@NonNull final PopupMenu popupMenu, final int widgetLayout, final int currentLayout, final int resourceId) {
+    private void addLayoutPopupMenuItem(@NonNull final PopupMenu popupMenu, final int widgetLayout, @NonNull final WidgetCellModel cell, final int resourceId) {
         final MenuItem menuItem = popupMenu.getMenu().add(0, widgetLayout, 0, resourceId);
         menuItem.setCheckable(true);
-        menuItem.setChecked(currentLayout == widgetLayout);
+        menuItem.setChecked(cell.cellX == 0
+                && cell.spanX == WidgetGridLayout.COLUMN_COUNT
+                && cell.cellY == getPresetCellY(widgetLayout)
+                && cell.spanY == getPresetSpanY(widgetLayout));
+        menuItem.setEnabled(isPresetFree(cell, widgetLayout));
     }
 
     /**
-     * Returns the precise top weight for a specified layout.
+     * Check if a layout over the full width does not overlap any widget but the one of a cell.
+     * @param cell the cell of the widget
+     * @param appWidgetLayout the layout id
+     * @return <code>true</code>, if no other widget uses the rows of the layout, otherwise <code>false</code>
+     */
+    private boolean isPresetFree(@NonNull final WidgetCellModel cell, final int appWidgetLayout) {
+        final int cellY = getPresetCellY(appWidgetLayout);
+        final int spanY = getPresetSpanY(appWidgetLayout);
+
+        for (final WidgetCellModel widgetCell : widgetCells) {
+            if (widgetCell != cell && widgetCell.cellY < cellY + spanY && cellY < widgetCell.cellY + widgetCell.spanY) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the label of a widget.
+     * @param appWidgetId the widget id
+     * @return the label of its provider
+     */
+    @NonNull
+    private String getWidgetLabel(final int appWidgetId) {
+        final AppWidgetProviderInfo appWidgetInfo = appWidgetManager.getAppWidgetInfo(appWidgetId);
+
+        if (appWidgetInfo == null) {
+            return Integer.toString(appWidgetId);
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return appWidgetInfo.loadLabel(launcher.getPackageManager());
+        }
+
+        return appWidgetInfo.label;
+    }
+
+    /**
+     * Get the cell of a shown widget.
+     * @param appWidgetId the widget id
+     * @return the cell or <code>null</code>, if the widget is not shown
+     */
+    @Nullable
+    private WidgetCellModel getWidgetCell(final int appWidgetId) {
+        return findWidgetCell(widgetCells, appWidgetId);
+    }
+
+    /**
+     * Find the cell of a widget.
+     * @param cells the cells to search
+     * @param appWidgetId the widget id
+     * @return the cell or <code>null</code>, if there is none for the widget
+     */
+    @Nullable
+    private static WidgetCellModel findWidgetCell(@NonNull final List<WidgetCellModel> cells, final int appWidgetId) {
+        for (final WidgetCellModel cell : cells) {
+            if (cell.appWidgetId == appWidgetId) {
+                return cell;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the cell for a new widget. The first widget gets the full screen. The following widgets
+     * get the first quarter of the rows, which is not used by another widget. If there is none and
+     * a widget uses the full screen, it has to be shrunk to the top half to make room, see
+     * {@link #makeRoom(WidgetCellModel)}. Otherwise, there is no cell and widgets never overlap.
+     * @param appWidgetId the widget id
+     * @return the cell for the widget or <code>null</code>, if there is no room
+     */
+    @Nullable
+    private WidgetCellModel getFreeCell(final int appWidgetId) {
+        final WidgetCellModel cell = new WidgetCellModel();
+        cell.appWidgetId = appWidgetId;
+
+        if (widgetCells.isEmpty()) {
+            setPresetCell(cell, WIDGET_LAYOUT_FULL_SCREEN);
+
+            return cell;
+        }
+
+        int row = getFreeRow(null);
+
+        if (row < 0) {
+            final WidgetCellModel fullScreenCell = getFullScreenCell();
+
+            if (fullScreenCell == null) {
+                return null;
+            }
+
+            row = getFreeRow(fullScreenCell);
+
+            if (row < 0) {
+                return null;
+            }
+        }
+
+        setPresetCell(cell, WIDGET_LAYOUT_TOP_QUARTER);
+        cell.cellY = row;
+
+        return cell;
+    }
+
+    /**
+     *
+     * @return if there is room for another widget
+     */
+    public boolean hasFreeCell() {
+        return getFreeCell(DEFAULT_APPWIDGET_ID) != null;
+    }
+
+    /**
+     * Get the first quarter of the rows, which is not used by any widget.
+     * @param shrunkCell a full screen widget to count as shrunk to the top half or <code>null</code>
+     * @return the first row of the quarter or -1, if all quarters are used
+     */
+    private int getFreeRow(@Nullable final WidgetCellModel shrunkCell) {
+        final boolean[] usedRows = new boolean[WidgetGridLayout.ROW_COUNT];
+
+        for (final WidgetCellModel widgetCell : widgetCells) {
+            final int spanY = (widgetCell == shrunkCell) ? ROWS_HALF : widgetCell.spanY;
+
+            for (int row = widgetCell.cellY; row < widgetCell.cellY + spanY && row < usedRows.length; row++) {
+                usedRows[row] = true;
+            }
+        }
+
+        for (int row = 0; row + ROWS_QUARTER <= usedRows.length; row++) {
+            boolean isFree = true;
+
+            for (int i = row; i < row + ROWS_QUARTER; i++) {
+                isFree &= !usedRows[i];
+            }
+
+            if (isFree) {
+                return row;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     *
+     * @return the cell of a widget using all rows or <code>null</code>, if there is none
+     */
+    @Nullable
+    private WidgetCellModel getFullScreenCell() {
+        for (final WidgetCellModel widgetCell : widgetCells) {
+            if (widgetCell.cellY == 0 && widgetCell.spanY >= WidgetGridLayout.ROW_COUNT) {
+                return widgetCell;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Shrink a full screen widget to the top half, if it overlaps the cell of a new widget.
+     * @param cell the cell of the new widget
+     */
+    private void makeRoom(@NonNull final WidgetCellModel cell) {
+        final WidgetCellModel fullScreenCell = getFullScreenCell();
+
+        if (fullScreenCell != null && cell.cellY < fullScreenCell.cellY + fullScreenCell.spanY) {
+            adjustWidget(fullScreenCell.appWidgetId, WIDGET_LAYOUT_TOP_HALF);
+        }
+    }
+
+    /**
+     * Set a cell to a layout over the full width.
+     * @param cell the cell
+     * @param appWidgetLayout the layout id
+     */
+    private void setPresetCell(@NonNull final WidgetCellModel cell, final int appWidgetLayout) {
+        cell.cellX = 0;
+        cell.spanX = WidgetGridLayout.COLUMN_COUNT;
+        cell.cellY = getPresetCellY(appWidgetLayout);
+        cell.spanY = getPresetSpanY(appWidgetLayout);
+    }
+
+    /**
+     * Persist the cells of all widgets.
+     */
+    private void saveWidgetCells() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        for (final WidgetCellModel cell : widgetCells) {
+            if (stringBuilder.length() > 0) {
+                stringBuilder.append(WIDGET_SEPARATOR);
+            }
+
+            stringBuilder.append(cell.appWidgetId).append(CELL_SEPARATOR)
+                    .append(cell.cellX).append(CELL_SEPARATOR)
+                    .append(cell.cellY).append(CELL_SEPARATOR)
+                    .append(cell.spanX).append(CELL_SEPARATOR)
+                    .append(cell.spanY);
+        }
+
+        sharedPreferencesDAO.putString(KEY_APPWIDGET_CELLS, stringBuilder.toString());
+    }
+
+    /**
+     * Load the cells of all widgets. A widget of a previous version with a single widget is migrated.
+     * @param sharedPreferencesDAO the shared preferences dao
+     * @return the cells of all widgets
+     */
+    @NonNull
+    public static List<WidgetCellModel> loadWidgetCells(@NonNull final SharedPreferencesDAO sharedPreferencesDAO) {
+        final List<WidgetCellModel> cells = new ArrayList<>();
+
+        if (!sharedPreferencesDAO.contains(KEY_APPWIDGET_CELLS)) {
+            final int appWidgetId = sharedPreferencesDAO.getInt(KEY_APPWIDGET_ID, DEFAULT_APPWIDGET_ID);
+
+            if (appWidgetId > -1) {
+                final int appWidgetLayout = sharedPreferencesDAO.getInt(KEY_APPWIDGET_LAYOUT, DEFAULT_APPWIDGET_LAYOUT);
+                final WidgetCellModel cell = new WidgetCellModel();
+
+                cell.appWidgetId = appWidgetId;
+                cell.spanX = WidgetGridLayout.COLUMN_COUNT;
+                cell.cellY = getPresetCellY(appWidgetLayout);
+                cell.spanY = getPresetSpanY(appWidgetLayout);
+                cells.add(cell);
+
+                sharedPreferencesDAO.putString(KEY_APPWIDGET_CELLS, appWidgetId + CELL_SEPARATOR + 0 + CELL_SEPARATOR + cell.cellY
+                        + CELL_SEPARATOR + cell.spanX + CELL_SEPARATOR + cell.spanY);
+            }
+
+            sharedPreferencesDAO.remove(KEY_APPWIDGET_ID);
+            sharedPreferencesDAO.remove(KEY_APPWIDGET_LAYOUT);
+
+            return cells;
+        }
+
+        final StringTokenizer widgetTokenizer = new StringTokenizer(sharedPreferencesDAO.getString(KEY_APPWIDGET_CELLS, ""), WIDGET_SEPARATOR);
+
+        while (widgetTokenizer.hasMoreTokens()) {
+            final WidgetCellModel cell = getWidgetCellModel(widgetTokenizer.nextToken());
+
+            if (cell != null) {
+                cells.add(cell);
+            }
+        }
+
+        return cells;
+    }
+
+    /**
+     * Create a widget cell from a persisted value.
+     * @param value the value, i. e. appWidgetId, cellX, cellY, spanX and spanY divided by the separator
+     * @return the widget cell or <code>null</code>, if the value is not valid
+     */
+    @Nullable
+    private static WidgetCellModel getWidgetCellModel(@NonNull final String value) {
+        final StringTokenizer tokenizer = new StringTokenizer(value, CELL_SEPARATOR);
+
+        if (tokenizer.countTokens() != CELL_VALUE_COUNT) {
+            return null;
+        }
+
+        final WidgetCellModel cell = new WidgetCellModel();
+
+        try {
+            cell.appWidgetId = Integer.parseInt(tokenizer.nextToken());
+            cell.cellX = Integer.parseInt(tokenizer.nextToken());
+            cell.cellY = Integer.parseInt(tokenizer.nextToken());
+            cell.spanX = Integer.parseInt(tokenizer.nextToken());
+            cell.spanY = Integer.parseInt(tokenizer.nextToken());
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+
+        return cell;
+    }
+
+    /**
+     * Returns the first row for a specified layout.
      * @param appWidgetLayout the layout
-     * @return the weight to be specified
+     * @return the first row
      */
-    private int getPreciseTopWeight(final int appWidgetLayout) {
+    private static int getPresetCellY(final int appWidgetLayout) {
         switch (appWidgetLayout) {
             case WIDGET_LAYOUT_CENTER: // widget center with height adjusted
-                return WEIGHT_SUM_THIRD;
+                return ROWS_THIRD;
             case WIDGET_LAYOUT_BOTTOM_HALF: // widget in bottom 1/2
-                return WEIGHT_SUM_HALF;
+                return ROWS_HALF;
             case WIDGET_LAYOUT_BOTTOM_THIRD: // widget in bottom 1/3
-                return WEIGHT_SUM_THIRD * 2;
+                return ROWS_THIRD * 2;
             case WIDGET_LAYOUT_BOTTOM_QUARTER: // widget in bottom 1/4
-                return WEIGHT_SUM_QUARTER * 3;
+                return ROWS_QUARTER * 3;
             default: // default: 0
                 return 0;
         }
     }
 
     /**
-     * Returns the precise widget weight for a specified layout.
+     * Returns the number of rows for a specified layout.
      * @param appWidgetLayout the layout
-     * @return the weight to be specified
+     * @return the number of rows
      */
-    private int getPreciseWidgetWeight(final int appWidgetLayout) {
+    private static int getPresetSpanY(final int appWidgetLayout) {
         switch (appWidgetLayout) {
             case WIDGET_LAYOUT_TOP_QUARTER: // widget in top 1/4
             case WIDGET_LAYOUT_BOTTOM_QUARTER: // widget in bottom 1/4
-                return WEIGHT_SUM_QUARTER;
+                return ROWS_QUARTER;
             case WIDGET_LAYOUT_TOP_THIRD: // widget in top 1/3
             case WIDGET_LAYOUT_BOTTOM_THIRD: // widget in bottom 1/3
             case WIDGET_LAYOUT_CENTER: // widget center with height adjusted
-                return WEIGHT_SUM_THIRD;
+                return ROWS_THIRD;
             case WIDGET_LAYOUT_TOP_HALF: // widget in top 1/2
             case WIDGET_LAYOUT_BOTTOM_HALF: // widget in bottom 1/2
-                return WEIGHT_SUM_HALF;
+                return ROWS_HALF;
             default: // default: full screen
-                return WEIGHT_SUM;
-        }
-    }
-
-    /**
-     * Returns the precise widget weight for a specified layout.
-     * @param appWidgetLayout the layout
-     * @return the weight to be specified
-     */
-    private int getPreciseBottomWeight(final int appWidgetLayout) {
-        switch (appWidgetLayout) {
-            case WIDGET_LAYOUT_TOP_QUARTER: // widget in top 1/4
-                return WEIGHT_SUM_QUARTER * 3;
-            case WIDGET_LAYOUT_TOP_THIRD: // widget in top 1/3
-                return WEIGHT_SUM_THIRD * 2;
-            case WIDGET_LAYOUT_TOP_HALF: // widget in top 1/2
-                return WEIGHT_SUM_HALF;
-            case WIDGET_LAYOUT_CENTER: // widget center with height adjusted
-                return WEIGHT_SUM_THIRD;
-            default: // default: -1
-                return 0;
+                return WidgetGridLayout.ROW_COUNT;
         }
     }
 }
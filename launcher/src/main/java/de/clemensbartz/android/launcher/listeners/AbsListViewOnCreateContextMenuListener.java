@@ -20,7 +20,6 @@ package de.clemensbartz.android.launcher.listeners;
 import android.content.Context;
 import android.content.pm.LauncherApps;
 import android.content.pm.PackageManager;
-import android.content.pm.ShortcutInfo;
 import android.os.Build;
 import android.view.ContextMenu;
 import android.view.MenuItem;
@@ -38,7 +37,7 @@ import de.clemensbartz.android.launcher.controllers.DockController;
 import de.clemensbartz.android.launcher.controllers.DrawerController;
 import de.clemensbartz.android.launcher.models.ApplicationModel;
 import de.clemensbartz.android.launcher.util.IntentUtil;
-import de.clemensbartz.android.launcher.util.LauncherAppsUtil;
+import de.clemensbartz.android.launcher.util.UserHandleUtil;
 
 /**
  * Context Menu Listener for all list views.
@@ -53,6 +52,8 @@ public final class AbsListViewOnCreateContextMenuListener implements View.OnCrea
     private static final int ITEM_PINTO = 2;
     /** Request code for toggle hidden app. */
     private static final int ITEM_TOGGLE_HIDDEN = 3;
+    /** Order of the items, after the shortcuts that may be added after loading. */
+    private static final int ORDER_ITEMS = ContextMenuOnWarmedListener.ORDER_SHORTCUTS + 1;
 
     /** Weak reference to the dock controller. */
     @NonNull
@@ -116,21 +117,28 @@ public final class AbsListViewOnCreateContextMenuListener implements View.OnCrea
 
         // Optionally add Shortcuts
         if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1) {
-            final LauncherApps launcherApps = launcherAppsWeakReference.get();
-
-            for (final ShortcutInfo shortcutInfo : LauncherAppsUtil.getShortcutInfos(launcherApps, applicationModel)) {
-
-                final MenuItem shortInfoMenuItem = contextMenu.add(0, 0, 0, shortcutInfo.getShortLabel());
-                shortInfoMenuItem.setOnMenuItemClickListener(new ShortcutInfoOnMenuItemClickListener(shortcutInfo, launcherApps));
-            }
+            ContextMenuOnWarmedListener.addShortcutInfos(contextMenu, launcherAppsWeakReference.get(), applicationModel);
         }
 
         if (applicationModel.packageName != null) {
-            final MenuItem itemAppInfo = contextMenu.add(0, ITEM_APP_INFO, 0, R.string.showAppInfo);
-            itemAppInfo.setIntent(IntentUtil.newAppDetailsIntent(applicationModel.packageName));
+            final MenuItem itemAppInfo = contextMenu.add(0, ITEM_APP_INFO, ORDER_ITEMS, R.string.showAppInfo);
+
+            if (UserHandleUtil.isMyUserHandle(applicationModel.userHandle)) {
+                itemAppInfo.setIntent(IntentUtil.newAppDetailsIntent(applicationModel.packageName));
+            } else {
+                // Details of other profiles can only be shown via launcher apps
+                itemAppInfo.setOnMenuItemClickListener(new MenuItem.OnMenuItemClickListener() {
+                    @Override
+                    public boolean onMenuItemClick(final MenuItem item) {
+                        UserHandleUtil.startAppDetailsActivity(view.getContext(), applicationModel);
+
+                        return true;
+                    }
+                });
+            }
         }
 
-        final SubMenu pinAppSubMenu = contextMenu.addSubMenu(R.string.pinApp);
+        final SubMenu pinAppSubMenu = contextMenu.addSubMenu(0, ITEM_PINTO, ORDER_ITEMS, R.string.pinApp);
         for (int i = 0; i < DockController.NUMBER_OF_ITEMS; i++) {
             final MenuItem pinAppMenuItem = pinAppSubMenu.add(0, ITEM_PINTO, 0, Integer.toString(i + 1));
 
@@ -152,7 +160,7 @@ public final class AbsListViewOnCreateContextMenuListener implements View.OnCrea
         }
 
         if (drawerController != null) {
-            final MenuItem toggleHiddenItem = contextMenu.add(0, ITEM_TOGGLE_HIDDEN, 0, R.string.hidden);
+            final MenuItem toggleHiddenItem = contextMenu.add(0, ITEM_TOGGLE_HIDDEN, ORDER_ITEMS, R.string.hidden);
             toggleHiddenItem.setCheckable(true);
             toggleHiddenItem.setChecked(applicationModel.hidden);
             toggleHiddenItem.setOnMenuItemClickListener(new MenuItem.OnMenuItemClickListener() {
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.listeners;
+
+import android.widget.AbsListView;
+
+import de.clemensbartz.android.launcher.util.FrameMetricsCollector;
+
+/**
+ * Scroll listener for all list views, which tells the frame metrics collector about scrolling.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class AbsListViewOnScrollListener implements AbsListView.OnScrollListener {
+
+    @Override
+    public void onScrollStateChanged(final AbsListView view, final int scrollState) {
+        FrameMetricsCollector.setScrolling(scrollState != SCROLL_STATE_IDLE);
+    }
+
+    @Override
+    public void onScroll(final AbsListView view, final int firstVisibleItem, final int visibleItemCount, final int totalItemCount) {
+        // Only the state is relevant
+    }
+}
@@ -17,17 +17,17 @@
 
 package de.clemensbartz.android.launcher.listeners;
 
-import android.content.ComponentName;
 import android.content.Context;
-import android.content.Intent;
+import android.os.Build;
 import android.view.View;
 import android.widget.AdapterView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import de.clemensbartz.android.launcher.caches.LaunchCountCache;
 import de.clemensbartz.android.launcher.models.ApplicationModel;
-import de.clemensbartz.android.launcher.util.IntentUtil;
+import de.clemensbartz.android.launcher.util.UserHandleUtil;
 
 /**
  * Listener for handling clicks on items for all {@link AdapterView AdapterViews.}.
@@ -62,13 +62,11 @@ public final class AdapterViewOnItemClickListener implements AdapterView.OnItemC
                 return;
             }
 
-            final ComponentName component = new ComponentName(applicationModel.packageName, applicationModel.className);
-            final Intent intent = new Intent(Intent.ACTION_MAIN);
-            intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-            intent.setComponent(component);
-
-            if (IntentUtil.isCallable(context.getPackageManager(), intent)) {
-                context.startActivity(intent);
+            if (UserHandleUtil.startMainActivity(context, applicationModel)) {
+                // Remember the launch for warming shortcuts
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1) {
+                    LaunchCountCache.getInstance(context).recordLaunch(applicationModel.packageName, applicationModel.userHandle);
+                }
             }
         }
     }
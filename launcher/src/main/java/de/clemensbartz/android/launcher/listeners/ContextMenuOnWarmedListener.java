@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.listeners;
+
+import android.annotation.TargetApi;
+import android.content.pm.LauncherApps;
+import android.content.pm.ShortcutInfo;
+import android.os.Build;
+import android.os.UserHandle;
+import android.view.ContextMenu;
+import android.view.MenuItem;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import de.clemensbartz.android.launcher.R;
+import de.clemensbartz.android.launcher.caches.ShortcutInfoCache;
+import de.clemensbartz.android.launcher.models.ApplicationModel;
+
+/**
+ * Listener for filling an open context menu with the shortcuts of a package, once they
+ * have been loaded into the {@link ShortcutInfoCache}. Until then, the menu shows a loading item.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+@TargetApi(Build.VERSION_CODES.N_MR1)
+@RequiresApi(Build.VERSION_CODES.N_MR1)
+public final class ContextMenuOnWarmedListener implements ShortcutInfoCache.OnWarmedListener {
+
+    /** Order of the shortcut items, other items have to be ordered after them. */
+    public static final int ORDER_SHORTCUTS = 0;
+    /** Request code for shortcuts. */
+    private static final int ITEM_SHORTCUT = 0;
+    /** Request code for the loading item, not used by any other item. */
+    private static final int ITEM_LOADING = -1;
+
+    /** Weak reference to the context menu. */
+    @NonNull
+    private final WeakReference<ContextMenu> contextMenuWeakReference;
+    /** The launcher apps. */
+    @NonNull
+    private final LauncherApps launcherApps;
+    /** The package name. */
+    @Nullable
+    private final String packageName;
+    /** The profile, <code>null</code> for the profile of this process. */
+    @Nullable
+    private final UserHandle userHandle;
+
+    /**
+     * Create a new listener for a context menu.
+     * @param contextMenu the context menu
+     * @param launcherApps the launcher apps
+     * @param packageName the package name
+     * @param userHandle the profile, <code>null</code> for the profile of this process
+     */
+    private ContextMenuOnWarmedListener(
+            @NonNull final ContextMenu contextMenu,
+            @NonNull final LauncherApps launcherApps,
+            @Nullable final String packageName,
+            @Nullable final UserHandle userHandle) {
+
+        this.contextMenuWeakReference = new WeakReference<>(contextMenu);
+        this.launcherApps = launcherApps;
+        this.packageName = packageName;
+        this.userHandle = userHandle;
+    }
+
+    /**
+     * Add the shortcuts of an application to a context menu. Shortcuts are only read from the
+     * cache, never queried on the main thread. If they are not cached, a loading item is shown
+     * and replaced by the shortcuts after they have been loaded.
+     * @param contextMenu the context menu
+     * @param launcherApps the launcher apps, <code>null</code> if shortcuts are not supported
+     * @param applicationModel the application model
+     */
+    public static void addShortcutInfos(@NonNull final ContextMenu contextMenu, @Nullable final LauncherApps launcherApps, @NonNull final ApplicationModel applicationModel) {
+        if (launcherApps == null || applicationModel.packageName == null) {
+            return;
+        }
+
+        final ShortcutInfoCache shortcutInfoCache = ShortcutInfoCache.getInstance();
+        final List<ShortcutInfo> shortcutInfos = shortcutInfoCache.get(applicationModel.packageName, applicationModel.userHandle);
+
+        if (shortcutInfos != null) {
+            addShortcutInfos(contextMenu, launcherApps, shortcutInfos);
+        } else {
+            contextMenu.add(0, ITEM_LOADING, ORDER_SHORTCUTS, R.string.loadingShortcuts).setEnabled(false);
+
+            shortcutInfoCache.warm(
+                    launcherApps,
+                    applicationModel.userHandle,
+                    new ContextMenuOnWarmedListener(contextMenu, launcherApps, applicationModel.packageName, applicationModel.userHandle),
+                    applicationModel.packageName
+            );
+        }
+    }
+
+    /**
+     * Add shortcuts to a context menu.
+     * @param contextMenu the context menu
+     * @param launcherApps the launcher apps
+     * @param shortcutInfos the shortcut infos
+     */
+    private static void addShortcutInfos(@NonNull final ContextMenu contextMenu, @NonNull final LauncherApps launcherApps, @NonNull final List<ShortcutInfo> shortcutInfos) {
+        for (final ShortcutInfo shortcutInfo : shortcutInfos) {
+            final MenuItem shortInfoMenuItem = contextMenu.add(0, ITEM_SHORTCUT, ORDER_SHORTCUTS, shortcutInfo.getShortLabel());
+            shortInfoMenuItem.setOnMenuItemClickListener(new ShortcutInfoOnMenuItemClickListener(shortcutInfo, launcherApps));
+        }
+    }
+
+    @Override
+    public void onWarmed() {
+        final ContextMenu contextMenu = contextMenuWeakReference.get();
+
+        if (contextMenu == null) {
+            return;
+        }
+
+        contextMenu.removeItem(ITEM_LOADING);
+
+        // Without permission, nothing has been cached and the menu stays without shortcuts
+        final List<ShortcutInfo> shortcutInfos = ShortcutInfoCache.getInstance().get(packageName, userHandle);
+
+        if (shortcutInfos != null) {
+            addShortcutInfos(contextMenu, launcherApps, shortcutInfos);
+        }
+    }
+}
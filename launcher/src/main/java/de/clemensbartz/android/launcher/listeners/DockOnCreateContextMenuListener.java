@@ -19,10 +19,8 @@ package de.clemensbartz.android.launcher.listeners;
 
 import android.annotation.TargetApi;
 import android.content.pm.LauncherApps;
-import android.content.pm.ShortcutInfo;
 import android.os.Build;
 import android.view.ContextMenu;
-import android.view.MenuItem;
 import android.view.View;
 import android.widget.ImageView;
 
@@ -33,7 +31,6 @@ import androidx.annotation.RequiresApi;
 import java.lang.ref.WeakReference;
 
 import de.clemensbartz.android.launcher.models.ApplicationModel;
-import de.clemensbartz.android.launcher.util.LauncherAppsUtil;
 
 /**
  * Listener for creating the context menu for dock items.
@@ -65,13 +62,7 @@ public final class DockOnCreateContextMenuListener implements View.OnCreateConte
             contextMenu.setHeaderTitle(applicationModel.label);
 
             if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1) {
-                final LauncherApps launcherApps = launcherAppsWeakReference.get();
-
-                for (final ShortcutInfo shortcutInfo : LauncherAppsUtil.getShortcutInfos(launcherApps, applicationModel)) {
-
-                    final MenuItem shortInfoMenuItem = contextMenu.add(0, 0, 0, shortcutInfo.getShortLabel());
-                    shortInfoMenuItem.setOnMenuItemClickListener(new ShortcutInfoOnMenuItemClickListener(shortcutInfo, launcherApps));
-                }
+                ContextMenuOnWarmedListener.addShortcutInfos(contextMenu, launcherAppsWeakReference.get(), applicationModel);
             }
         }
     }
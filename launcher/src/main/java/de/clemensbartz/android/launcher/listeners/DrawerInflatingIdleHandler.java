@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.clemensbartz.android.launcher.listeners;
+
+import android.os.MessageQueue;
+
+import androidx.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+
+import de.clemensbartz.android.launcher.Launcher;
+
+/**
+ * Idle handler for inflating the drawer, after the home page has been shown.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class DrawerInflatingIdleHandler implements MessageQueue.IdleHandler {
+
+    /** Weak reference to the launcher. */
+    @NonNull
+    private final WeakReference<Launcher> launcherWeakReference;
+
+    /**
+     * Create a new idle handler.
+     * @param launcher the launcher
+     */
+    public DrawerInflatingIdleHandler(@NonNull final Launcher launcher) {
+        this.launcherWeakReference = new WeakReference<>(launcher);
+    }
+
+    @Override
+    public boolean queueIdle() {
+        final Launcher launcher = launcherWeakReference.get();
+
+        if (launcher != null && !launcher.isFinishing() && !launcher.isDestroyed()) {
+            launcher.inflateDrawer();
+        }
+
+        // Only inflate once
+        return false;
+    }
+}
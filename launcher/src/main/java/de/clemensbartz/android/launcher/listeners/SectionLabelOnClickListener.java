@@ -18,7 +18,7 @@
 package de.clemensbartz.android.launcher.listeners;
 
 import android.view.View;
-import android.widget.ListView;
+import android.widget.AbsListView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -34,7 +34,7 @@ public final class SectionLabelOnClickListener implements View.OnClickListener {
 
     /** The weak reference to the list view. */
     @NonNull
-    private final WeakReference<ListView> listViewWeakReference;
+    private final WeakReference<AbsListView> listViewWeakReference;
     /** The position to smoothly scroll to. */
     private final int position;
 
@@ -43,14 +43,14 @@ public final class SectionLabelOnClickListener implements View.OnClickListener {
      * @param listView the list view to click
      * @param position the position to scroll to
      */
-    public SectionLabelOnClickListener(@Nullable final ListView listView, final int position) {
+    public SectionLabelOnClickListener(@Nullable final AbsListView listView, final int position) {
         this.listViewWeakReference = new WeakReference<>(listView);
         this.position = position;
     }
 
     @Override
     public void onClick(@Nullable final View v) {
-        final ListView listView = listViewWeakReference.get();
+        final AbsListView listView = listViewWeakReference.get();
 
         if (listView != null) {
             listView.smoothScrollToPosition(position);
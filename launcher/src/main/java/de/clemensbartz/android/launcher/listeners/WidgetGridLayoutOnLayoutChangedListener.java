@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.listeners;
+
+import androidx.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+
+import de.clemensbartz.android.launcher.controllers.WidgetController;
+import de.clemensbartz.android.launcher.views.WidgetGridLayout;
+
+/**
+ * Listener for updating the widget options after the widget grid has been laid out.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class WidgetGridLayoutOnLayoutChangedListener implements WidgetGridLayout.OnLayoutChangedListener {
+
+    /** Weak reference to the widget controller. */
+    @NonNull
+    private final WeakReference<WidgetController> widgetControllerWeakReference;
+
+    /**
+     * Create a new listener for the widget grid.
+     * @param widgetController the widget controller
+     */
+    public WidgetGridLayoutOnLayoutChangedListener(@NonNull final WidgetController widgetController) {
+        this.widgetControllerWeakReference = new WeakReference<>(widgetController);
+    }
+
+    @Override
+    public void onLayoutChanged(@NonNull final WidgetGridLayout widgetGridLayout) {
+        final WidgetController widgetController = widgetControllerWeakReference.get();
+
+        if (widgetController != null) {
+            widgetController.updateAppWidgetOptions();
+        }
+    }
+}
@@ -17,6 +17,9 @@
 
 package de.clemensbartz.android.launcher.models;
 
+import android.content.ComponentName;
+import android.os.UserHandle;
+
 import androidx.annotation.Nullable;
 
 /**
@@ -35,4 +38,16 @@ public final class ApplicationModel {
     public @Nullable String className;
     /** The hidden flag. */
     public boolean hidden;
+    /** The user profile, <code>null</code> for the profile of this process. */
+    public @Nullable UserHandle userHandle;
+    /** The serial number of the user profile, used for persisting profile-specific settings. */
+    public long userSerialNumber;
+    /** The stable id of the component in the drawer, <code>-1</code> if not assigned yet. */
+    public long stableId = -1;
+    /** The label laid out in the background for the drawer, <code>null</code> if not laid out yet. */
+    public @Nullable CharSequence precomputedLabel;
+    /** The component, created on first use. */
+    public @Nullable ComponentName componentName;
+    /** The key of the component and profile in the icon cache, created on first use. */
+    public @Nullable String iconKey;
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.clemensbartz.android.launcher.models;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Model for a pinned dock item, which has been checked against the installed apps. For
+ * performance reasons, this class will be excluded from CheckStyle checks.
+ *
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class DockPinModel {
+    /** The pinned application model, <code>null</code> if nothing valid is pinned. */
+    public @Nullable ApplicationModel applicationModel;
+    /** The state of the pin, see {@link de.clemensbartz.android.launcher.controllers.DockController#PIN_SHOWN}. */
+    public int state;
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.clemensbartz.android.launcher.models;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+
+import de.clemensbartz.android.launcher.controllers.ViewController;
+
+/**
+ * Immutable snapshot of the settings of the launcher. The settings are loaded from disk in the
+ * background, so the launcher starts with the {@link #DEFAULT} settings and applies the loaded
+ * snapshot afterwards.
+ *
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class SettingsModel {
+    /** The settings before loading. */
+    @NonNull
+    public static final SettingsModel DEFAULT = new SettingsModel(ViewController.GRID_ID, false, Collections.<WidgetCellModel>emptyList());
+
+    /** The id of the drawer layout, i. e. grid or list. */
+    public final int drawerLayout;
+    /** If all dock icons are shown regardless of the screen. */
+    public final boolean showingAllDockIcons;
+    /** The unmodifiable cells of all widgets, which are handed over to the widget controller. */
+    @NonNull
+    public final List<WidgetCellModel> widgetCells;
+
+    /**
+     * Create a new snapshot.
+     * @param drawerLayout the id of the drawer layout
+     * @param showingAllDockIcons if all dock icons are shown
+     * @param widgetCells the cells of all widgets
+     */
+    public SettingsModel(final int drawerLayout, final boolean showingAllDockIcons, @NonNull final List<WidgetCellModel> widgetCells) {
+        this.drawerLayout = drawerLayout;
+        this.showingAllDockIcons = showingAllDockIcons;
+        this.widgetCells = Collections.unmodifiableList(widgetCells);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.models;
+
+/**
+ * Model for the cells a widget spans in the widget grid. For performance reasons, this class
+ * will be excluded from CheckStyle checks.
+ *
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class WidgetCellModel {
+    /** The app widget id. */
+    public int appWidgetId;
+    /** The first column. */
+    public int cellX;
+    /** The first row. */
+    public int cellY;
+    /** The number of columns. */
+    public int spanX;
+    /** The number of rows. */
+    public int spanY;
+    /** The width in dp last reported to the widget, not persisted. */
+    public int reportedWidth;
+    /** The height in dp last reported to the widget, not persisted. */
+    public int reportedHeight;
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.models;
+
+import android.content.ComponentName;
+
+import androidx.annotation.Nullable;
+
+import java.text.CollationKey;
+
+/**
+ * Model for widget providers. For performance reasons, this class will be excluded from
+ * CheckStyle checks.
+ *
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class WidgetProviderModel {
+    /** The localized label. */
+    public @Nullable String label;
+    /** The provider component. */
+    public @Nullable ComponentName provider;
+    /** The configure component. */
+    public @Nullable ComponentName configure;
+    /** The collation key of the label for sorting. */
+    public @Nullable CollationKey collationKey;
+}
@@ -23,15 +23,16 @@ import android.graphics.Color;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.View;
+import android.widget.AbsListView;
 import android.widget.ArrayAdapter;
 import android.widget.LinearLayout;
-import android.widget.ListView;
 import android.widget.SectionIndexer;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 
 import de.clemensbartz.android.launcher.listeners.SectionLabelOnClickListener;
+import de.clemensbartz.android.launcher.util.FrameMetricsCollector;
 
 /**
  * Observer to update sections in a vertical linear layout.
@@ -53,7 +54,7 @@ public final class LinearLayoutSectionsObserver<T extends ArrayAdapter & Section
     private final Context context;
     /** The list view to see the sections. */
     @NonNull
-    private final ListView listView;
+    private final AbsListView listView;
     /** The linear layout to update. */
     @NonNull
     private final LinearLayout linearLayout;
@@ -74,7 +75,7 @@ public final class LinearLayoutSectionsObserver<T extends ArrayAdapter & Section
     public LinearLayoutSectionsObserver(
             @NonNull final Context context,
             final int actionBarHeight,
-            @NonNull final ListView listView,
+            @NonNull final AbsListView listView,
             @NonNull final LinearLayout linearLayout,
             @NonNull final T sectionedArrayAdapter) {
 
@@ -85,6 +86,22 @@ public final class LinearLayoutSectionsObserver<T extends ArrayAdapter & Section
         this.actionBarHeight = actionBarHeight;
 
         sectionedArrayAdapter.registerDataSetObserver(this);
+
+        // Sections can only be created after the linear layout has a height, e. g. after it has been shown
+        linearLayout.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(final View v, final int left, final int top, final int right, final int bottom,
+                                       final int oldLeft, final int oldTop, final int oldRight, final int oldBottom) {
+                if (bottom - top != oldBottom - oldTop) {
+                    v.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onChanged();
+                        }
+                    });
+                }
+            }
+        });
     }
 
     @Override
@@ -95,6 +112,8 @@ public final class LinearLayoutSectionsObserver<T extends ArrayAdapter & Section
             return;
         }
 
+        FrameMetricsCollector.markOperation(FrameMetricsCollector.OPERATION_SECTIONS);
+
         final Object[] sections = sectionedArrayAdapter.getSections();
 
         // Reduce number of child views according to sections
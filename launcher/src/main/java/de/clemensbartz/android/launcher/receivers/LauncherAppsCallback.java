@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.receivers;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.pm.LauncherApps;
+import android.content.pm.ShortcutInfo;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.os.UserHandle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import de.clemensbartz.android.launcher.adapters.DrawerListAdapter;
+import de.clemensbartz.android.launcher.caches.IconCache;
+import de.clemensbartz.android.launcher.caches.LaunchCountCache;
+import de.clemensbartz.android.launcher.caches.ShortcutInfoCache;
+import de.clemensbartz.android.launcher.caches.WidgetProviderCache;
+import de.clemensbartz.android.launcher.controllers.DockController;
+import de.clemensbartz.android.launcher.controllers.DrawerController;
+import de.clemensbartz.android.launcher.tasks.LoadDrawerListAdapterTask;
+import de.clemensbartz.android.launcher.tasks.UpdatePackageTask;
+import de.clemensbartz.android.launcher.util.Bootstrap;
+import de.clemensbartz.android.launcher.util.UserHandleUtil;
+
+/**
+ * Callback for changes reported by {@link LauncherApps}. Every change is applied to the affected
+ * package only, instead of loading the whole drawer and dock again. This replaces the
+ * {@link PackageChangedBroadcastReceiver} on devices supporting launcher apps.
+ * <br/>
+ * This class only holds weak references and needs to be updated on every "create" event
+ * before registering this callback.
+ * <br/>
+ * This class is intended to live forever.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+@TargetApi(Build.VERSION_CODES.N_MR1)
+@RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+public final class LauncherAppsCallback extends LauncherApps.Callback {
+
+    /** The instance of the callback. */
+    @Nullable
+    private static LauncherAppsCallback instance;
+
+    /** Weak reference to the launcher apps. */
+    @NonNull
+    private WeakReference<LauncherApps> launcherAppsWeakReference;
+    /** Weak reference to the context. */
+    @NonNull
+    private WeakReference<Context> contextWeakReference;
+    /** Weak reference to the dock controller. */
+    @NonNull
+    private WeakReference<DockController> dockControllerWeakReference;
+    /** Weak reference to the drawer controller. */
+    @NonNull
+    private WeakReference<DrawerController> drawerControllerWeakReference;
+    /** Weak reference to the drawer list adapter. */
+    @NonNull
+    private WeakReference<DrawerListAdapter> drawerListAdapterWeakReference;
+
+    /**
+     * Create a new callback.
+     */
+    private LauncherAppsCallback() {
+        this.launcherAppsWeakReference = new WeakReference<>(null);
+        this.contextWeakReference = new WeakReference<>(null);
+        this.dockControllerWeakReference = new WeakReference<>(null);
+        this.drawerControllerWeakReference = new WeakReference<>(null);
+        this.drawerListAdapterWeakReference = new WeakReference<>(null);
+    }
+
+    /**
+     *
+     * @return the instance of the callback
+     */
+    @NonNull
+    public static LauncherAppsCallback getInstance() {
+        if (instance == null) {
+            instance = new LauncherAppsCallback();
+        }
+
+        return instance;
+    }
+
+    @Override
+    public void onPackageRemoved(@Nullable final String packageName, @Nullable final UserHandle user) {
+        invalidatePackageCaches();
+        invalidateShortcutInfos(packageName, user, false);
+        removePackage(packageName, user, true);
+
+        // Uninstalled apps must not be warmed as top launched ones
+        final Context context = contextWeakReference.get();
+
+        if (packageName != null && context != null && UserHandleUtil.isMyUserHandle(user)) {
+            LaunchCountCache.getInstance(context).remove(packageName);
+        }
+    }
+
+    @Override
+    public void onPackageAdded(@Nullable final String packageName, @Nullable final UserHandle user) {
+        invalidatePackageCaches();
+        invalidateShortcutInfos(packageName, user, false);
+        updatePackage(packageName, user);
+    }
+
+    @Override
+    public void onPackageChanged(@Nullable final String packageName, @Nullable final UserHandle user) {
+        invalidatePackageCaches();
+        invalidateShortcutInfos(packageName, user, true);
+        updatePackage(packageName, user);
+    }
+
+    @Override
+    public void onPackagesAvailable(@Nullable final String[] packageNames, @Nullable final UserHandle user, final boolean replacing) {
+        if (packageNames == null) {
+            return;
+        }
+
+        invalidatePackageCaches();
+
+        for (final String packageName : packageNames) {
+            updatePackage(packageName, user);
+        }
+    }
+
+    @Override
+    public void onPackagesUnavailable(@Nullable final String[] packageNames, @Nullable final UserHandle user, final boolean replacing) {
+        if (packageNames == null) {
+            return;
+        }
+
+        invalidatePackageCaches();
+
+        for (final String packageName : packageNames) {
+            invalidateShortcutInfos(packageName, user, false);
+
+            // Packages being replaced will be available again shortly
+            if (!replacing) {
+                removePackage(packageName, user, false);
+            }
+        }
+    }
+
+    @Override
+    public void onPackagesSuspended(@Nullable final String[] packageNames, @Nullable final UserHandle user) {
+        onPackagesAvailable(packageNames, user, false);
+    }
+
+    @Override
+    public void onPackagesUnsuspended(@Nullable final String[] packageNames, @Nullable final UserHandle user) {
+        onPackagesAvailable(packageNames, user, false);
+    }
+
+    @Override
+    public void onShortcutsChanged(@NonNull final String packageName, @NonNull final List<ShortcutInfo> shortcuts, @NonNull final UserHandle user) {
+        // The given shortcuts only contain key fields, so labels need to be loaded again.
+        invalidateShortcutInfos(packageName, user, true);
+    }
+
+    /**
+     * Query the activities of a package again and apply them to the drawer and the dock.
+     * @param packageName the package name
+     * @param user the profile of the package
+     */
+    private void updatePackage(@Nullable final String packageName, @Nullable final UserHandle user) {
+        if (packageName == null || user == null) {
+            return;
+        }
+
+        if (isReloadingDrawer()) {
+            reloadDrawer();
+
+            return;
+        }
+
+        new UpdatePackageTask(
+                contextWeakReference.get(),
+                drawerControllerWeakReference.get(),
+                drawerListAdapterWeakReference.get(),
+                dockControllerWeakReference.get(),
+                packageName,
+                user
+        ).executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+    }
+
+    /**
+     * Remove a package from the drawer, the dock and the icon cache.
+     * @param packageName the package name
+     * @param user the profile of the package
+     * @param unpin if dock items should be unpinned, otherwise they are only cleared
+     */
+    private void removePackage(@Nullable final String packageName, @Nullable final UserHandle user, final boolean unpin) {
+        if (packageName == null || user == null) {
+            return;
+        }
+
+        // Removed apps would otherwise keep their icons until they are evicted
+        IconCache.getInstance().removePackage(packageName);
+
+        if (isReloadingDrawer()) {
+            reloadDrawer();
+        } else {
+            final DrawerListAdapter drawerListAdapter = drawerListAdapterWeakReference.get();
+
+            if (drawerListAdapter != null) {
+                drawerListAdapter.removePackage(packageName, user);
+                drawerListAdapter.filter();
+            }
+        }
+
+        final DockController dockController = dockControllerWeakReference.get();
+
+        if (dockController != null) {
+            if (unpin) {
+                dockController.updatePackage(packageName);
+            } else {
+                dockController.clearPackage(packageName, user);
+            }
+        }
+    }
+
+    /**
+     *
+     * @return if the drawer is currently loaded completely
+     */
+    private boolean isReloadingDrawer() {
+        final LoadDrawerListAdapterTask runningTask = LoadDrawerListAdapterTask.getRunningTask();
+
+        return runningTask != null && !runningTask.isCancelled() && runningTask.getStatus() != AsyncTask.Status.FINISHED;
+    }
+
+    /**
+     * Load the drawer completely again. Used while a previous loading is still in progress,
+     * as changes to single packages would otherwise interfere with it.
+     */
+    private void reloadDrawer() {
+        final Context context = contextWeakReference.get();
+        final DrawerController drawerController = drawerControllerWeakReference.get();
+        final DrawerListAdapter drawerListAdapter = drawerListAdapterWeakReference.get();
+
+        if (context == null || drawerController == null || drawerListAdapter == null) {
+            return;
+        }
+
+        if (LoadDrawerListAdapterTask.getRunningTask() != null) {
+            LoadDrawerListAdapterTask.getRunningTask().cancel(true);
+        }
+
+        final LoadDrawerListAdapterTask loadDrawerListAdapterTask = new LoadDrawerListAdapterTask(context, drawerController, drawerListAdapter);
+        LoadDrawerListAdapterTask.setRunningTask(loadDrawerListAdapterTask);
+        loadDrawerListAdapterTask.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+    }
+
+    /**
+     * Drop the cached widget providers and the activities and dock pins checked at process start,
+     * as providers and activities may have been added or removed.
+     */
+    private void invalidatePackageCaches() {
+        WidgetProviderCache.getInstance().invalidate(contextWeakReference.get());
+        Bootstrap.getInstance().dropActivityLists();
+        Bootstrap.getInstance().dropDockPins();
+    }
+
+    /**
+     * Remove cached shortcut infos for a package and optionally load them again, if they were cached before.
+     * @param packageName the package name
+     * @param user the profile of the package
+     * @param reload if the shortcut infos should be loaded again
+     */
+    private void invalidateShortcutInfos(@Nullable final String packageName, @Nullable final UserHandle user, final boolean reload) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N_MR1 || packageName == null) {
+            return;
+        }
+
+        final ShortcutInfoCache shortcutInfoCache = ShortcutInfoCache.getInstance();
+        final boolean wasCached = shortcutInfoCache.contains(packageName, user);
+
+        shortcutInfoCache.remove(packageName, user);
+
+        if (reload && wasCached) {
+            shortcutInfoCache.warm(launcherAppsWeakReference.get(), user, packageName);
+        }
+    }
+
+    /**
+     * Set the new launcher apps.
+     * @param launcherApps the launcher apps or <code>null</code>, to erase it
+     */
+    public void setLauncherApps(@Nullable final LauncherApps launcherApps) {
+        launcherAppsWeakReference = new WeakReference<>(launcherApps);
+    }
+
+    /**
+     * Set the new context.
+     * @param context the context or <code>null</code>, to erase it
+     */
+    public void setContext(@Nullable final Context context) {
+        contextWeakReference = new WeakReference<>(context);
+    }
+
+    /**
+     * Set the new dock controller.
+     * @param dockController the dock controller or <code>null</code>, to erase it
+     */
+    public void setDockController(@Nullable final DockController dockController) {
+        dockControllerWeakReference = new WeakReference<>(dockController);
+    }
+
+    /**
+     * Set the new drawer controller.
+     * @param drawerController the drawer controller or <code>null</code>, to erase it
+     */
+    public void setDrawerController(@Nullable final DrawerController drawerController) {
+        drawerControllerWeakReference = new WeakReference<>(drawerController);
+    }
+
+    /**
+     * Set the new drawer list adapter.
+     * @param drawerListAdapter the drawer list adapter or <code>null</code>, to erase it
+     */
+    public void setDrawerListAdapter(@Nullable final DrawerListAdapter drawerListAdapter) {
+        drawerListAdapterWeakReference = new WeakReference<>(drawerListAdapter);
+    }
+}
@@ -28,16 +28,21 @@ import androidx.annotation.Nullable;
 import java.lang.ref.WeakReference;
 
 import de.clemensbartz.android.launcher.adapters.DrawerListAdapter;
+import de.clemensbartz.android.launcher.caches.IconCache;
+import de.clemensbartz.android.launcher.caches.WidgetProviderCache;
 import de.clemensbartz.android.launcher.controllers.DockController;
 import de.clemensbartz.android.launcher.controllers.DrawerController;
 import de.clemensbartz.android.launcher.daos.SharedPreferencesDAO;
 import de.clemensbartz.android.launcher.tasks.LoadDockTask;
 import de.clemensbartz.android.launcher.tasks.LoadDrawerListAdapterTask;
+import de.clemensbartz.android.launcher.util.Bootstrap;
 
 /**
  * Receiver for listening for changed packages. This class only holds weak references and
  * needs to be updated on every "start" event before registering this receiver.
  * <br/>
+ * This receiver is only used on API 17 to 20. Newer versions use the {@link LauncherAppsCallback}.
+ * <br/>
  * This class is intended to live forever.
  * @author Clemens Bartz
  * @since 2.0
@@ -86,6 +91,27 @@ public final class PackageChangedBroadcastReceiver extends BroadcastReceiver {
 
     @Override
     public void onReceive(@Nullable final Context context, @Nullable final Intent intent) {
+        // Drop widget providers and the dock pins checked at process start
+        WidgetProviderCache.getInstance().invalidate(context);
+        Bootstrap.getInstance().dropDockPins();
+
+        final DrawerListAdapter drawerListAdapter = drawerListAdapterWeakReference.get();
+
+        // Drop icons of the changed package
+        if (intent != null && intent.getData() != null && intent.getData().getSchemeSpecificPart() != null) {
+            IconCache.getInstance().removePackage(intent.getData().getSchemeSpecificPart());
+
+            if (drawerListAdapter != null) {
+                drawerListAdapter.invalidateIcons(intent.getData().getSchemeSpecificPart());
+            }
+        } else {
+            IconCache.getInstance().clear();
+
+            if (drawerListAdapter != null) {
+                drawerListAdapter.invalidateIcons(null);
+            }
+        }
+
         // Update dock
         final DockController dockController = dockControllerWeakReference.get();
         final SharedPreferencesDAO sharedPreferencesDAO = sharedPreferencesDAOWeakReference.get();
@@ -102,7 +128,6 @@ public final class PackageChangedBroadcastReceiver extends BroadcastReceiver {
 
         // Update drawer
         final DrawerController drawerController = drawerControllerWeakReference.get();
-        final DrawerListAdapter drawerListAdapter = drawerListAdapterWeakReference.get();
 
         if (drawerController != null && drawerListAdapter != null && context != null) {
             if (LoadDrawerListAdapterTask.getRunningTask() != null) {
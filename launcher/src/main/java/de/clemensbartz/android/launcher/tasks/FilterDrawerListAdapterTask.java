@@ -25,6 +25,7 @@ import androidx.annotation.Nullable;
 import java.lang.ref.WeakReference;
 
 import de.clemensbartz.android.launcher.adapters.DrawerListAdapter;
+import de.clemensbartz.android.launcher.util.StartupTracer;
 
 /**
  * Task for filtering the drawer list adapter.
@@ -56,7 +57,10 @@ public final class FilterDrawerListAdapterTask extends AsyncTask<Integer, Intege
         final DrawerListAdapter drawerListAdapter = drawerListAdapterWeakReference.get();
 
         if (drawerListAdapter != null) {
+            // Only the first filter after a start is recorded
+            StartupTracer.getInstance().beginPhase(StartupTracer.PHASE_FIRST_FILTER);
             drawerListAdapter.filter();
+            StartupTracer.getInstance().endPhase(StartupTracer.PHASE_FIRST_FILTER);
         }
     }
 }
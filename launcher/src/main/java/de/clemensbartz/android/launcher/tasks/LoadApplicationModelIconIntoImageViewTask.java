@@ -18,9 +18,15 @@
 package de.clemensbartz.android.launcher.tasks;
 
 import android.content.ComponentName;
+import android.content.pm.LauncherActivityInfo;
+import android.content.pm.LauncherApps;
 import android.content.pm.PackageManager;
 import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.RippleDrawable;
 import android.os.AsyncTask;
@@ -30,8 +36,13 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.lang.ref.WeakReference;
+import java.util.concurrent.RejectedExecutionException;
 
+import de.clemensbartz.android.launcher.caches.IconCache;
 import de.clemensbartz.android.launcher.models.ApplicationModel;
+import de.clemensbartz.android.launcher.util.IntentUtil;
+import de.clemensbartz.android.launcher.util.LowRamUtil;
+import de.clemensbartz.android.launcher.util.UserHandleUtil;
 
 /**
  * Task for loading icons of applications models into an image view.
@@ -40,6 +51,12 @@ import de.clemensbartz.android.launcher.models.ApplicationModel;
  */
 public final class LoadApplicationModelIconIntoImageViewTask extends AsyncTask<Integer, Integer, Drawable> {
 
+    /** The color of the ripple of icons, shared by all icons. */
+    @NonNull
+    private static final ColorStateList RIPPLE_COLOR = ColorStateList.valueOf(Color.GRAY);
+    /** The size of the largest icon view in dp, the size icons are scaled to in the low-RAM mode. */
+    private static final int LOW_RAM_ICON_SIZE_DP = 55;
+
     /** The image view where to load the icons into. */
     @NonNull
     private final WeakReference<ImageView> imageViewWeakReference;
@@ -49,6 +66,9 @@ public final class LoadApplicationModelIconIntoImageViewTask extends AsyncTask<I
     /** The package manager handling all operations. */
     @NonNull
     private final PackageManager packageManager;
+    /** The launcher apps for loading icons of other profiles. */
+    @Nullable
+    private final LauncherApps launcherApps;
     /** A default drawable to show if no icon could be loaded. */
     @NonNull
     private final Drawable defaultDrawable;
@@ -58,31 +78,175 @@ public final class LoadApplicationModelIconIntoImageViewTask extends AsyncTask<I
      * @param imageView the image view
      * @param applicationModel the application model
      * @param packageManager the package manager
+     * @param launcherApps the launcher apps for icons of other profiles, <code>null</code> before Lollipop
      * @param defaultDrawable the default drawable if no image could be found
      */
     public LoadApplicationModelIconIntoImageViewTask(
             @Nullable final ImageView imageView,
             @NonNull final ApplicationModel applicationModel,
             @NonNull final PackageManager packageManager,
+            @Nullable final LauncherApps launcherApps,
             @NonNull final Drawable defaultDrawable) {
 
         this.imageViewWeakReference = new WeakReference<>(imageView);
         this.applicationModel = applicationModel;
         this.packageManager = packageManager;
+        this.launcherApps = launcherApps;
         this.defaultDrawable = defaultDrawable;
     }
 
+    /**
+     * Show the icon of an application model in an image view. Cached icons are shown at once,
+     * otherwise the icon is loaded by a new task.
+     * @param imageView the image view
+     * @param applicationModel the application model
+     * @param packageManager the package manager
+     * @param launcherApps the launcher apps for icons of other profiles, <code>null</code> before Lollipop
+     * @param defaultDrawable the default drawable if no image could be found
+     */
+    public static void loadInto(
+            @NonNull final ImageView imageView,
+            @NonNull final ApplicationModel applicationModel,
+            @NonNull final PackageManager packageManager,
+            @Nullable final LauncherApps launcherApps,
+            @NonNull final Drawable defaultDrawable) {
+
+        final Drawable drawable = IconCache.getInstance().get(applicationModel, imageView.getResources());
+
+        if (drawable != null) {
+            imageView.setImageDrawable(wrap(drawable));
+
+            return;
+        }
+
+        final LoadApplicationModelIconIntoImageViewTask task = new LoadApplicationModelIconIntoImageViewTask(imageView, applicationModel, packageManager, launcherApps, defaultDrawable);
+
+        // Load one icon after another in the low-RAM mode
+        if (LowRamUtil.isLowRamDevice()) {
+            task.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+
+            return;
+        }
+
+        try {
+            // Try to load via parallel execution
+            task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        } catch (final RejectedExecutionException exception) {
+            // Otherwise (e. g. queue is full) load via serial execution
+            task.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+        }
+    }
+
+    /**
+     * Wrap an icon for showing it in an image view. Icons are not wrapped in the low-RAM mode.
+     * @param drawable the icon
+     * @return the drawable to show
+     */
+    @NonNull
+    public static Drawable wrap(@NonNull final Drawable drawable) {
+        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.LOLLIPOP && !LowRamUtil.isLowRamDevice()) {
+            return new RippleDrawable(RIPPLE_COLOR, drawable, null);
+        }
+
+        return drawable;
+    }
+
     @Override
     @Nullable
     protected Drawable doInBackground(@Nullable final Integer... integers) {
+        return loadIcon(applicationModel, packageManager, launcherApps);
+    }
+
+    /**
+     * Load the icon of an application model into the {@link IconCache}. Must not be called on the
+     * main thread.
+     * @param applicationModel the application model
+     * @param packageManager the package manager
+     * @param launcherApps the launcher apps for icons of other profiles, <code>null</code> before Lollipop
+     * @return the icon or <code>null</code>, if it could not be loaded
+     */
+    @Nullable
+    public static Drawable loadIcon(
+            @NonNull final ApplicationModel applicationModel,
+            @NonNull final PackageManager packageManager,
+            @Nullable final LauncherApps launcherApps) {
+
+        Drawable drawable = loadUncachedIcon(applicationModel, packageManager, launcherApps);
+
+        if (drawable != null && LowRamUtil.isLowRamDevice()) {
+            drawable = scaleDown(drawable);
+        }
+
+        if (drawable != null) {
+            IconCache.getInstance().put(applicationModel, drawable);
+        }
+
+        return drawable;
+    }
+
+    /**
+     * Draw an icon into a bitmap of the largest icon view, if it is larger.
+     * @param drawable the icon
+     * @return the scaled icon or the icon, if it is not larger
+     */
+    @NonNull
+    private static Drawable scaleDown(@NonNull final Drawable drawable) {
+        final Resources resources = Resources.getSystem();
+        final int size = Math.round(LOW_RAM_ICON_SIZE_DP * resources.getDisplayMetrics().density);
+        final int width = drawable.getIntrinsicWidth();
+        final int height = drawable.getIntrinsicHeight();
+
+        if (width <= size && height <= size) {
+            return drawable;
+        }
+
+        // Keep the aspect ratio
+        final float scale = (float) size / Math.max(width, height);
+        final Bitmap bitmap = Bitmap.createBitmap(Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale)), Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+
+        drawable.setBounds(0, 0, bitmap.getWidth(), bitmap.getHeight());
+        drawable.draw(canvas);
+
+        return new BitmapDrawable(resources, bitmap);
+    }
+
+    /**
+     * Load the icon of an application model.
+     * @param applicationModel the application model
+     * @param packageManager the package manager
+     * @param launcherApps the launcher apps for icons of other profiles, <code>null</code> before Lollipop
+     * @return the icon or <code>null</code>, if it could not be loaded
+     */
+    @Nullable
+    private static Drawable loadUncachedIcon(
+            @NonNull final ApplicationModel applicationModel,
+            @NonNull final PackageManager packageManager,
+            @Nullable final LauncherApps launcherApps) {
+
         if (applicationModel.packageName == null || applicationModel.className == null) {
             return null;
         }
 
-        final ComponentName componentName = new ComponentName(applicationModel.packageName, applicationModel.className);
+        // Apps of other profiles are not known to the package manager and get a badge
+        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.LOLLIPOP && !UserHandleUtil.isMyUserHandle(applicationModel.userHandle)) {
+            if (launcherApps == null) {
+                return null;
+            }
+
+            final LauncherActivityInfo launcherActivityInfo = launcherApps.resolveActivity(
+                    IntentUtil.newAppMainIntent(applicationModel.packageName, applicationModel.className),
+                    applicationModel.userHandle);
+
+            return (launcherActivityInfo != null) ? launcherActivityInfo.getBadgedIcon(0) : null;
+        }
+
+        if (applicationModel.componentName == null) {
+            applicationModel.componentName = new ComponentName(applicationModel.packageName, applicationModel.className);
+        }
 
         try {
-            return packageManager.getActivityIcon(componentName);
+            return packageManager.getActivityIcon(applicationModel.componentName);
         } catch (final PackageManager.NameNotFoundException e) {
             return null;
         }
@@ -92,18 +256,9 @@ public final class LoadApplicationModelIconIntoImageViewTask extends AsyncTask<I
     protected void onPostExecute(@Nullable final Drawable drawable) {
         final ImageView imageView = imageViewWeakReference.get();
 
-        if (imageView != null) {
-            Drawable imageDrawable = drawable;
-
-            if (drawable == null) {
-                imageDrawable = defaultDrawable;
-            }
-
-            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.LOLLIPOP) {
-                imageDrawable = new RippleDrawable(ColorStateList.valueOf(Color.GRAY), imageDrawable, null);
-            }
-
-            imageView.setImageDrawable(imageDrawable);
+        // Skip image views, which show another application model in the meantime
+        if (imageView != null && imageView.getTag() == applicationModel) {
+            imageView.setImageDrawable(wrap((drawable != null) ? drawable : defaultDrawable));
         }
     }
 }
@@ -17,20 +17,28 @@
 
 package de.clemensbartz.android.launcher.tasks;
 
+import android.content.pm.LauncherApps;
+import android.content.pm.PackageManager;
 import android.os.AsyncTask;
+import android.os.UserManager;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.lang.ref.WeakReference;
-import java.util.StringTokenizer;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import de.clemensbartz.android.launcher.controllers.DockController;
 import de.clemensbartz.android.launcher.daos.SharedPreferencesDAO;
-import de.clemensbartz.android.launcher.models.ApplicationModel;
+import de.clemensbartz.android.launcher.models.DockPinModel;
+import de.clemensbartz.android.launcher.util.Bootstrap;
 
 /**
- * This task will load the items in the dock.
+ * This task will load the items in the dock. The pins are checked against the installed apps in
+ * the background. The pins checked by the {@link Bootstrap} at process start are taken instead,
+ * if they are still available.
  * @author Clemens Bartz
  * @since 2.0
  */
@@ -46,6 +54,15 @@ public final class LoadDockTask extends AsyncTask<Integer, LoadDockTask.LoadDock
     /** Weak reference for the dock controller. */
     @NonNull
     private final WeakReference<DockController> dockControllerWeakReference;
+    /** The user manager for pins of other profiles. */
+    @Nullable
+    private final UserManager userManager;
+    /** The package manager for checking pins. */
+    @Nullable
+    private final PackageManager packageManager;
+    /** The launcher apps for checking pins of other profiles. */
+    @Nullable
+    private final LauncherApps launcherApps;
 
     /**
      * Create a new task to load all dock items.
@@ -55,6 +72,9 @@ public final class LoadDockTask extends AsyncTask<Integer, LoadDockTask.LoadDock
     public LoadDockTask(@Nullable final SharedPreferencesDAO sharedPreferencesDAO, @Nullable final DockController dockController) {
         sharedPreferencesDAOWeakReference = new WeakReference<>(sharedPreferencesDAO);
         dockControllerWeakReference = new WeakReference<>(dockController);
+        userManager = (dockController != null) ? dockController.getUserManager() : null;
+        packageManager = (dockController != null) ? dockController.getPackageManager() : null;
+        launcherApps = (dockController != null) ? dockController.getLauncherApps() : null;
     }
 
     /**
@@ -74,22 +94,12 @@ public final class LoadDockTask extends AsyncTask<Integer, LoadDockTask.LoadDock
         LoadDockTask.runningTask = runningTask;
     }
 
-    @Override
-    protected void onPreExecute() {
-        final DockController dockController = dockControllerWeakReference.get();
-
-        if (dockController != null) {
-            for (int i = 0; i < DockController.NUMBER_OF_ITEMS; i++) {
-                dockController.clearIndex(i);
-            }
-        }
-    }
-
     @Override
     @Nullable
     protected Integer doInBackground(@Nullable final Integer... integers) {
 
         final SharedPreferencesDAO sharedPreferencesDAO = sharedPreferencesDAOWeakReference.get();
+        final List<DockPinModel> bootstrapPins = takeBootstrapPins();
 
         if (sharedPreferencesDAO != null) {
             for (int i = 0; i < DockController.NUMBER_OF_ITEMS; i++) {
@@ -97,27 +107,20 @@ public final class LoadDockTask extends AsyncTask<Integer, LoadDockTask.LoadDock
                     break;
                 }
 
-                final String key = DockController.PIN_PREFIX + i;
-
-                final String value = sharedPreferencesDAO.getString(key, "");
+                final DockPinModel pin;
 
-                if (value.length() <= 0) {
-                    continue;
-                }
-
-                final StringTokenizer tokenizer = new StringTokenizer(value, DockController.SEPARATOR);
+                if (bootstrapPins != null) {
+                    pin = bootstrapPins.get(i);
+                } else {
+                    final String key = DockController.PIN_PREFIX + i;
 
-                if (tokenizer.countTokens() != 2) {
-                    continue;
+                    pin = resolvePin(sharedPreferencesDAO.getString(key, ""), packageManager, launcherApps, userManager);
                 }
 
-                final ApplicationModel applicationModel = new ApplicationModel();
-                applicationModel.packageName = tokenizer.nextToken();
-                applicationModel.className = tokenizer.nextToken();
-
+                // Empty items are cleared, as the dock keeps showing the items of the previous load
                 final LoadDockTaskProgress progress = new LoadDockTaskProgress();
                 progress.index = i;
-                progress.applicationModel = applicationModel;
+                progress.pin = pin;
 
                 publishProgress(progress);
             }
@@ -126,13 +129,60 @@ public final class LoadDockTask extends AsyncTask<Integer, LoadDockTask.LoadDock
         return null;
     }
 
+    /**
+     * Take the pins checked by the bootstrap and wait for them, if the bootstrap is still checking.
+     * @return the pins per index or <code>null</code>, if they have been taken already or could not be checked
+     */
+    @Nullable
+    private static List<DockPinModel> takeBootstrapPins() {
+        final Future<List<DockPinModel>> future = Bootstrap.getInstance().takeDockPins();
+
+        if (future == null) {
+            return null;
+        }
+
+        try {
+            final List<DockPinModel> pins = future.get();
+
+            return (pins.size() == DockController.NUMBER_OF_ITEMS) ? pins : null;
+        } catch (final InterruptedException | ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check a pinned value against the installed apps. Must not be called on the main thread.
+     * @param value the pinned value
+     * @param packageManager the package manager
+     * @param launcherApps the launcher apps for pins of other profiles, <code>null</code> before Lollipop
+     * @param userManager the user manager for pins of other profiles
+     * @return the checked pin
+     */
+    @NonNull
+    public static DockPinModel resolvePin(
+            @NonNull final String value,
+            @Nullable final PackageManager packageManager,
+            @Nullable final LauncherApps launcherApps,
+            @Nullable final UserManager userManager) {
+
+        final DockPinModel pin = new DockPinModel();
+        pin.applicationModel = DockController.getPinnedApplicationModel(value, userManager);
+        pin.state = DockController.resolvePin(pin.applicationModel, packageManager, launcherApps, userManager);
+
+        return pin;
+    }
+
     @Override
     protected void onProgressUpdate(@NonNull final LoadDockTaskProgress... values) {
         final DockController dockController = dockControllerWeakReference.get();
 
         if (dockController != null) {
             for (final LoadDockTaskProgress progress : values) {
-                dockController.updateDock(progress.index, progress.applicationModel);
+                if (progress.pin != null && progress.pin.applicationModel != null) {
+                    dockController.showPin(progress.index, progress.pin.applicationModel, progress.pin.state);
+                } else {
+                    dockController.clearIndex(progress.index);
+                }
             }
         }
     }
@@ -148,8 +198,8 @@ public final class LoadDockTask extends AsyncTask<Integer, LoadDockTask.LoadDock
      * @since 2.0
      */
     static final class LoadDockTaskProgress {
-        /** Name of the component to update. */
-        @Nullable ApplicationModel applicationModel;
+        /** The checked pin to update. */
+        @Nullable DockPinModel pin;
         /** Index to update. */
         int index;
     }
@@ -27,8 +27,9 @@ import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.os.AsyncTask;
 import android.os.Build;
-import android.os.Process;
 import android.os.UserHandle;
+import android.os.UserManager;
+import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -36,24 +37,52 @@ import androidx.annotation.RequiresApi;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.clemensbartz.android.launcher.BuildConfig;
 import de.clemensbartz.android.launcher.adapters.DrawerListAdapter;
+import de.clemensbartz.android.launcher.caches.LabelCache;
+import de.clemensbartz.android.launcher.caches.PackageStateCache;
 import de.clemensbartz.android.launcher.comparators.ApplicationModelComparator;
 import de.clemensbartz.android.launcher.controllers.DrawerController;
 import de.clemensbartz.android.launcher.models.ApplicationModel;
+import de.clemensbartz.android.launcher.util.Bootstrap;
+import de.clemensbartz.android.launcher.util.ExecutorUtil;
+import de.clemensbartz.android.launcher.util.LocaleUtil;
+import de.clemensbartz.android.launcher.util.StartupTracer;
+import de.clemensbartz.android.launcher.util.UserHandleUtil;
 
 /**
- * Load applications for the drawer list adapter.
+ * Load applications for the drawer list adapter. Loading happens in two stages: first, the
+ * applications are shown with the labels of the previous run from the {@link LabelCache}. Then,
+ * these labels are loaded again in batches and only the applications whose label changed are
+ * sorted again.
+ * <p>
+ * The new catalog is built and sorted in the background and replaces the catalog of the adapter
+ * at once on the UI thread, so the drawer keeps showing the previous catalog while loading.
+ * Unchanged application models of the previous catalog are kept, so their views are kept, too.
  * @author Clemens Bartz
  * @since 2.0
  */
 public final class LoadDrawerListAdapterTask extends AsyncTask<Integer, Integer, Integer> {
 
+    /** The number of activities or labels to work on in one batch. */
+    private static final int BATCH_SIZE = 16;
+
     /** The currently running task. */
     @Nullable
     private static LoadDrawerListAdapterTask runningTask = null;
+    /** The number of IPC calls of the last finished enumeration. */
+    private static int lastIpcCallCount = 0;
 
     /** Weak reference to the context. */
     @NonNull
@@ -64,6 +93,26 @@ public final class LoadDrawerListAdapterTask extends AsyncTask<Integer, Integer,
     /** Weak reference to the list adapter. */
     @NonNull
     private final WeakReference<DrawerListAdapter> drawerListAdapterWeakReference;
+    /** The changed labels per application model, to be applied after loading. */
+    @NonNull
+    private final Map<ApplicationModel, String> changedLabels = new HashMap<>();
+    /** The application models of the adapter before loading, only accessed before enumerating. */
+    @NonNull
+    private List<ApplicationModel> previousApplicationModels = new ArrayList<>();
+    /** The application models of the previous catalog for the same component per new application model. */
+    @NonNull
+    private final Map<ApplicationModel, ApplicationModel> previousByApplicationModel = new HashMap<>();
+    /** The application models of the previous catalog, which replaced new application models. */
+    @NonNull
+    private final Map<ApplicationModel, ApplicationModel> reusedApplicationModels = new HashMap<>();
+    /** The new catalog or <code>null</code>, if it has not been loaded yet. */
+    @Nullable
+    private List<ApplicationModel> catalog = null;
+    /** If the catalog has been published to the adapter. */
+    private boolean isPublished = false;
+    /** The number of IPC calls to launcher apps of this enumeration. */
+    @NonNull
+    private final AtomicInteger ipcCallCount = new AtomicInteger();
 
     /**
      * Create a new drawer list adapter task.
@@ -86,6 +135,22 @@ public final class LoadDrawerListAdapterTask extends AsyncTask<Integer, Integer,
         return runningTask;
     }
 
+    /**
+     *
+     * @return the number of IPC calls to launcher apps of the last finished enumeration
+     */
+    public static int getLastIpcCallCount() {
+        return lastIpcCallCount;
+    }
+
+    /**
+     *
+     * @return the number of IPC calls to launcher apps of this enumeration so far
+     */
+    public int getIpcCallCount() {
+        return ipcCallCount.get();
+    }
+
     /**
      * Set the new running task.
      * @param runningTask the new running task
@@ -99,8 +164,7 @@ public final class LoadDrawerListAdapterTask extends AsyncTask<Integer, Integer,
         final DrawerListAdapter drawerListAdapter = drawerListAdapterWeakReference.get();
 
         if (drawerListAdapter != null) {
-            drawerListAdapter.clear();
-            drawerListAdapter.filter();
+            previousApplicationModels = drawerListAdapter.getApplicationModels();
         }
     }
 
@@ -116,154 +180,511 @@ public final class LoadDrawerListAdapterTask extends AsyncTask<Integer, Integer,
             return null;
         }
 
+        // Labels of the previous run can only be used in the same locale
+        final Locale locale = LocaleUtil.getLocale(context);
+        final LabelCache labelCache = LabelCache.getInstance(context);
+        final LabelCache validLabelCache = labelCache.validate(locale) ? labelCache : null;
+        final List<StaleLabel> staleLabels = Collections.synchronizedList(new ArrayList<StaleLabel>());
+        final List<ApplicationModel> applicationModels;
+        final StartupTracer startupTracer = StartupTracer.getInstance();
+
         // Add apps based on version
+        startupTracer.beginPhase(StartupTracer.PHASE_ENUMERATION);
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             // For latest Android versions, use LauncherApps
             final LauncherApps launcherApps = (LauncherApps) context.getSystemService(Context.LAUNCHER_APPS_SERVICE);
 
             if (launcherApps == null) {
+                startupTracer.endPhase(StartupTracer.PHASE_ENUMERATION);
                 return null;
             }
 
-            drawerListAdapter.addAll(getApplicationModelsByLauncherApps(launcherApps, context.getPackageManager(), drawerController));
+            applicationModels = getApplicationModelsByLauncherApps(context, launcherApps, drawerController, validLabelCache, staleLabels);
         } else {
             // For older Android versions, use Package Manager
-            drawerListAdapter.addAll(getApplicationModelByResolveInfos(context.getPackageManager(), drawerController));
+            applicationModels = getApplicationModelByResolveInfos(context.getPackageManager(), drawerController, validLabelCache, staleLabels);
         }
 
+        startupTracer.endPhase(StartupTracer.PHASE_ENUMERATION);
+
         // Check for cancelling before sorting apps
         if (isCancelled()) {
             return null;
         }
 
         // Sort apps
-        drawerListAdapter.sort(new ApplicationModelComparator(context));
+        startupTracer.beginPhase(StartupTracer.PHASE_SORT);
+        Collections.sort(applicationModels, new ApplicationModelComparator(context));
+        startupTracer.endPhase(StartupTracer.PHASE_SORT);
+
+        // Match the previous catalog, the labels are compared when publishing on the UI thread
+        matchPreviousApplicationModels(applicationModels);
+        catalog = applicationModels;
+
+        // Show apps with cached labels, before loading their labels again
+        if (!staleLabels.isEmpty()) {
+            publishProgress(0);
+
+            changedLabels.putAll(loadStaleLabels(staleLabels, context.getPackageManager()));
+
+            if (isCancelled()) {
+                return null;
+            }
+        }
+
+        // Remember the labels for the next run
+        final Map<String, String> labels = new HashMap<>();
+
+        for (final ApplicationModel applicationModel : applicationModels) {
+            final String key = LabelCache.getKey(applicationModel);
+            final String changedLabel = changedLabels.get(applicationModel);
+
+            if (key != null) {
+                labels.put(key, (changedLabel != null) ? changedLabel : applicationModel.label);
+            }
+        }
+
+        labelCache.replaceAll(locale, labels);
 
         return 0;
     }
 
+    @Override
+    protected void onProgressUpdate(@Nullable final Integer... values) {
+        final DrawerListAdapter drawerListAdapter = drawerListAdapterWeakReference.get();
+
+        if (drawerListAdapter != null) {
+            publishCatalog(drawerListAdapter);
+
+            StartupTracer.getInstance().beginPhase(StartupTracer.PHASE_FIRST_FILTER);
+            drawerListAdapter.filter();
+            StartupTracer.getInstance().endPhase(StartupTracer.PHASE_FIRST_FILTER);
+        }
+    }
+
     @Override
     protected void onPostExecute(@Nullable final Integer integer) {
+        final Context context = contextWeakReference.get();
         final DrawerListAdapter drawerListAdapter = drawerListAdapterWeakReference.get();
 
+        lastIpcCallCount = ipcCallCount.get();
+
         if (integer != null && integer > -1 && drawerListAdapter != null) {
+            publishCatalog(drawerListAdapter);
+
+            // Only sort apps again, whose label changed
+            if (!changedLabels.isEmpty() && context != null) {
+                final Map<ApplicationModel, String> labels = new HashMap<>(changedLabels.size());
+
+                for (final Map.Entry<ApplicationModel, String> entry : changedLabels.entrySet()) {
+                    final ApplicationModel reusedApplicationModel = reusedApplicationModels.get(entry.getKey());
+
+                    labels.put((reusedApplicationModel != null) ? reusedApplicationModel : entry.getKey(), entry.getValue());
+                }
+
+                drawerListAdapter.updateLabels(labels, new ApplicationModelComparator(context));
+            }
+
             new FilterDrawerListAdapterTask(drawerListAdapter).execute();
+            // Lay out the labels of the new catalog in the background
+            drawerListAdapter.prepareItemViews();
         }
     }
 
     /**
-     * Return all launchable application models.
-     * @param launcherApps the launcher apps instance to query on
+     * Find the application models of the previous catalog with the same component.
+     * @param applicationModels the new application models
+     */
+    private void matchPreviousApplicationModels(@NonNull final List<ApplicationModel> applicationModels) {
+        final Map<String, ApplicationModel> previousByKey = new HashMap<>(previousApplicationModels.size());
+
+        // Only the component is read, which does not change after creating an application model
+        for (final ApplicationModel previousApplicationModel : previousApplicationModels) {
+            final String key = LabelCache.getKey(previousApplicationModel);
+
+            if (key != null) {
+                previousByKey.put(key, previousApplicationModel);
+            }
+        }
+
+        for (final ApplicationModel applicationModel : applicationModels) {
+            final String key = LabelCache.getKey(applicationModel);
+            final ApplicationModel previousApplicationModel = (key != null) ? previousByKey.get(key) : null;
+
+            if (previousApplicationModel != null) {
+                previousByApplicationModel.put(applicationModel, previousApplicationModel);
+            }
+        }
+    }
+
+    /**
+     * Replace the catalog of the adapter with the new catalog. Application models of the previous
+     * catalog are kept, if their label and visibility did not change. Only runs once.
+     * @param drawerListAdapter the drawer list adapter
+     */
+    private void publishCatalog(@NonNull final DrawerListAdapter drawerListAdapter) {
+        final List<ApplicationModel> applicationModels = catalog;
+
+        if (isPublished || applicationModels == null) {
+            return;
+        }
+
+        isPublished = true;
+
+        // Copy, as the background thread still reads the new catalog
+        final List<ApplicationModel> publishedApplicationModels = new ArrayList<>(applicationModels);
+
+        for (int i = 0; i < publishedApplicationModels.size(); i++) {
+            final ApplicationModel applicationModel = publishedApplicationModels.get(i);
+            final ApplicationModel previousApplicationModel = previousByApplicationModel.get(applicationModel);
+
+            if (previousApplicationModel != null
+                    && previousApplicationModel.hidden == applicationModel.hidden
+                    && TextUtils.equals(previousApplicationModel.label, applicationModel.label)) {
+                publishedApplicationModels.set(i, previousApplicationModel);
+                reusedApplicationModels.put(applicationModel, previousApplicationModel);
+            }
+        }
+
+        drawerListAdapter.replaceAll(publishedApplicationModels);
+    }
+
+    /**
+     * Load labels again in batches on the catalog executor.
+     * @param staleLabels the labels to load
      * @param packageManager the package manager
+     * @return the labels per application model, which differ from the cached label
+     */
+    @NonNull
+    private Map<ApplicationModel, String> loadStaleLabels(@NonNull final List<StaleLabel> staleLabels, @NonNull final PackageManager packageManager) {
+        final Map<ApplicationModel, String> labels = new HashMap<>();
+
+        runInBatches(staleLabels.size(), new IndexWorker() {
+            @Override
+            public void work(final int index) {
+                staleLabels.get(index).load(packageManager);
+            }
+        });
+
+        if (isCancelled()) {
+            return labels;
+        }
+
+        for (final StaleLabel staleLabel : staleLabels) {
+            if (staleLabel.label != null && !staleLabel.label.equals(staleLabel.applicationModel.label)) {
+                labels.put(staleLabel.applicationModel, staleLabel.label);
+            }
+        }
+
+        return labels;
+    }
+
+    /**
+     * Run a worker for the indexes from <code>0</code> to <code>size - 1</code> in batches on the
+     * catalog executor and wait for all batches. Batches stop at the next index, if the task has
+     * been cancelled. Batches that fail are skipped, so their indexes may not have been worked on.
+     * This method must not run on the catalog executor itself.
+     * @param size the number of indexes
+     * @param indexWorker the worker
+     */
+    private void runInBatches(final int size, @NonNull final IndexWorker indexWorker) {
+        final ExecutorService executorService = ExecutorUtil.getCatalogExecutor();
+        final List<Future<?>> futures = new ArrayList<>(size / BATCH_SIZE + 1);
+
+        for (int i = 0; i < size; i += BATCH_SIZE) {
+            final int start = i;
+            final int end = Math.min(i + BATCH_SIZE, size);
+
+            futures.add(executorService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int index = start; index < end; index++) {
+                        if (isCancelled()) {
+                            return;
+                        }
+
+                        indexWorker.work(index);
+                    }
+                }
+            }));
+        }
+
+        try {
+            for (final Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException e) {
+                    // Skip batches that cannot be loaded, e. g. for a profile being removed
+                    continue;
+                }
+            }
+        } catch (final InterruptedException e) {
+            // The task has been cancelled
+            Thread.currentThread().interrupt();
+        } finally {
+            if (isCancelled() || Thread.currentThread().isInterrupted()) {
+                for (final Future<?> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return all launchable application models of all profiles, e. g. the personal and work profile.
+     * The activities of the profiles are queried in parallel on the catalog executor. Then, the
+     * application models are created in batches on the catalog executor and merged in the order
+     * of profiles and activities.
+     * @param context the context
+     * @param launcherApps the launcher apps instance to query on
      * @param drawerController the drawer list adapter
+     * @param labelCache the label cache or <code>null</code>, if labels should be loaded immediately
+     * @param staleLabels the list to add cached labels to, which need to be loaded again
      * @return a list of application models
      */
     @TargetApi(Build.VERSION_CODES.Q)
     @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
     @NonNull
-    private List<ApplicationModel> getApplicationModelsByLauncherApps(@NonNull final LauncherApps launcherApps, @NonNull final PackageManager packageManager, @NonNull final DrawerController drawerController) {
-        final UserHandle userHandle = Process.myUserHandle();
+    private List<ApplicationModel> getApplicationModelsByLauncherApps(
+            @NonNull final Context context,
+            @NonNull final LauncherApps launcherApps,
+            @NonNull final DrawerController drawerController,
+            @Nullable final LabelCache labelCache,
+            @NonNull final List<StaleLabel> staleLabels) {
+        final UserManager userManager = (UserManager) context.getSystemService(Context.USER_SERVICE);
+        final List<UserHandle> userHandles = UserHandleUtil.getUserProfiles(context);
+        final ExecutorService executorService = ExecutorUtil.getCatalogExecutor();
 
-        if (userHandle == null) {
-            return new ArrayList<>();
-        }
+        // Query each profile in parallel
+        final List<PackageStateCache> packageStateCaches = new ArrayList<>(userHandles.size());
+        final List<Future<List<LauncherActivityInfo>>> futures = new ArrayList<>(userHandles.size());
 
-        final List<ApplicationModel> applicationModels = new ArrayList<>();
+        for (final UserHandle userHandle : userHandles) {
+            final PackageStateCache packageStateCache = new PackageStateCache(launcherApps, userHandle, UserHandleUtil.getSerialNumber(userManager, userHandle), ipcCallCount);
 
-        for (final LauncherActivityInfo launcherActivityInfo : launcherApps.getActivityList(null, Process.myUserHandle())) {
-            // Break if the task has been stopped
-            if (isCancelled()) {
-                return new ArrayList<>();
-            }
+            packageStateCaches.add(packageStateCache);
 
-            //noinspection ConstantConditions
-            if (launcherActivityInfo.getComponentName() == null
-                    || launcherActivityInfo.getComponentName().getClassName() == null
-                    || launcherActivityInfo.getComponentName().getPackageName() == null) {
-                continue;
-            }
+            // Use the activities queried at process start, if this is the first enumeration
+            final Future<List<LauncherActivityInfo>> bootstrapFuture = Bootstrap.getInstance().takeActivityList(userHandle);
+
+            if (bootstrapFuture != null) {
+                futures.add(bootstrapFuture);
 
-            /*
-             * Now, for some reason, Google employees are unable to read their own docs. getActivityList states:
-             *   > Retrieves a list of launchable activities that match Intent#ACTION_MAIN and Intent#CATEGORY_LAUNCHER, for a specified user.
-             * This app does not include CATEGORY_LAUNCHER, but Google decided to include it at least in Android emulator 29.0.5.
-             * We will therefore "do the needful" and check for Google. Thank you in advance.
-             * This does, of course, not exclude other launchers, so those need to be uninstalled separately.
-             */
-            if (BuildConfig.APPLICATION_ID.equals(launcherActivityInfo.getComponentName().getPackageName())) {
                 continue;
             }
 
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                // Check if activity is enabled for a user
-                if (!launcherApps.isActivityEnabled(launcherActivityInfo.getComponentName(), Process.myUserHandle())) {
-                    continue;
+            futures.add(executorService.submit(new Callable<List<LauncherActivityInfo>>() {
+                @Override
+                public List<LauncherActivityInfo> call() {
+                    return packageStateCache.getActivityList(null);
                 }
+            }));
+        }
+
+        // Merge in the order of profiles
+        final List<LauncherActivityInfo> launcherActivityInfos = new ArrayList<>();
+        final List<PackageStateCache> launcherActivityInfoProfiles = new ArrayList<>();
 
-                // Check if package is enabled for a user
-                if (!launcherApps.isPackageEnabled(launcherActivityInfo.getComponentName().getPackageName(), Process.myUserHandle())) {
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    final List<LauncherActivityInfo> profileLauncherActivityInfos = futures.get(i).get();
+
+                    launcherActivityInfos.addAll(profileLauncherActivityInfos);
+                    launcherActivityInfoProfiles.addAll(Collections.nCopies(profileLauncherActivityInfos.size(), packageStateCaches.get(i)));
+                } catch (final ExecutionException e) {
+                    // Skip profiles that cannot be queried, e. g. while being removed
                     continue;
                 }
             }
+        } catch (final InterruptedException e) {
+            // The task has been cancelled
+            Thread.currentThread().interrupt();
+        } finally {
+            if (isCancelled() || Thread.currentThread().isInterrupted()) {
+                for (final Future<List<LauncherActivityInfo>> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        if (isCancelled() || Thread.currentThread().isInterrupted()) {
+            return new ArrayList<>();
+        }
 
-            final ApplicationInfo applicationInfo = launcherActivityInfo.getApplicationInfo();
+        // Create the application models in parallel, every index is only written by one batch
+        final ApplicationModel[] results = new ApplicationModel[launcherActivityInfos.size()];
+
+        runInBatches(results.length, new IndexWorker() {
+            @Override
+            public void work(final int index) {
+                final LauncherActivityInfo launcherActivityInfo = launcherActivityInfos.get(index);
+                final PackageStateCache packageStateCache = launcherActivityInfoProfiles.get(index);
+                final ApplicationModel applicationModel = createApplicationModel(packageStateCache, launcherActivityInfo, drawerController, labelCache == null);
+
+                if (applicationModel != null && labelCache != null) {
+                    // Use the cached label and load it again later
+                    applicationModel.label = labelCache.get(applicationModel);
+
+                    if (applicationModel.label != null) {
+                        staleLabels.add(new StaleLabel(applicationModel, launcherActivityInfo, null));
+                    } else {
+                        applicationModel.label = getLabel(launcherActivityInfo.getLabel(), launcherActivityInfo.getName());
+                    }
+                }
 
-            if (applicationInfo == null || !applicationInfo.enabled) {
-                continue;
+                results[index] = applicationModel;
             }
+        });
 
-            final ApplicationModel applicationModel = new ApplicationModel();
-            applicationModel.className = launcherActivityInfo.getComponentName().getClassName();
-            applicationModel.packageName = launcherActivityInfo.getComponentName().getPackageName();
-            applicationModel.label = getLabel(launcherActivityInfo.getLabel(), launcherActivityInfo.getName());
+        return mergeResults(results);
+    }
 
-            applicationModel.hidden = drawerController.isHiding(applicationModel);
+    /**
+     * Merge the results of batches in their order, skipping missing application models.
+     * @param results the application models per index
+     * @return a list of application models or an empty list, if the task has been cancelled
+     */
+    @NonNull
+    private List<ApplicationModel> mergeResults(@NonNull final ApplicationModel[] results) {
+        final List<ApplicationModel> applicationModels = new ArrayList<>(results.length);
 
-            applicationModels.add(applicationModel);
+        if (isCancelled()) {
+            return applicationModels;
+        }
 
+        for (final ApplicationModel applicationModel : results) {
+            if (applicationModel != null) {
+                applicationModels.add(applicationModel);
+            }
         }
 
         return applicationModels;
     }
 
+    /**
+     * Create an application model for a launcher activity info.
+     * @param packageStateCache the cache for the enabled state of packages of the profile of the activity
+     * @param launcherActivityInfo the launcher activity info
+     * @param drawerController the drawer controller
+     * @param loadLabel if the label should be loaded, otherwise it is <code>null</code>
+     * @return the application model or <code>null</code>, if the activity should not be shown
+     */
+    @TargetApi(Build.VERSION_CODES.Q)
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    @Nullable
+    static ApplicationModel createApplicationModel(
+            @NonNull final PackageStateCache packageStateCache,
+            @NonNull final LauncherActivityInfo launcherActivityInfo,
+            @NonNull final DrawerController drawerController,
+            final boolean loadLabel) {
+        //noinspection ConstantConditions
+        if (launcherActivityInfo.getComponentName() == null
+                || launcherActivityInfo.getComponentName().getClassName() == null
+                || launcherActivityInfo.getComponentName().getPackageName() == null) {
+            return null;
+        }
+
+        /*
+         * Now, for some reason, Google employees are unable to read their own docs. getActivityList states:
+         *   > Retrieves a list of launchable activities that match Intent#ACTION_MAIN and Intent#CATEGORY_LAUNCHER, for a specified user.
+         * This app does not include CATEGORY_LAUNCHER, but Google decided to include it at least in Android emulator 29.0.5.
+         * We will therefore "do the needful" and check for Google. Thank you in advance.
+         * This does, of course, not exclude other launchers, so those need to be uninstalled separately.
+         */
+        if (BuildConfig.APPLICATION_ID.equals(launcherActivityInfo.getComponentName().getPackageName())) {
+            return null;
+        }
+
+        // Check if package is enabled for a user, before checking each of its activities
+        if (!packageStateCache.isPackageEnabled(launcherActivityInfo.getComponentName().getPackageName())) {
+            return null;
+        }
+
+        // Check if activity is enabled for a user
+        if (!packageStateCache.isActivityEnabled(launcherActivityInfo.getComponentName())) {
+            return null;
+        }
+
+        // The application info is part of the launcher activity info and needs no IPC
+        final ApplicationInfo applicationInfo = launcherActivityInfo.getApplicationInfo();
+
+        if (applicationInfo == null || !applicationInfo.enabled) {
+            return null;
+        }
+
+        final ApplicationModel applicationModel = new ApplicationModel();
+        applicationModel.className = launcherActivityInfo.getComponentName().getClassName();
+        applicationModel.packageName = launcherActivityInfo.getComponentName().getPackageName();
+        applicationModel.userHandle = packageStateCache.getUserHandle();
+        applicationModel.userSerialNumber = packageStateCache.getUserSerialNumber();
+
+        applicationModel.hidden = drawerController.isHiding(applicationModel);
+
+        if (loadLabel) {
+            applicationModel.label = getLabel(launcherActivityInfo.getLabel(), launcherActivityInfo.getName());
+        }
+
+        return applicationModel;
+    }
+
     /**
      * Return all launchable applications models based on resolve infos. This is a legacy method
-     * for devices <= LOLLIPOP (21).
+     * for devices <= LOLLIPOP (21). The application models are created in batches on the catalog
+     * executor and merged in the order of resolve infos.
      * @param packageManager the package manager
      * @param drawerController the drawer controller
+     * @param labelCache the label cache or <code>null</code>, if labels should be loaded immediately
+     * @param staleLabels the list to add cached labels to, which need to be loaded again
      * @return a list of application models
      */
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
     @RequiresApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
     @NonNull
-    private List<ApplicationModel> getApplicationModelByResolveInfos(final PackageManager packageManager, final DrawerController drawerController) {
-        final List<ApplicationModel> applicationModels = new ArrayList<>();
-
-        for (final ResolveInfo resolveInfo : getLaunchableResolveInfos(packageManager)) {
-            // Break if the task has been stopped
-            if (isCancelled()) {
-                return new ArrayList<>();
-            }
-
-            // Skip for non-launchable, non-existing activities
-            if (!resolveInfo.activityInfo.exported
-                    || resolveInfo.activityInfo.packageName == null
-                    || resolveInfo.activityInfo.name == null) {
+    private List<ApplicationModel> getApplicationModelByResolveInfos(
+            @NonNull final PackageManager packageManager,
+            @NonNull final DrawerController drawerController,
+            @Nullable final LabelCache labelCache,
+            @NonNull final List<StaleLabel> staleLabels) {
+        final List<ResolveInfo> resolveInfos = getLaunchableResolveInfos(packageManager);
+
+        // Create the application models in parallel, every index is only written by one batch
+        final ApplicationModel[] results = new ApplicationModel[resolveInfos.size()];
+
+        runInBatches(results.length, new IndexWorker() {
+            @Override
+            public void work(final int index) {
+                final ResolveInfo resolveInfo = resolveInfos.get(index);
+
+                // Skip for non-launchable, non-existing activities
+                if (!resolveInfo.activityInfo.exported
+                        || resolveInfo.activityInfo.packageName == null
+                        || resolveInfo.activityInfo.name == null) {
+
+                    return;
+                }
 
-                continue;
-            }
+                final ApplicationModel applicationModel = new ApplicationModel();
+                applicationModel.packageName = resolveInfo.activityInfo.packageName;
+                applicationModel.className = resolveInfo.activityInfo.name;
+                applicationModel.hidden = drawerController.isHiding(applicationModel);
 
-            final ApplicationModel applicationModel = new ApplicationModel();
-            applicationModel.packageName = resolveInfo.activityInfo.packageName;
-            applicationModel.className = resolveInfo.activityInfo.name;
-            applicationModel.label = getLabel(resolveInfo.loadLabel(packageManager), resolveInfo.activityInfo.name);
+                if (labelCache != null) {
+                    // Use the cached label and load it again later
+                    applicationModel.label = labelCache.get(applicationModel);
+                }
 
-            applicationModel.hidden = drawerController.isHiding(applicationModel);
+                if (applicationModel.label != null) {
+                    staleLabels.add(new StaleLabel(applicationModel, null, resolveInfo));
+                } else {
+                    applicationModel.label = getLabel(resolveInfo.loadLabel(packageManager), resolveInfo.activityInfo.name);
+                }
 
-            applicationModels.add(applicationModel);
-        }
+                results[index] = applicationModel;
+            }
+        });
 
-        return applicationModels;
+        return mergeResults(results);
     }
 
     /**
@@ -289,7 +710,7 @@ public final class LoadDrawerListAdapterTask extends AsyncTask<Integer, Integer,
      * @return the label, the name or empty string, if one of the previous values are <code>null</code>
      */
     @NonNull
-    private String getLabel(@Nullable final CharSequence label, @Nullable final String name) {
+    private static String getLabel(@Nullable final CharSequence label, @Nullable final String name) {
         if (label != null) {
             return label.toString();
         }
@@ -300,4 +721,62 @@ public final class LoadDrawerListAdapterTask extends AsyncTask<Integer, Integer,
 
         return "";
     }
+
+    /**
+     * Worker for one index of a batch.
+     * @author Clemens Bartz
+     * @since 2.3
+     */
+    private interface IndexWorker {
+        /**
+         * Work on an index.
+         * @param index the index
+         */
+        void work(int index);
+    }
+
+    /**
+     * A cached label of an application model, which needs to be loaded again.
+     * @author Clemens Bartz
+     * @since 2.3
+     */
+    private static final class StaleLabel {
+        /** The application model showing the cached label. */
+        @NonNull
+        final ApplicationModel applicationModel;
+        /** The launcher activity info to load the label from. */
+        @Nullable
+        final LauncherActivityInfo launcherActivityInfo;
+        /** The resolve info to load the label from, for devices before Lollipop. */
+        @Nullable
+        final ResolveInfo resolveInfo;
+        /** The loaded label or <code>null</code>, if it has not been loaded yet. */
+        @Nullable
+        String label;
+
+        /**
+         * Create a new stale label.
+         * @param applicationModel the application model showing the cached label
+         * @param launcherActivityInfo the launcher activity info to load the label from
+         * @param resolveInfo the resolve info to load the label from
+         */
+        StaleLabel(@NonNull final ApplicationModel applicationModel, @Nullable final LauncherActivityInfo launcherActivityInfo, @Nullable final ResolveInfo resolveInfo) {
+            this.applicationModel = applicationModel;
+            this.launcherActivityInfo = launcherActivityInfo;
+            this.resolveInfo = resolveInfo;
+        }
+
+        /**
+         * Load the label.
+         * @param packageManager the package manager
+         */
+        @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+        void load(@NonNull final PackageManager packageManager) {
+            if (launcherActivityInfo != null) {
+                label = getLabel(launcherActivityInfo.getLabel(), launcherActivityInfo.getName());
+            } else if (resolveInfo != null) {
+                label = getLabel(resolveInfo.loadLabel(packageManager), resolveInfo.activityInfo.name);
+            }
+        }
+    }
 }
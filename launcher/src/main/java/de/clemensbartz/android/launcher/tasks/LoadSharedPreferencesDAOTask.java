@@ -24,19 +24,22 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.lang.ref.WeakReference;
-
 import de.clemensbartz.android.launcher.Launcher;
 import de.clemensbartz.android.launcher.R;
+import de.clemensbartz.android.launcher.controllers.DockController;
 import de.clemensbartz.android.launcher.controllers.ViewController;
 import de.clemensbartz.android.launcher.controllers.WidgetController;
 import de.clemensbartz.android.launcher.daos.SharedPreferencesDAO;
+import de.clemensbartz.android.launcher.models.SettingsModel;
 
 /**
- * Task for loading @{@link SharedPreferencesDAO}. This will also update all controllers.
+ * Task for loading @{@link SharedPreferencesDAO}. The settings are read into a {@link SettingsModel}
+ * in the background, which is then applied to all controllers. Until then, the controllers use
+ * the default settings, so starting the launcher never waits for reading the preferences.
  * @since 2.0
  * @author Clemens Bartz
  */
-public final class LoadSharedPreferencesDAOTask extends AsyncTask<Integer, Integer, LoadSharedPreferencesDAOTask.LoadModelAsyncTaskResult> {
+public final class LoadSharedPreferencesDAOTask extends AsyncTask<Integer, Integer, SettingsModel> {
 
     /** The weak reference to the shared preferences dao. */
     @NonNull
@@ -50,6 +53,9 @@ public final class LoadSharedPreferencesDAOTask extends AsyncTask<Integer, Integ
     /** The weak reference to the widget controller or <code>null</code>, if none exists. */
     @NonNull
     private final WeakReference<WidgetController> widgetControllerWeakReference;
+    /** The weak reference to the dock controller. */
+    @NonNull
+    private final WeakReference<DockController> dockControllerWeakReference;
 
     /**
      * New task for loading shared preferences.
@@ -57,22 +63,25 @@ public final class LoadSharedPreferencesDAOTask extends AsyncTask<Integer, Integ
      * @param viewController the view controller to update
      * @param launcher the reference to the launcher
      * @param widgetController the widget controller or <code>null</code>, if none exists
+     * @param dockController the dock controller to update
      */
     public LoadSharedPreferencesDAOTask(
             @Nullable final Launcher launcher,
             @Nullable final SharedPreferencesDAO sharedPreferencesDAO,
             @Nullable final ViewController viewController,
-            @Nullable final WidgetController widgetController) {
+            @Nullable final WidgetController widgetController,
+            @Nullable final DockController dockController) {
 
         viewControllerWeakReference = new WeakReference<>(viewController);
         sharedPreferencesDAOWeakReference = new WeakReference<>(sharedPreferencesDAO);
         launcherWeakReference = new WeakReference<>(launcher);
         widgetControllerWeakReference = new WeakReference<>(widgetController);
+        dockControllerWeakReference = new WeakReference<>(dockController);
     }
 
     @Override
     @Nullable
-    protected LoadModelAsyncTaskResult doInBackground(@Nullable final Integer... integers) {
+    protected SettingsModel doInBackground(@Nullable final Integer... integers) {
         // Check if shared preferences can be loaded
         final SharedPreferencesDAO sharedPreferencesDAO = sharedPreferencesDAOWeakReference.get();
         if (isCancelled() || sharedPreferencesDAO == null) {
@@ -81,57 +90,51 @@ public final class LoadSharedPreferencesDAOTask extends AsyncTask<Integer, Integ
 
         sharedPreferencesDAO.loadValues();
 
-        final LoadModelAsyncTaskResult result = new LoadModelAsyncTaskResult();
-        result.selectedWidget = sharedPreferencesDAO.getInt(WidgetController.KEY_APPWIDGET_ID, WidgetController.DEFAULT_APPWIDGET_ID);
-        result.widgetLayout = sharedPreferencesDAO.getInt(WidgetController.KEY_APPWIDGET_LAYOUT, WidgetController.DEFAULT_APPWIDGET_LAYOUT);
-        result.drawerLayout = sharedPreferencesDAO.getInt(ViewController.KEY_DRAWER_LAYOUT, ViewController.GRID_ID);
-
-        return result;
+        return new SettingsModel(
+                sharedPreferencesDAO.getInt(ViewController.KEY_DRAWER_LAYOUT, ViewController.GRID_ID),
+                sharedPreferencesDAO.getBoolean(DockController.KEY_IS_SHOWING_ALL_DOCK_ICONS, false),
+                WidgetController.loadWidgetCells(sharedPreferencesDAO));
     }
 
     @Override
-    protected void onPostExecute(@Nullable final LoadModelAsyncTaskResult loadModelAsyncTaskResult) {
-        if (loadModelAsyncTaskResult == null) {
+    protected void onPostExecute(@Nullable final SettingsModel settingsModel) {
+        if (settingsModel == null) {
             return;
         }
 
         // Update view controller
         final ViewController viewController = viewControllerWeakReference.get();
         if (viewController != null) {
-            viewController.setCurrentDetailIndex(loadModelAsyncTaskResult.drawerLayout);
+            viewController.setCurrentDetailIndex(settingsModel.drawerLayout);
         }
 
-        // Update action bar
+        // Update dock
         final Launcher launcher = launcherWeakReference.get();
+        final DockController dockController = dockControllerWeakReference.get();
+        if (dockController != null && launcher != null) {
+            dockController.setShowingAllDockIcons(settingsModel.showingAllDockIcons);
+            dockController.updateVisibility(launcher.getResources().getConfiguration());
+        }
+
+        // Update action bar
         if (launcher != null) {
             final MenuItem gridMenuItem = launcher.getActionBarMenuItem(R.id.abm_grid_toggle);
 
             if (gridMenuItem != null) {
-                gridMenuItem.setChecked(loadModelAsyncTaskResult.drawerLayout == ViewController.GRID_ID);
+                gridMenuItem.setChecked(settingsModel.drawerLayout == ViewController.GRID_ID);
+            }
+
+            final MenuItem showAllDockIconsMenuItem = launcher.getActionBarMenuItem(R.id.abm_show_all_dock_icons);
+
+            if (showAllDockIconsMenuItem != null) {
+                showAllDockIconsMenuItem.setChecked(settingsModel.showingAllDockIcons);
             }
         }
 
         // Update the widget handling, please note that no widgets could be available, e. g. widgetController is null
         final WidgetController widgetController = widgetControllerWeakReference.get();
         if (widgetController != null) {
-
-            // Only load widget if one was previously selected
-            if (loadModelAsyncTaskResult.selectedWidget > -1) {
-                widgetController.addHostView(loadModelAsyncTaskResult.selectedWidget);
-            }
-
-            // Layout widget
-            widgetController.adjustWidget(loadModelAsyncTaskResult.widgetLayout);
+            widgetController.addHostViews(settingsModel.widgetCells);
         }
     }
-
-    /** Holder class for return values. */
-    static final class LoadModelAsyncTaskResult {
-        /** The selected widget. */
-        int selectedWidget;
-        /** The layout for the widget. */
-        int widgetLayout;
-        /** The grid layout. */
-        int drawerLayout;
-    }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.tasks;
+
+import android.annotation.TargetApi;
+import android.content.pm.LauncherApps;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.os.UserHandle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.lang.ref.WeakReference;
+
+import de.clemensbartz.android.launcher.caches.ShortcutInfoCache;
+import de.clemensbartz.android.launcher.util.LauncherAppsUtil;
+
+/**
+ * Task for loading shortcut infos of packages into the {@link ShortcutInfoCache}.
+ * Packages that are already cached will be skipped.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+@TargetApi(Build.VERSION_CODES.N_MR1)
+@RequiresApi(Build.VERSION_CODES.N_MR1)
+public final class LoadShortcutInfosTask extends AsyncTask<String, Integer, Integer> {
+
+    /** Weak reference to the launcher apps. */
+    @NonNull
+    private final WeakReference<LauncherApps> launcherAppsWeakReference;
+    /** The profile, <code>null</code> for the profile of this process. */
+    @Nullable
+    private final UserHandle userHandle;
+    /** The cache to fill. */
+    @NonNull
+    private final ShortcutInfoCache shortcutInfoCache;
+    /** The listener to notify after loading. */
+    @Nullable
+    private final ShortcutInfoCache.OnWarmedListener onWarmedListener;
+
+    /**
+     * Create a new task to load shortcut infos.
+     * @param launcherApps the launcher apps to query
+     * @param userHandle the profile, <code>null</code> for the profile of this process
+     * @param shortcutInfoCache the cache to fill
+     * @param onWarmedListener the listener to notify after loading, may be <code>null</code>
+     */
+    public LoadShortcutInfosTask(
+            @Nullable final LauncherApps launcherApps,
+            @Nullable final UserHandle userHandle,
+            @NonNull final ShortcutInfoCache shortcutInfoCache,
+            @Nullable final ShortcutInfoCache.OnWarmedListener onWarmedListener) {
+
+        this.launcherAppsWeakReference = new WeakReference<>(launcherApps);
+        this.userHandle = userHandle;
+        this.shortcutInfoCache = shortcutInfoCache;
+        this.onWarmedListener = onWarmedListener;
+    }
+
+    @Override
+    @Nullable
+    protected Integer doInBackground(@Nullable final String... packageNames) {
+        final LauncherApps launcherApps = launcherAppsWeakReference.get();
+
+        // Do not cache anything without permission, as the result would be empty
+        if (launcherApps == null || packageNames == null || !launcherApps.hasShortcutHostPermission()) {
+            return null;
+        }
+
+        for (final String packageName : packageNames) {
+            if (isCancelled()) {
+                return null;
+            }
+
+            if (packageName == null || shortcutInfoCache.contains(packageName, userHandle)) {
+                continue;
+            }
+
+            shortcutInfoCache.put(packageName, userHandle, LauncherAppsUtil.getShortcutInfos(launcherApps, packageName, userHandle));
+        }
+
+        return 0;
+    }
+
+    @Override
+    protected void onPostExecute(@Nullable final Integer integer) {
+        if (onWarmedListener != null) {
+            onWarmedListener.onWarmed();
+        }
+    }
+}
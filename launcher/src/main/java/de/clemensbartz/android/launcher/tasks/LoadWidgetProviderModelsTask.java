@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.tasks;
+
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import android.os.AsyncTask;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+
+import de.clemensbartz.android.launcher.caches.WidgetProviderCache;
+import de.clemensbartz.android.launcher.util.LocaleUtil;
+
+/**
+ * Task for loading the widget providers into the {@link WidgetProviderCache} in the background.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class LoadWidgetProviderModelsTask extends AsyncTask<Integer, Integer, Integer> {
+
+    /** The currently running task. */
+    @Nullable
+    private static LoadWidgetProviderModelsTask runningTask = null;
+
+    /** Weak reference to the context. */
+    @NonNull
+    private final WeakReference<Context> contextWeakReference;
+    /** The cache to fill. */
+    @NonNull
+    private final WidgetProviderCache widgetProviderCache;
+
+    /**
+     * Create a new task to load widget providers.
+     * @param context the context
+     * @param widgetProviderCache the cache to fill
+     */
+    public LoadWidgetProviderModelsTask(@Nullable final Context context, @NonNull final WidgetProviderCache widgetProviderCache) {
+        this.contextWeakReference = new WeakReference<>(context);
+        this.widgetProviderCache = widgetProviderCache;
+    }
+
+    /**
+     *
+     * @return the currently running task
+     */
+    @Nullable
+    public static LoadWidgetProviderModelsTask getRunningTask() {
+        return runningTask;
+    }
+
+    /**
+     * Set the new running task.
+     * @param runningTask the new running task
+     */
+    public static void setRunningTask(@Nullable final LoadWidgetProviderModelsTask runningTask) {
+        LoadWidgetProviderModelsTask.runningTask = runningTask;
+    }
+
+    @Override
+    @Nullable
+    protected Integer doInBackground(@Nullable final Integer... integers) {
+        final Context context = contextWeakReference.get();
+
+        if (context == null || isCancelled()) {
+            return null;
+        }
+
+        final AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+
+        if (appWidgetManager == null) {
+            return null;
+        }
+
+        widgetProviderCache.load(context, appWidgetManager, LocaleUtil.getLocale(context));
+
+        return 0;
+    }
+
+    @Override
+    protected void onPostExecute(@Nullable final Integer integer) {
+        if (runningTask == this) {
+            LoadWidgetProviderModelsTask.setRunningTask(null);
+        }
+    }
+}
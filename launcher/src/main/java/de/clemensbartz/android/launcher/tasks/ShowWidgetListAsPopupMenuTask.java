@@ -18,12 +18,10 @@
 package de.clemensbartz.android.launcher.tasks;
 
 import android.appwidget.AppWidgetManager;
-import android.appwidget.AppWidgetProviderInfo;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.os.AsyncTask;
-import android.os.Build;
 import android.view.MenuItem;
 import android.widget.PopupMenu;
 
@@ -31,20 +29,21 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
+import de.clemensbartz.android.launcher.caches.WidgetProviderCache;
 import de.clemensbartz.android.launcher.controllers.WidgetController;
-import de.clemensbartz.android.launcher.util.IntentUtil;
+import de.clemensbartz.android.launcher.models.WidgetProviderModel;
+import de.clemensbartz.android.launcher.util.LocaleUtil;
 
 /**
  * This task will list all widget providers and show them in a popup menu for an activity.
+ * The list is put into the {@link WidgetProviderCache}, so the next time it can be shown
+ * without this task.
  * @author Clemens Bartz
  * @since 1.5
  */
-public final class ShowWidgetListAsPopupMenuTask extends AsyncTask<Integer, Integer, List<ShowWidgetListAsPopupMenuTask.FilledAppWidgetProviderInfo>> {
+public final class ShowWidgetListAsPopupMenuTask extends AsyncTask<Integer, Integer, List<WidgetProviderModel>> {
 
     /** The weak reference to our widget controller. */
     @NonNull
@@ -72,7 +71,7 @@ public final class ShowWidgetListAsPopupMenuTask extends AsyncTask<Integer, Inte
 
     @Override
     @Nullable
-    protected List<FilledAppWidgetProviderInfo> doInBackground(@Nullable final Integer... integers) {
+    protected List<WidgetProviderModel> doInBackground(@Nullable final Integer... integers) {
 
         final AppWidgetManager appWidgetManager = appWidgetManagerWeakReference.get();
         final WidgetController widgetController = widgetControllerWeakReference.get();
@@ -82,102 +81,60 @@ public final class ShowWidgetListAsPopupMenuTask extends AsyncTask<Integer, Inte
             return null;
         }
 
-        final List<AppWidgetProviderInfo> appWidgetProviderInfos = appWidgetManager.getInstalledProviders();
-        final List<FilledAppWidgetProviderInfo> infoList = new ArrayList<>(appWidgetProviderInfos.size());
-
-        for (final AppWidgetProviderInfo appWidgetProviderInfo : appWidgetProviderInfos) {
-
-            // Check if configure activity is exported, i. e. callable
-            if (appWidgetProviderInfo.configure != null) {
-                final Intent intent = IntentUtil.createWidgetConfigureIntent(appWidgetProviderInfo.configure);
-
-                if (!IntentUtil.isCallable(context.getPackageManager(), intent)) {
-                    continue;
-                }
-            }
-
-            // Fill info
-            final FilledAppWidgetProviderInfo info = new FilledAppWidgetProviderInfo();
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                info.label = appWidgetProviderInfo.loadLabel(context.getPackageManager());
-            } else {
-                info.label = appWidgetProviderInfo.label;
-            }
-            info.provider = appWidgetProviderInfo.provider;
-            info.configure = appWidgetProviderInfo.configure;
-
-            infoList.add(info);
-        }
-
-        Collections.sort(infoList, new Comparator<FilledAppWidgetProviderInfo>() {
-            @Override
-            public int compare(final FilledAppWidgetProviderInfo o1, final FilledAppWidgetProviderInfo o2) {
-                String label1 = "";
-                if (o1 != null && o1.label != null) {
-                    label1 = o1.label;
-                }
-
-                String label2 = "";
-                if (o2 != null && o2.label != null) {
-                    label2 = o2.label;
-                }
-
-                return label1.compareTo(label2);
-            }
-        });
-
-        return infoList;
+        return WidgetProviderCache.getInstance().load(context, appWidgetManager, LocaleUtil.getLocale(context));
     }
 
     @Override
-    protected void onPostExecute(@Nullable final List<FilledAppWidgetProviderInfo> appWidgetProviderInfos) {
+    protected void onPostExecute(@Nullable final List<WidgetProviderModel> widgetProviderModels) {
 
         final Context context = contextWeakReference.get();
         final WidgetController widgetController = widgetControllerWeakReference.get();
 
-        if (appWidgetProviderInfos != null && context != null && widgetController != null && appWidgetProviderInfos.size() > 0) {
-            final PopupMenu popupMenu = new PopupMenu(context, widgetController.getTopFiller());
+        if (widgetProviderModels != null && context != null && widgetController != null) {
+            showPopupMenu(context, widgetController, widgetProviderModels);
+        }
+    }
 
-            for (final ShowWidgetListAsPopupMenuTask.FilledAppWidgetProviderInfo info : appWidgetProviderInfos) {
-                final MenuItem menuItem = popupMenu.getMenu().add(info.label);
+    /**
+     * Show the widget providers in a popup menu.
+     * @param context the context to show the menu in
+     * @param widgetController the widget controller
+     * @param widgetProviderModels the sorted widget provider models
+     */
+    public static void showPopupMenu(@NonNull final Context context, @NonNull final WidgetController widgetController, @NonNull final List<WidgetProviderModel> widgetProviderModels) {
+        if (widgetProviderModels.size() <= 0) {
+            return;
+        }
 
-                final Intent intent = new Intent(AppWidgetManager.ACTION_APPWIDGET_CONFIGURE);
-                intent.setComponent(info.configure);
-                intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_PROVIDER, info.provider);
+        final PopupMenu popupMenu = new PopupMenu(context, widgetController.getPopupAnchor());
 
-                menuItem.setIntent(intent);
+        for (final WidgetProviderModel widgetProviderModel : widgetProviderModels) {
+            final MenuItem menuItem = popupMenu.getMenu().add(widgetProviderModel.label);
 
-                menuItem.setOnMenuItemClickListener(new MenuItem.OnMenuItemClickListener() {
-                    @Override
-                    public boolean onMenuItemClick(final MenuItem item) {
-                        if (item == null || item.getIntent() == null) {
-                            return false;
-                        }
+            final Intent intent = new Intent(AppWidgetManager.ACTION_APPWIDGET_CONFIGURE);
+            intent.setComponent(widgetProviderModel.configure);
+            intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_PROVIDER, widgetProviderModel.provider);
 
-                        final ComponentName provider = item.getIntent().getParcelableExtra(AppWidgetManager.EXTRA_APPWIDGET_PROVIDER);
+            menuItem.setIntent(intent);
 
-                        if (provider != null) {
-                            widgetController.bindWidget(provider, item.getIntent().getComponent());
-                        }
+            menuItem.setOnMenuItemClickListener(new MenuItem.OnMenuItemClickListener() {
+                @Override
+                public boolean onMenuItemClick(final MenuItem item) {
+                    if (item == null || item.getIntent() == null) {
+                        return false;
+                    }
 
-                        return true;
+                    final ComponentName provider = item.getIntent().getParcelableExtra(AppWidgetManager.EXTRA_APPWIDGET_PROVIDER);
+
+                    if (provider != null) {
+                        widgetController.bindWidget(provider, item.getIntent().getComponent());
                     }
-                });
-            }
 
-            popupMenu.show();
+                    return true;
+                }
+            });
         }
-    }
 
-    /**
-     * Holds filled AppWidgetProviderInfo.
-     */
-    static final class FilledAppWidgetProviderInfo {
-        /** The label for the provider. */
-        @Nullable String label;
-        /** The provider component. */
-        @Nullable ComponentName provider;
-        /** The configure component. */
-        @Nullable ComponentName configure;
+        popupMenu.show();
     }
 }
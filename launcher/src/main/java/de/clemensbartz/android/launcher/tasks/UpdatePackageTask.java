@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.tasks;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.pm.LauncherActivityInfo;
+import android.content.pm.LauncherApps;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.os.UserHandle;
+import android.os.UserManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.clemensbartz.android.launcher.adapters.DrawerListAdapter;
+import de.clemensbartz.android.launcher.caches.IconCache;
+import de.clemensbartz.android.launcher.caches.PackageStateCache;
+import de.clemensbartz.android.launcher.comparators.ApplicationModelComparator;
+import de.clemensbartz.android.launcher.controllers.DockController;
+import de.clemensbartz.android.launcher.controllers.DrawerController;
+import de.clemensbartz.android.launcher.models.ApplicationModel;
+import de.clemensbartz.android.launcher.util.UserHandleUtil;
+
+/**
+ * Task for applying the changes of a single package to the drawer and the dock. Only the activities
+ * of this package are queried, the rest of the drawer is kept as is.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+@RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+public final class UpdatePackageTask extends AsyncTask<Integer, Integer, List<ApplicationModel>> {
+
+    /** Weak reference to the context. */
+    @NonNull
+    private final WeakReference<Context> contextWeakReference;
+    /** Weak reference to the drawer controller. */
+    @NonNull
+    private final WeakReference<DrawerController> drawerControllerWeakReference;
+    /** Weak reference to the list adapter. */
+    @NonNull
+    private final WeakReference<DrawerListAdapter> drawerListAdapterWeakReference;
+    /** Weak reference to the dock controller. */
+    @NonNull
+    private final WeakReference<DockController> dockControllerWeakReference;
+    /** The package name. */
+    @NonNull
+    private final String packageName;
+    /** The profile of the package. */
+    @NonNull
+    private final UserHandle userHandle;
+
+    /**
+     * Create a new task to update a package.
+     * @param context the context
+     * @param drawerController the drawer controller
+     * @param drawerListAdapter the drawer list adapter
+     * @param dockController the dock controller
+     * @param packageName the package name
+     * @param userHandle the profile of the package
+     */
+    public UpdatePackageTask(
+            @Nullable final Context context,
+            @Nullable final DrawerController drawerController,
+            @Nullable final DrawerListAdapter drawerListAdapter,
+            @Nullable final DockController dockController,
+            @NonNull final String packageName,
+            @NonNull final UserHandle userHandle) {
+
+        contextWeakReference = new WeakReference<>(context);
+        drawerControllerWeakReference = new WeakReference<>(drawerController);
+        drawerListAdapterWeakReference = new WeakReference<>(drawerListAdapter);
+        dockControllerWeakReference = new WeakReference<>(dockController);
+        this.packageName = packageName;
+        this.userHandle = userHandle;
+    }
+
+    @Override
+    @Nullable
+    protected List<ApplicationModel> doInBackground(@Nullable final Integer... integers) {
+        final Context context = contextWeakReference.get();
+        final DrawerController drawerController = drawerControllerWeakReference.get();
+
+        if (context == null || drawerController == null) {
+            return null;
+        }
+
+        final LauncherApps launcherApps = (LauncherApps) context.getSystemService(Context.LAUNCHER_APPS_SERVICE);
+
+        if (launcherApps == null) {
+            return null;
+        }
+
+        final long userSerialNumber = UserHandleUtil.getSerialNumber((UserManager) context.getSystemService(Context.USER_SERVICE), userHandle);
+        final List<ApplicationModel> applicationModels = new ArrayList<>();
+        final PackageStateCache packageStateCache = new PackageStateCache(launcherApps, userHandle, userSerialNumber, new AtomicInteger());
+
+        for (final LauncherActivityInfo launcherActivityInfo : packageStateCache.getActivityList(packageName)) {
+            if (isCancelled()) {
+                return null;
+            }
+
+            final ApplicationModel applicationModel = LoadDrawerListAdapterTask.createApplicationModel(packageStateCache, launcherActivityInfo, drawerController, true);
+
+            if (applicationModel != null) {
+                applicationModels.add(applicationModel);
+            }
+        }
+
+        return applicationModels;
+    }
+
+    @Override
+    protected void onPostExecute(@Nullable final List<ApplicationModel> applicationModels) {
+        final Context context = contextWeakReference.get();
+        final DrawerListAdapter drawerListAdapter = drawerListAdapterWeakReference.get();
+
+        if (applicationModels == null || context == null) {
+            return;
+        }
+
+        // Icons of the package may have changed
+        IconCache.getInstance().removePackage(packageName);
+
+        // Replace the entries of the package
+        if (drawerListAdapter != null) {
+            drawerListAdapter.invalidateIcons(packageName);
+            drawerListAdapter.removePackage(packageName, userHandle);
+            drawerListAdapter.addAllSorted(applicationModels, new ApplicationModelComparator(context));
+            drawerListAdapter.filter();
+        }
+
+        // Validate the pinned items of the package
+        final DockController dockController = dockControllerWeakReference.get();
+
+        if (dockController != null) {
+            dockController.updatePackage(packageName);
+        }
+    }
+}
@@ -0,0 +1,439 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.clemensbartz.android.launcher.util;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.LauncherActivityInfo;
+import android.content.pm.LauncherApps;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.os.UserManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import de.clemensbartz.android.launcher.caches.IconCache;
+import de.clemensbartz.android.launcher.caches.LabelCache;
+import de.clemensbartz.android.launcher.caches.LaunchCountCache;
+import de.clemensbartz.android.launcher.controllers.DockController;
+import de.clemensbartz.android.launcher.models.DockPinModel;
+import de.clemensbartz.android.launcher.tasks.LoadApplicationModelIconIntoImageViewTask;
+import de.clemensbartz.android.launcher.tasks.LoadDockTask;
+
+/**
+ * Bootstrap of the launcher process. Loading the settings, querying the activities of all profiles
+ * and checking the pins of the dock with their icons start on the catalog executor as soon as the
+ * process starts, so they overlap with inflating the launcher activity. The settings are only
+ * loaded from disk, the tasks of the activity take the results of the other jobs later.
+ * <br/>
+ * For every job with a result, the time it ran before being taken is hidden from the start, and
+ * the time it still ran after being taken is waited for. Both are printed in the dump.
+ * <br/>
+ * This class is intended to live forever.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class Bootstrap implements MemoryCoordinator.Trimmable {
+
+    /** The name of the preferences of the launcher activity, see {@link android.app.Activity#getPreferences(int)}. */
+    @NonNull
+    public static final String PREFERENCES_NAME = "Launcher";
+    /** The job for querying the activities of all profiles. */
+    @NonNull
+    public static final String JOB_CATALOG = "catalog";
+    /** The job for checking the pins of the dock and loading their icons. */
+    @NonNull
+    public static final String JOB_DOCK = "dock";
+
+    /** Nanoseconds per millisecond. */
+    private static final double NANOS_PER_MILLI = 1000000d;
+    /** The maximum age of results in nanoseconds, older results are dropped, as packages may have changed since then. */
+    private static final long MAXIMUM_RESULT_AGE_NANOS = 10000000000L;
+    /** The estimated number of bytes of a queried activity. */
+    private static final long ESTIMATED_BYTES_PER_ACTIVITY = 1024L;
+
+    /** The instance of this class. */
+    @Nullable
+    private static Bootstrap instance = null;
+
+    /** The jobs by name, in the order of starting. */
+    @NonNull
+    private final Map<String, Job> jobs = new HashMap<>();
+    /** The names of the jobs in the order of starting. */
+    @NonNull
+    private final List<String> jobNames = new ArrayList<>();
+    /** The queried activities per profile, which have not been taken yet. */
+    @NonNull
+    private final Map<UserHandle, Future<List<LauncherActivityInfo>>> activityLists = new HashMap<>();
+    /** The checked pins of the dock, <code>null</code> if they have been taken already. */
+    @Nullable
+    private Future<List<DockPinModel>> dockPins = null;
+
+    /**
+     * Hidden constructor.
+     */
+    private Bootstrap() {
+
+    }
+
+    /**
+     *
+     * @return the instance of the bootstrap
+     */
+    @NonNull
+    public static synchronized Bootstrap getInstance() {
+        if (instance == null) {
+            instance = new Bootstrap();
+            MemoryCoordinator.getInstance().register(instance);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Start all jobs. Only the first call starts jobs.
+     * @param context the application context
+     */
+    public synchronized void start(@NonNull final Context context) {
+        if (!jobNames.isEmpty()) {
+            return;
+        }
+
+        final ExecutorService executorService = ExecutorUtil.getCatalogExecutor();
+
+        // Icons can only be cached in the current density and night mode
+        IconCache.getInstance().validate(context.getResources().getConfiguration());
+
+        // Nothing waits for the settings, reading them later only finds them loaded from disk
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE).getAll();
+                LabelCache.getInstance(context).validate(LocaleUtil.getLocale(context));
+                LaunchCountCache.getInstance(context);
+            }
+        });
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            startCatalog(context, executorService);
+        }
+
+        dockPins = submit(executorService, JOB_DOCK, new Callable<List<DockPinModel>>() {
+            @Override
+            public List<DockPinModel> call() {
+                return loadDockPins(context);
+            }
+        });
+    }
+
+    /**
+     * Start querying the activities of all profiles.
+     * @param context the application context
+     * @param executorService the executor to query on
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    private void startCatalog(@NonNull final Context context, @NonNull final ExecutorService executorService) {
+        final LauncherApps launcherApps = (LauncherApps) context.getSystemService(Context.LAUNCHER_APPS_SERVICE);
+
+        if (launcherApps == null) {
+            return;
+        }
+
+        final List<UserHandle> userHandles = UserHandleUtil.getUserProfiles(context);
+        final Job job = new Job(userHandles.size());
+
+        for (final UserHandle userHandle : userHandles) {
+            activityLists.put(userHandle, executorService.submit(new Callable<List<LauncherActivityInfo>>() {
+                @Override
+                public List<LauncherActivityInfo> call() {
+                    try {
+                        return launcherApps.getActivityList(null, userHandle);
+                    } finally {
+                        job.finish();
+                    }
+                }
+            }));
+        }
+
+        jobs.put(JOB_CATALOG, job);
+        jobNames.add(JOB_CATALOG);
+    }
+
+    /**
+     * Check the pins of the dock and load the icons of the shown pins into the icon cache.
+     * @param context the application context
+     * @return the checked pins per index
+     */
+    @NonNull
+    private static List<DockPinModel> loadDockPins(@NonNull final Context context) {
+        final SharedPreferences preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        final UserManager userManager = (UserManager) context.getSystemService(Context.USER_SERVICE);
+        final PackageManager packageManager = context.getPackageManager();
+        final LauncherApps launcherApps = (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
+                ? (LauncherApps) context.getSystemService(Context.LAUNCHER_APPS_SERVICE) : null;
+
+        final List<DockPinModel> pins = new ArrayList<>(DockController.NUMBER_OF_ITEMS);
+
+        for (int i = 0; i < DockController.NUMBER_OF_ITEMS; i++) {
+            final String value = preferences.getString(DockController.PIN_PREFIX + i, "");
+            final DockPinModel pin = LoadDockTask.resolvePin((value != null) ? value : "", packageManager, launcherApps, userManager);
+
+            if (pin.applicationModel != null && pin.state == DockController.PIN_SHOWN) {
+                LoadApplicationModelIconIntoImageViewTask.loadIcon(pin.applicationModel, packageManager, launcherApps);
+            }
+
+            pins.add(pin);
+        }
+
+        return pins;
+    }
+
+    /**
+     * Submit a job.
+     * @param executorService the executor
+     * @param name the name of the job
+     * @param callable the work of the job
+     * @param <T> the type of the result
+     * @return the future of the result
+     */
+    @NonNull
+    private <T> Future<T> submit(@NonNull final ExecutorService executorService, @NonNull final String name, @NonNull final Callable<T> callable) {
+        final Job job = new Job(1);
+
+        final Future<T> future = executorService.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                try {
+                    return callable.call();
+                } finally {
+                    job.finish();
+                }
+            }
+        });
+
+        jobs.put(name, job);
+        jobNames.add(name);
+
+        return future;
+    }
+
+    /**
+     * Mark a job as consumed, i. e. its result is needed from now on. Only the first call is recorded.
+     * @param name the name of the job
+     */
+    private void consume(@NonNull final String name) {
+        final Job job = jobs.get(name);
+
+        if (job != null && job.consumeNanos == 0) {
+            job.consumeNanos = SystemClock.elapsedRealtimeNanos();
+        }
+    }
+
+    /**
+     * Take the queried activities of a profile. The activities can only be taken once, later
+     * enumerations need to query again.
+     * @param userHandle the profile
+     * @return the future of the activities or <code>null</code>, if they have not been queried or already been taken
+     */
+    @Nullable
+    public synchronized Future<List<LauncherActivityInfo>> takeActivityList(@NonNull final UserHandle userHandle) {
+        final Job job = jobs.get(JOB_CATALOG);
+
+        if (job == null) {
+            return null;
+        }
+
+        consume(JOB_CATALOG);
+
+        // Packages may have changed since then without being noticed
+        if (SystemClock.elapsedRealtimeNanos() - job.startNanos > MAXIMUM_RESULT_AGE_NANOS) {
+            activityLists.clear();
+        }
+
+        return activityLists.remove(userHandle);
+    }
+
+    /**
+     * Take the checked pins of the dock. The pins can only be taken once, later loads of the dock
+     * need to check again.
+     * @return the future of the pins per index or <code>null</code>, if they have not been checked or already been taken
+     */
+    @Nullable
+    public synchronized Future<List<DockPinModel>> takeDockPins() {
+        final Job job = jobs.get(JOB_DOCK);
+        final Future<List<DockPinModel>> future = dockPins;
+
+        dockPins = null;
+
+        if (job == null || future == null) {
+            return null;
+        }
+
+        consume(JOB_DOCK);
+
+        // Packages may have changed since then without being noticed
+        if (SystemClock.elapsedRealtimeNanos() - job.startNanos > MAXIMUM_RESULT_AGE_NANOS) {
+            return null;
+        }
+
+        return future;
+    }
+
+    /**
+     * Drop the activities queried at process start, e. g. if packages have changed since then.
+     */
+    public synchronized void dropActivityLists() {
+        activityLists.clear();
+    }
+
+    /**
+     * Drop the pins of the dock checked at process start, e. g. if packages have changed since then.
+     */
+    public synchronized void dropDockPins() {
+        dockPins = null;
+    }
+
+    @Override
+    public synchronized long trim(final int policy) {
+        if (policy < MemoryCoordinator.POLICY_TRIM) {
+            return 0;
+        }
+
+        long count = 0;
+
+        for (final Future<List<LauncherActivityInfo>> activityList : activityLists.values()) {
+            if (activityList.isDone() && !activityList.isCancelled()) {
+                try {
+                    count += activityList.get().size();
+                } catch (final InterruptedException | ExecutionException e) {
+                    // Failed queries hold no activities
+                }
+            }
+        }
+
+        // The drawer queries again
+        dropActivityLists();
+
+        return count * ESTIMATED_BYTES_PER_ACTIVITY;
+    }
+
+    /**
+     * Print the time of every job, which was hidden from or waited for by the start.
+     * @param prefix the prefix for every line
+     * @param writer the writer
+     */
+    public synchronized void dump(@NonNull final String prefix, @NonNull final PrintWriter writer) {
+        writer.print(prefix);
+        writer.println("Bootstrap jobs (ms):");
+
+        for (final String name : jobNames) {
+            final Job job = jobs.get(name);
+
+            if (job == null) {
+                continue;
+            }
+
+            writer.print(prefix);
+            writer.print("  ");
+            writer.print(name);
+
+            synchronized (job) {
+                if (job.endNanos == 0) {
+                    writer.println(": running");
+                } else if (job.consumeNanos == 0) {
+                    writer.print(": not consumed, ran=");
+                    writer.println(format(job.endNanos - job.startNanos));
+                } else {
+                    writer.print(": ran=");
+                    writer.print(format(job.endNanos - job.startNanos));
+                    writer.print(" hidden=");
+                    writer.print(format(Math.min(job.endNanos, job.consumeNanos) - job.startNanos));
+                    writer.print(" waited=");
+                    writer.println(format(Math.max(0, job.endNanos - job.consumeNanos)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Format nanoseconds as milliseconds.
+     * @param nanos the nanoseconds
+     * @return the formatted milliseconds
+     */
+    @NonNull
+    private static String format(final long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / NANOS_PER_MILLI);
+    }
+
+    /**
+     * A job of the bootstrap.
+     * @author Clemens Bartz
+     * @since 2.3
+     */
+    private static final class Job {
+        /** The time of submitting the job. */
+        final long startNanos = SystemClock.elapsedRealtimeNanos();
+        /** The number of parts of the job, which are still running. */
+        int runningCount;
+        /** The time of the end of the job, <code>0</code> while running. */
+        long endNanos;
+        /** The time of consuming the job, <code>0</code> if it has not been consumed. */
+        long consumeNanos;
+
+        /**
+         * Create a new job.
+         * @param count the number of parts of the job
+         */
+        Job(final int count) {
+            this.runningCount = count;
+
+            if (count <= 0) {
+                endNanos = startNanos;
+            }
+        }
+
+        /**
+         * Mark a part of the job as finished. The last part finishes the job.
+         */
+        synchronized void finish() {
+            runningCount--;
+
+            if (runningCount == 0) {
+                endNanos = SystemClock.elapsedRealtimeNanos();
+            }
+        }
+    }
+}
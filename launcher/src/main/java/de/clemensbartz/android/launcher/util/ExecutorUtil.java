@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.util;
+
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Utility class for the executors shared in the launcher process.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class ExecutorUtil {
+
+    /** The prefix of the names of the threads of the catalog executor. */
+    @NonNull
+    public static final String CATALOG_THREAD_NAME = "catalog";
+    /** The number of threads for loading the catalog. */
+    private static final int CATALOG_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    /** The number of threads for loading the catalog in the low-RAM mode. */
+    private static final int LOW_RAM_CATALOG_THREADS = 2;
+
+    /** The executor for loading the catalog. */
+    @Nullable
+    private static ExecutorService catalogExecutor = null;
+
+    /**
+     * Hidden constructor.
+     */
+    private ExecutorUtil() {
+
+    }
+
+    /**
+     * Get the executor for loading the catalog, e. g. querying activities and labels. Its threads run
+     * in background priority. Tasks on this executor must not wait for other tasks on it.
+     * @return the catalog executor
+     */
+    @NonNull
+    public static synchronized ExecutorService getCatalogExecutor() {
+        if (catalogExecutor == null) {
+            final int threads = LowRamUtil.isLowRamDevice() ? LOW_RAM_CATALOG_THREADS : CATALOG_THREADS;
+
+            catalogExecutor = Executors.newFixedThreadPool(threads, new BackgroundThreadFactory(CATALOG_THREAD_NAME));
+        }
+
+        return catalogExecutor;
+    }
+
+    /**
+     * Factory for daemon threads in background priority.
+     */
+    private static final class BackgroundThreadFactory implements ThreadFactory {
+
+        /** The prefix for thread names. */
+        @NonNull
+        private final String name;
+        /** The number of created threads. */
+        @NonNull
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        /**
+         * Create a new factory.
+         * @param name the prefix for thread names
+         */
+        BackgroundThreadFactory(@NonNull final String name) {
+            this.name = name;
+        }
+
+        @Override
+        @NonNull
+        public Thread newThread(@NonNull final Runnable runnable) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, name + " #" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
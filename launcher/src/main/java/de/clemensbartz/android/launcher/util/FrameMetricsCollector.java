@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.util;
+
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.PrintWriter;
+
+import de.clemensbartz.android.launcher.BuildConfig;
+
+/**
+ * Collector for frame times while the drawer is shown. An operation marked before a frame causes
+ * layout and binding in the traversal of that frame, which delays the next frame. So the interval
+ * from a frame to the next one is attributed to the first operation marked before the frame, or to
+ * scrolling, and counted in a histogram per operation. Only enabled in debug builds, otherwise all methods return immediately.
+ * <br/>
+ * All methods must be called on the main thread.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class FrameMetricsCollector implements Choreographer.FrameCallback {
+
+    /** If frame metrics are collected. */
+    public static final boolean ENABLED = BuildConfig.DEBUG;
+
+    /** Operation for frames without any operation. */
+    public static final int OPERATION_IDLE = 0;
+    /** Operation for scrolling a drawer view. */
+    public static final int OPERATION_SCROLL = 1;
+    /** Operation for a keystroke in the search view. */
+    public static final int OPERATION_SEARCH = 2;
+    /** Operation for filtering the drawer. */
+    public static final int OPERATION_FILTER = 3;
+    /** Operation for rebuilding the section views. */
+    public static final int OPERATION_SECTIONS = 4;
+
+    /** The names of the operations. */
+    @NonNull
+    private static final String[] OPERATION_NAMES = {"idle", "scroll", "search", "filter", "sections"};
+    /** The upper bounds of the histogram buckets in milliseconds, the last bucket is unbounded. */
+    @NonNull
+    private static final int[] BUCKET_UPPER_BOUNDS = {17, 33, 50, 100, 200};
+    /** The frame time in milliseconds from which on a frame is slow. */
+    private static final int SLOW_FRAME_TIME = 17;
+    /** Nanoseconds per millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /** The singleton instance. */
+    @Nullable
+    private static FrameMetricsCollector instance = null;
+
+    /** The histograms per operation. */
+    @NonNull
+    private final int[][] histograms = new int[OPERATION_NAMES.length][BUCKET_UPPER_BOUNDS.length + 1];
+
+    /** If frames are collected. */
+    private boolean isRunning = false;
+    /** If a drawer view is scrolling. */
+    private boolean isScrolling = false;
+    /** The first operation marked since the last frame. */
+    private int currentOperation = OPERATION_IDLE;
+    /** The operation of the last frame, which the interval until the next frame is attributed to. */
+    private int frameOperation = OPERATION_IDLE;
+    /** The time of the last frame in nanoseconds or 0, if there was none. */
+    private long lastFrameTimeNanos = 0;
+
+    /**
+     * Hidden constructor.
+     */
+    private FrameMetricsCollector() {
+
+    }
+
+    /**
+     *
+     * @return the singleton instance
+     */
+    @NonNull
+    private static FrameMetricsCollector getInstance() {
+        if (instance == null) {
+            instance = new FrameMetricsCollector();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Start collecting frames, e. g. when the drawer is shown.
+     */
+    public static void start() {
+        if (!ENABLED) {
+            return;
+        }
+
+        final FrameMetricsCollector collector = getInstance();
+
+        if (collector.isRunning) {
+            return;
+        }
+
+        collector.isRunning = true;
+        collector.lastFrameTimeNanos = 0;
+        collector.currentOperation = OPERATION_IDLE;
+        collector.frameOperation = OPERATION_IDLE;
+
+        Choreographer.getInstance().postFrameCallback(collector);
+    }
+
+    /**
+     * Stop collecting frames.
+     */
+    public static void stop() {
+        if (!ENABLED || instance == null || !instance.isRunning) {
+            return;
+        }
+
+        instance.isRunning = false;
+        instance.isScrolling = false;
+
+        Choreographer.getInstance().removeFrameCallback(instance);
+    }
+
+    /**
+     * Mark an operation in the current frame. Only the first operation of a frame is kept, as it
+     * causes the following ones, e. g. a keystroke causes a filter.
+     * @param operation the operation
+     */
+    public static void markOperation(final int operation) {
+        if (!ENABLED || instance == null || !instance.isRunning) {
+            return;
+        }
+
+        if (instance.currentOperation == OPERATION_IDLE) {
+            instance.currentOperation = operation;
+        }
+    }
+
+    /**
+     * Set if a drawer view is scrolling.
+     * @param isScrolling if it is scrolling
+     */
+    public static void setScrolling(final boolean isScrolling) {
+        if (!ENABLED || instance == null || !instance.isRunning) {
+            return;
+        }
+
+        instance.isScrolling = isScrolling;
+    }
+
+    @Override
+    public void doFrame(final long frameTimeNanos) {
+        if (!isRunning) {
+            return;
+        }
+
+        if (lastFrameTimeNanos > 0) {
+            final long frameTime = (frameTimeNanos - lastFrameTimeNanos) / NANOS_PER_MILLI;
+
+            int bucket = 0;
+            while (bucket < BUCKET_UPPER_BOUNDS.length && frameTime > BUCKET_UPPER_BOUNDS[bucket]) {
+                bucket++;
+            }
+
+            histograms[frameOperation][bucket]++;
+        }
+
+        // The work of the operation runs in the traversal of this frame and delays the next one
+        frameOperation = (currentOperation == OPERATION_IDLE && isScrolling) ? OPERATION_SCROLL : currentOperation;
+        currentOperation = OPERATION_IDLE;
+        lastFrameTimeNanos = frameTimeNanos;
+
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Print the frame time histograms of all operations.
+     * @param prefix the prefix for every line
+     * @param writer the writer
+     */
+    public static void dump(@NonNull final String prefix, @NonNull final PrintWriter writer) {
+        if (!ENABLED || instance == null) {
+            return;
+        }
+
+        writer.print(prefix);
+        writer.println("Drawer frame times (ms):");
+
+        for (int operation = 0; operation < OPERATION_NAMES.length; operation++) {
+            final int[] histogram = instance.histograms[operation];
+            int frameCount = 0;
+            int slowFrameCount = 0;
+
+            for (int bucket = 0; bucket < histogram.length; bucket++) {
+                frameCount += histogram[bucket];
+
+                if (bucket > 0 && BUCKET_UPPER_BOUNDS[bucket - 1] >= SLOW_FRAME_TIME) {
+                    slowFrameCount += histogram[bucket];
+                }
+            }
+
+            writer.print(prefix);
+            writer.print("  ");
+            writer.print(OPERATION_NAMES[operation]);
+            writer.print(": frames=");
+            writer.print(frameCount);
+            writer.print(" slow=");
+            writer.print(slowFrameCount);
+
+            for (int bucket = 0; bucket < histogram.length; bucket++) {
+                writer.print(bucket < BUCKET_UPPER_BOUNDS.length ? " <=" + BUCKET_UPPER_BOUNDS[bucket] : " >" + BUCKET_UPPER_BOUNDS[bucket - 1]);
+                writer.print(':');
+                writer.print(histogram[bucket]);
+            }
+
+            writer.println();
+        }
+    }
+}
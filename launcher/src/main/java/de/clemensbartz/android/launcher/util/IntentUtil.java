@@ -30,7 +30,9 @@ import android.os.Bundle;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import de.clemensbartz.android.launcher.BuildConfig;
 
@@ -146,17 +148,51 @@ public final class IntentUtil {
         final List<ResolveInfo> resolveInfos = pm.queryIntentActivities(intent, PackageManager.MATCH_DEFAULT_ONLY);
 
         for (final ResolveInfo resolveInfo : resolveInfos) {
-            // Check if exported
-            if (!resolveInfo.activityInfo.exported) {
-                continue;
-            }
-
-            if (resolveInfo.activityInfo.permission == null
-                    || pm.checkPermission(resolveInfo.activityInfo.permission, BuildConfig.APPLICATION_ID) == PackageManager.PERMISSION_GRANTED) {
+            if (isCallable(pm, resolveInfo)) {
                 return true;
             }
         }
 
         return false;
     }
+
+    /**
+     * Get all callable activities for an implicit intent with a single query.
+     * @param pm the package manager to check against
+     * @param intent the implicit intent
+     * @return the flattened component names of all callable activities
+     */
+    @NonNull
+    public static Set<String> getCallableComponentNames(@Nullable final PackageManager pm, @NonNull final Intent intent) {
+        final Set<String> componentNames = new HashSet<>();
+
+        if (pm == null) {
+            return componentNames;
+        }
+
+        for (final ResolveInfo resolveInfo : pm.queryIntentActivities(intent, 0)) {
+            if (isCallable(pm, resolveInfo)) {
+                componentNames.add(new ComponentName(resolveInfo.activityInfo.packageName, resolveInfo.activityInfo.name).flattenToString());
+            }
+        }
+
+        return componentNames;
+    }
+
+    /**
+     * Check if a resolved activity is callable, i. e. exported and not protected by a permission
+     * this app does not hold.
+     * @param pm the package manager to check against
+     * @param resolveInfo the resolved activity
+     * @return if it is callable
+     */
+    private static boolean isCallable(@NonNull final PackageManager pm, @NonNull final ResolveInfo resolveInfo) {
+        // Check if exported
+        if (!resolveInfo.activityInfo.exported) {
+            return false;
+        }
+
+        return resolveInfo.activityInfo.permission == null
+                || pm.checkPermission(resolveInfo.activityInfo.permission, BuildConfig.APPLICATION_ID) == PackageManager.PERMISSION_GRANTED;
+    }
 }
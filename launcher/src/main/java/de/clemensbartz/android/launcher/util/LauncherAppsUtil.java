@@ -22,6 +22,7 @@ import android.content.pm.LauncherApps;
 import android.content.pm.ShortcutInfo;
 import android.os.Build;
 import android.os.Process;
+import android.os.UserHandle;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -57,22 +58,46 @@ public final class LauncherAppsUtil {
      */
     @NonNull
     public static List<ShortcutInfo> getShortcutInfos(@Nullable final LauncherApps launcherApps, @Nullable final ApplicationModel applicationModel) {
+        if (applicationModel == null) {
+            return new ArrayList<>(0);
+        }
+
+        return getShortcutInfos(launcherApps, applicationModel.packageName, applicationModel.userHandle);
+    }
+
+    /**
+     * Retrieve all available shortcut infos for a package from the launcher apps instance.
+     * @param launcherApps the launcher apps instance to check
+     * @param packageName the package name to check
+     * @param userHandle the profile of the package, <code>null</code> for the profile of this process
+     * @return a list of shortcuts or an empty list, if shortcuts are not permitted or
+     * none were found
+     */
+    @NonNull
+    public static List<ShortcutInfo> getShortcutInfos(@Nullable final LauncherApps launcherApps, @Nullable final String packageName, @Nullable final UserHandle userHandle) {
 
         // Create an empty list to return in case something went wrong
         final List<ShortcutInfo> emptyShortcutInfos = new ArrayList<>(0);
 
         // Check for permissions
-        if (launcherApps == null || applicationModel == null || !launcherApps.hasShortcutHostPermission()) {
+        if (launcherApps == null || packageName == null || !launcherApps.hasShortcutHostPermission()) {
             return emptyShortcutInfos;
         }
 
         // Build the query
         final LauncherApps.ShortcutQuery shortcutQuery = new LauncherApps.ShortcutQuery();
         shortcutQuery.setQueryFlags(LauncherApps.ShortcutQuery.FLAG_MATCH_DYNAMIC | LauncherApps.ShortcutQuery.FLAG_MATCH_MANIFEST | LauncherApps.ShortcutQuery.FLAG_MATCH_PINNED);
-        shortcutQuery.setPackage(applicationModel.packageName);
+        shortcutQuery.setPackage(packageName);
 
         // List all of them
-        final List<ShortcutInfo> shortcuts = launcherApps.getShortcuts(shortcutQuery, Process.myUserHandle());
+        final List<ShortcutInfo> shortcuts;
+
+        try {
+            shortcuts = launcherApps.getShortcuts(shortcutQuery, (userHandle != null) ? userHandle : Process.myUserHandle());
+        } catch (final IllegalStateException e) {
+            // The profile is locked
+            return emptyShortcutInfos;
+        }
 
         // Check if shortcuts were returned
         if (shortcuts == null) {
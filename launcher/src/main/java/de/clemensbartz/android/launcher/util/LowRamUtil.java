@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.clemensbartz.android.launcher.util;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.Debug;
+
+import androidx.annotation.NonNull;
+
+import java.io.PrintWriter;
+
+/**
+ * Utility class for the low-RAM mode. On devices, which report themselves as low-RAM devices, e. g.
+ * Android Go devices, the launcher keeps smaller icons in a smaller cache, does not wrap icons in
+ * ripples, keeps only the item views of the current drawer layout, applies widget updates less
+ * often and runs fewer tasks in parallel.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class LowRamUtil {
+
+    /** Bytes per kilobyte. */
+    private static final long KILOBYTE = 1024L;
+
+    /** If this is a low-RAM device. */
+    private static volatile boolean isLowRamDevice = false;
+
+    /**
+     * Hidden constructor.
+     */
+    private LowRamUtil() {
+
+    }
+
+    /**
+     * Detect the low-RAM mode. Must be called before any cache is created, as caches are sized on
+     * creation.
+     * @param context the context
+     */
+    public static void init(@NonNull final Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            final ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+
+            isLowRamDevice = activityManager != null && activityManager.isLowRamDevice();
+        }
+    }
+
+    /**
+     *
+     * @return if the low-RAM mode is active
+     */
+    public static boolean isLowRamDevice() {
+        return isLowRamDevice;
+    }
+
+    /**
+     * Print the mode and the current heap usage, so both modes can be compared.
+     * @param prefix the prefix for every line
+     * @param writer the writer
+     */
+    public static void dump(@NonNull final String prefix, @NonNull final PrintWriter writer) {
+        final Runtime runtime = Runtime.getRuntime();
+
+        writer.print(prefix);
+        writer.print("Low-RAM mode: ");
+        writer.println(isLowRamDevice ? "on" : "off");
+        writer.print(prefix);
+        writer.print("Heap (KB): java=");
+        writer.print((runtime.totalMemory() - runtime.freeMemory()) / KILOBYTE);
+        writer.print(" javaMax=");
+        writer.print(runtime.maxMemory() / KILOBYTE);
+        writer.print(" native=");
+        writer.println(Debug.getNativeHeapAllocatedSize() / KILOBYTE);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.clemensbartz.android.launcher.util;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Coordinator for releasing memory when the system asks for it. Caches of the launcher register
+ * with the coordinator, which maps every trim level to an eviction policy and lets every cache
+ * apply it. The bytes released per trim level are printed in the dump.
+ * <br/>
+ * Caches are held weakly, so caches of an activity do not need to unregister.
+ * <br/>
+ * This class is intended to live forever.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class MemoryCoordinator {
+
+    /** Keep everything. */
+    public static final int POLICY_NONE = 0;
+    /** Release views, which have been created in advance. */
+    public static final int POLICY_RELEASE_VIEWS = 1;
+    /** Additionally shrink caches, which can be refilled quickly. */
+    public static final int POLICY_TRIM = 2;
+    /** Additionally drop all caches. */
+    public static final int POLICY_CLEAR = 3;
+
+    /** The instance of this class. */
+    @Nullable
+    private static MemoryCoordinator instance = null;
+
+    /** The registered caches. */
+    @NonNull
+    private final List<WeakReference<Trimmable>> trimmables = new ArrayList<>();
+    /** The released bytes per trim level. */
+    @NonNull
+    private final Map<Integer, Long> releasedBytes = new TreeMap<>();
+    /** The number of trims per trim level. */
+    @NonNull
+    private final Map<Integer, Integer> trimCounts = new TreeMap<>();
+
+    /**
+     * Hidden constructor.
+     */
+    private MemoryCoordinator() {
+
+    }
+
+    /**
+     *
+     * @return the instance of the coordinator
+     */
+    @NonNull
+    public static synchronized MemoryCoordinator getInstance() {
+        if (instance == null) {
+            instance = new MemoryCoordinator();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Register a cache.
+     * @param trimmable the cache
+     */
+    public synchronized void register(@NonNull final Trimmable trimmable) {
+        final Iterator<WeakReference<Trimmable>> iterator = trimmables.iterator();
+
+        // Drop caches of destroyed activities
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
+            }
+        }
+
+        trimmables.add(new WeakReference<>(trimmable));
+    }
+
+    /**
+     * Map a trim level to an eviction policy. While the launcher is shown, only views and caches,
+     * which can be refilled quickly, are released. Hiding the launcher alone releases nothing, as
+     * the views created in advance would be created again on every return to the home screen. In
+     * the background, the launcher releases more the closer it is to being killed.
+     * @param level the trim level of {@link ComponentCallbacks2}
+     * @return the policy
+     */
+    public static int getPolicy(final int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            return POLICY_CLEAR;
+        }
+
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            return POLICY_TRIM;
+        }
+
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            return POLICY_NONE;
+        }
+
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return POLICY_TRIM;
+        }
+
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            return POLICY_RELEASE_VIEWS;
+        }
+
+        return POLICY_NONE;
+    }
+
+    /**
+     * Release memory of all registered caches.
+     * @param level the trim level of {@link ComponentCallbacks2}
+     * @return the estimated number of released bytes
+     */
+    public synchronized long onTrimMemory(final int level) {
+        final int policy = getPolicy(level);
+        long bytes = 0;
+
+        if (policy != POLICY_NONE) {
+            final Iterator<WeakReference<Trimmable>> iterator = trimmables.iterator();
+
+            while (iterator.hasNext()) {
+                final Trimmable trimmable = iterator.next().get();
+
+                if (trimmable == null) {
+                    iterator.remove();
+                } else {
+                    bytes += trimmable.trim(policy);
+                }
+            }
+        }
+
+        final Long previousBytes = releasedBytes.get(level);
+        final Integer previousCount = trimCounts.get(level);
+
+        releasedBytes.put(level, (previousBytes != null) ? previousBytes + bytes : bytes);
+        trimCounts.put(level, (previousCount != null) ? previousCount + 1 : 1);
+
+        return bytes;
+    }
+
+    /**
+     * Print the number of trims and the released bytes per trim level.
+     * @param prefix the prefix for every line
+     * @param writer the writer
+     */
+    public synchronized void dump(@NonNull final String prefix, @NonNull final PrintWriter writer) {
+        writer.print(prefix);
+        writer.println("Memory trims (level: count, released bytes):");
+
+        for (final Map.Entry<Integer, Integer> entry : trimCounts.entrySet()) {
+            writer.print(prefix);
+            writer.print("  ");
+            writer.print(entry.getKey());
+            writer.print(": ");
+            writer.print(entry.getValue());
+            writer.print(", ");
+            writer.println(releasedBytes.get(entry.getKey()));
+        }
+    }
+
+    /**
+     * A cache, which can release memory.
+     */
+    public interface Trimmable {
+        /**
+         * Release memory according to a policy.
+         * @param policy the policy, one of the <code>POLICY_</code> constants except {@link #POLICY_NONE}
+         * @return the estimated number of released bytes
+         */
+        long trim(int policy);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.util;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracer for the phases of a cold start. Every phase is wrapped in a {@link Trace} section for
+ * systrace and its duration is kept for the last {@link #NUMBER_OF_STARTS} starts, which can be
+ * dumped as percentiles. Every phase is only recorded once per start.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class StartupTracer {
+
+    /** The number of starts to keep the durations for. */
+    public static final int NUMBER_OF_STARTS = 32;
+
+    /** Phase for the whole onCreate. */
+    @NonNull
+    public static final String PHASE_ON_CREATE = "onCreate";
+    /** Phase for setting the theme. */
+    @NonNull
+    public static final String PHASE_THEME = "theme";
+    /** Phase for inflating the layout. */
+    @NonNull
+    public static final String PHASE_CONTENT_VIEW = "setContentView";
+    /** Phase for creating the widget controller. */
+    @NonNull
+    public static final String PHASE_WIDGET_CONTROLLER = "widgetController";
+    /** Phase for looking up the dock views and creating the dock controller. */
+    @NonNull
+    public static final String PHASE_DOCK = "dock";
+    /** Phase for setting up the drawer adapter and its views. */
+    @NonNull
+    public static final String PHASE_ADAPTER = "adapter";
+    /** Phase for inflating the drawer and attaching the adapter to it. */
+    @NonNull
+    public static final String PHASE_DRAWER = "drawer";
+    /** Phase for the whole onStart. */
+    @NonNull
+    public static final String PHASE_ON_START = "onStart";
+    /** Phase for enumerating the apps. */
+    @NonNull
+    public static final String PHASE_ENUMERATION = "enumeration";
+    /** Phase for sorting the apps. */
+    @NonNull
+    public static final String PHASE_SORT = "sort";
+    /** Phase for the first filter showing apps. */
+    @NonNull
+    public static final String PHASE_FIRST_FILTER = "firstFilter";
+
+    /** The percentiles to dump. */
+    private static final int[] PERCENTILES = {50, 90, 99};
+    /** Hundred percent. */
+    private static final int HUNDRED_PERCENT = 100;
+    /** Nanoseconds per millisecond. */
+    private static final double NANOS_PER_MILLI = 1000000d;
+
+    /** The singleton instance. */
+    @Nullable
+    private static StartupTracer instance = null;
+
+    /** The durations of every phase in nanoseconds, used as ring buffers in the order of first recording. */
+    @NonNull
+    private final Map<String, long[]> durations = new LinkedHashMap<>();
+    /** The number of recorded durations for every phase. */
+    @NonNull
+    private final Map<String, Integer> durationCounts = new HashMap<>();
+    /** The start times of running phases. */
+    @NonNull
+    private final Map<String, Long> startTimes = new HashMap<>();
+    /** The phases recorded in the current start. */
+    @NonNull
+    private final Set<String> recordedPhases = new HashSet<>();
+
+    /**
+     * Hidden constructor.
+     */
+    private StartupTracer() {
+
+    }
+
+    /**
+     *
+     * @return the singleton instance
+     */
+    @NonNull
+    public static synchronized StartupTracer getInstance() {
+        if (instance == null) {
+            instance = new StartupTracer();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Begin a new start. Phases, which are still running, are not recorded anymore.
+     */
+    public synchronized void beginStart() {
+        startTimes.clear();
+        recordedPhases.clear();
+    }
+
+    /**
+     * Begin a phase. Must be ended on the same thread.
+     * @param phase the phase
+     */
+    public void beginPhase(@NonNull final String phase) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(phase);
+        }
+
+        synchronized (this) {
+            startTimes.put(phase, SystemClock.elapsedRealtimeNanos());
+        }
+    }
+
+    /**
+     * End a phase and record its duration, if it has not been recorded in this start yet.
+     * @param phase the phase
+     */
+    public void endPhase(@NonNull final String phase) {
+        final long endTime = SystemClock.elapsedRealtimeNanos();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+
+        synchronized (this) {
+            final Long startTime = startTimes.remove(phase);
+
+            if (startTime == null || !recordedPhases.add(phase)) {
+                return;
+            }
+
+            long[] phaseDurations = durations.get(phase);
+            if (phaseDurations == null) {
+                phaseDurations = new long[NUMBER_OF_STARTS];
+                durations.put(phase, phaseDurations);
+            }
+
+            final Integer count = durationCounts.get(phase);
+            final int index = (count == null) ? 0 : count;
+
+            phaseDurations[index % NUMBER_OF_STARTS] = endTime - startTime;
+            durationCounts.put(phase, index + 1);
+        }
+    }
+
+    /**
+     * Print the percentiles of every phase in milliseconds.
+     * @param prefix the prefix for every line
+     * @param writer the writer
+     */
+    public synchronized void dump(@NonNull final String prefix, @NonNull final PrintWriter writer) {
+        writer.print(prefix);
+        writer.println("Startup phases (ms):");
+
+        for (final Map.Entry<String, long[]> entry : durations.entrySet()) {
+            final int count = Math.min(durationCounts.get(entry.getKey()), NUMBER_OF_STARTS);
+            final long[] sortedDurations = Arrays.copyOf(entry.getValue(), count);
+
+            Arrays.sort(sortedDurations);
+
+            writer.print(prefix);
+            writer.print("  ");
+            writer.print(entry.getKey());
+            writer.print(": n=");
+            writer.print(count);
+
+            for (final int percentile : PERCENTILES) {
+                final int index = Math.max(0, (int) Math.ceil(percentile * count / (double) HUNDRED_PERCENT) - 1);
+
+                writer.print(" p");
+                writer.print(percentile);
+                writer.print('=');
+                writer.print(String.format(Locale.ROOT, "%.2f", sortedDurations[index] / NANOS_PER_MILLI));
+            }
+
+            writer.print(" max=");
+            writer.println(String.format(Locale.ROOT, "%.2f", sortedDurations[count - 1] / NANOS_PER_MILLI));
+        }
+    }
+}
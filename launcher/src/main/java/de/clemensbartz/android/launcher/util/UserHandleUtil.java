@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.util;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.LauncherApps;
+import android.os.Build;
+import android.os.Process;
+import android.os.UserHandle;
+import android.os.UserManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.util.Collections;
+import java.util.List;
+
+import de.clemensbartz.android.launcher.models.ApplicationModel;
+
+/**
+ * Utility class for handling user profiles, e. g. work profiles.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class UserHandleUtil {
+
+    /**
+     * Hidden constructor.
+     */
+    private UserHandleUtil() {
+
+    }
+
+    /**
+     * Check if a user handle belongs to the profile of this process.
+     * @param userHandle the user handle, <code>null</code> is regarded as the profile of this process
+     * @return whether it is the profile of this process
+     */
+    public static boolean isMyUserHandle(@Nullable final UserHandle userHandle) {
+        return userHandle == null || Process.myUserHandle().equals(userHandle);
+    }
+
+    /**
+     * Check if two user handles belong to the same profile.
+     * @param a the first user handle
+     * @param b the second user handle
+     * @return whether both belong to the same profile
+     */
+    public static boolean isSameUserHandle(@Nullable final UserHandle a, @Nullable final UserHandle b) {
+        if (isMyUserHandle(a)) {
+            return isMyUserHandle(b);
+        }
+
+        return a.equals(b);
+    }
+
+    /**
+     * Get the suffix for keys of profile-specific settings. The profile of this process has no suffix
+     * to keep settings from before the support of profiles.
+     * @param applicationModel the application model
+     * @param separator the separator for the suffix
+     * @return the suffix, empty for the profile of this process
+     */
+    @NonNull
+    public static String getKeySuffix(@NonNull final ApplicationModel applicationModel, @NonNull final String separator) {
+        if (isMyUserHandle(applicationModel.userHandle)) {
+            return "";
+        }
+
+        return separator + applicationModel.userSerialNumber;
+    }
+
+    /**
+     * Get all profiles of the current user, e. g. the personal and work profile.
+     * @param context the context
+     * @return the list of profiles, containing at least the profile of this process
+     */
+    @NonNull
+    @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+    public static List<UserHandle> getUserProfiles(@NonNull final Context context) {
+        final UserManager userManager = (UserManager) context.getSystemService(Context.USER_SERVICE);
+
+        if (userManager == null) {
+            return Collections.singletonList(Process.myUserHandle());
+        }
+
+        final List<UserHandle> userHandles = userManager.getUserProfiles();
+
+        if (userHandles == null || userHandles.isEmpty()) {
+            return Collections.singletonList(Process.myUserHandle());
+        }
+
+        return userHandles;
+    }
+
+    /**
+     * Get the serial number of a profile.
+     * @param userManager the user manager
+     * @param userHandle the user handle
+     * @return the serial number or <code>-1</code>, if it cannot be found
+     */
+    public static long getSerialNumber(@Nullable final UserManager userManager, @NonNull final UserHandle userHandle) {
+        if (userManager == null) {
+            return -1;
+        }
+
+        return userManager.getSerialNumberForUser(userHandle);
+    }
+
+    /**
+     * Get the profile for a serial number.
+     * @param userManager the user manager
+     * @param serialNumber the serial number
+     * @return the profile or <code>null</code>, if it does not exist (anymore)
+     */
+    @Nullable
+    public static UserHandle getUserHandle(@Nullable final UserManager userManager, final long serialNumber) {
+        if (userManager == null) {
+            return null;
+        }
+
+        return userManager.getUserForSerialNumber(serialNumber);
+    }
+
+    /**
+     * Start the main activity of an application in its profile.
+     * @param context the context
+     * @param applicationModel the application model
+     * @return whether the activity has been started
+     */
+    public static boolean startMainActivity(@NonNull final Context context, @NonNull final ApplicationModel applicationModel) {
+        if (applicationModel.packageName == null || applicationModel.className == null) {
+            return false;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && !isMyUserHandle(applicationModel.userHandle)) {
+            final LauncherApps launcherApps = (LauncherApps) context.getSystemService(Context.LAUNCHER_APPS_SERVICE);
+
+            if (launcherApps == null) {
+                return false;
+            }
+
+            final ComponentName componentName = new ComponentName(applicationModel.packageName, applicationModel.className);
+
+            try {
+                launcherApps.startMainActivity(componentName, applicationModel.userHandle, null, null);
+
+                return true;
+            } catch (final SecurityException | IllegalStateException e) {
+                // The profile may be locked or in quiet mode
+                return false;
+            }
+        }
+
+        final Intent intent = IntentUtil.newAppMainIntent(applicationModel.packageName, applicationModel.className);
+
+        if (IntentUtil.isCallable(context.getPackageManager(), intent)) {
+            context.startActivity(intent);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Start the details activity of an application in its profile.
+     * @param context the context
+     * @param applicationModel the application model
+     */
+    public static void startAppDetailsActivity(@NonNull final Context context, @NonNull final ApplicationModel applicationModel) {
+        if (applicationModel.packageName == null) {
+            return;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && !isMyUserHandle(applicationModel.userHandle) && applicationModel.className != null) {
+            final LauncherApps launcherApps = (LauncherApps) context.getSystemService(Context.LAUNCHER_APPS_SERVICE);
+
+            if (launcherApps != null) {
+                final ComponentName componentName = new ComponentName(applicationModel.packageName, applicationModel.className);
+
+                launcherApps.startAppDetailsActivity(componentName, applicationModel.userHandle, null, null);
+
+                return;
+            }
+        }
+
+        context.startActivity(IntentUtil.newAppDetailsIntent(applicationModel.packageName));
+    }
+}
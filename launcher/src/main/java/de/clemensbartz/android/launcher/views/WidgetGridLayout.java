@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.views;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Layout placing its children in a grid of cells. Each child spans a rectangle of cells given by
+ * its {@link LayoutParams}. The cell size only depends on the size of this layout, so every child
+ * is measured exactly once per pass, regardless of the number of children.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class WidgetGridLayout extends ViewGroup {
+
+    /** The number of columns. */
+    public static final int COLUMN_COUNT = 4;
+    /** The number of rows. */
+    public static final int ROW_COUNT = 12;
+
+    /** Runnable to notify the listener once after one or more layout passes. */
+    @NonNull
+    private final Runnable notifyLayoutChangedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isLayoutChangedPending = false;
+
+            if (onLayoutChangedListener != null) {
+                onLayoutChangedListener.onLayoutChanged(WidgetGridLayout.this);
+            }
+        }
+    };
+
+    /** The listener for changed child sizes. */
+    @Nullable
+    private OnLayoutChangedListener onLayoutChangedListener;
+    /** If a notification of the listener is already posted. */
+    private boolean isLayoutChangedPending = false;
+
+    /**
+     * Create a new layout.
+     * @param context the context
+     */
+    public WidgetGridLayout(@NonNull final Context context) {
+        super(context);
+    }
+
+    /**
+     * Create a new layout from XML.
+     * @param context the context
+     * @param attrs the attributes
+     */
+    public WidgetGridLayout(@NonNull final Context context, @Nullable final AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    /**
+     * Create a new layout from XML with a style.
+     * @param context the context
+     * @param attrs the attributes
+     * @param defStyleAttr the default style attribute
+     */
+    public WidgetGridLayout(@NonNull final Context context, @Nullable final AttributeSet attrs, final int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    /**
+     * Set the listener to be notified after the size of a child changed.
+     * @param onLayoutChangedListener the listener or <code>null</code> to remove it
+     */
+    public void setOnLayoutChangedListener(@Nullable final OnLayoutChangedListener onLayoutChangedListener) {
+        this.onLayoutChangedListener = onLayoutChangedListener;
+    }
+
+    /**
+     *
+     * @return the width of a cell in pixels
+     */
+    public int getCellWidth() {
+        return (getWidth() - getPaddingLeft() - getPaddingRight()) / COLUMN_COUNT;
+    }
+
+    /**
+     *
+     * @return the height of a cell in pixels
+     */
+    public int getCellHeight() {
+        return (getHeight() - getPaddingTop() - getPaddingBottom()) / ROW_COUNT;
+    }
+
+    @Override
+    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+        final int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
+        final int height = getDefaultSize(getSuggestedMinimumHeight(), heightMeasureSpec);
+
+        setMeasuredDimension(width, height);
+
+        final int cellWidth = (width - getPaddingLeft() - getPaddingRight()) / COLUMN_COUNT;
+        final int cellHeight = (height - getPaddingTop() - getPaddingBottom()) / ROW_COUNT;
+
+        for (int i = 0; i < getChildCount(); i++) {
+            final View child = getChildAt(i);
+
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+
+            final LayoutParams layoutParams = (LayoutParams) child.getLayoutParams();
+
+            child.measure(
+                    MeasureSpec.makeMeasureSpec(cellWidth * layoutParams.spanX, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(cellHeight * layoutParams.spanY, MeasureSpec.EXACTLY));
+        }
+    }
+
+    @Override
+    protected void onLayout(final boolean changed, final int l, final int t, final int r, final int b) {
+        final int cellWidth = (r - l - getPaddingLeft() - getPaddingRight()) / COLUMN_COUNT;
+        final int cellHeight = (b - t - getPaddingTop() - getPaddingBottom()) / ROW_COUNT;
+        boolean isChildSizeChanged = false;
+
+        for (int i = 0; i < getChildCount(); i++) {
+            final View child = getChildAt(i);
+
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+
+            final LayoutParams layoutParams = (LayoutParams) child.getLayoutParams();
+            final int left = getPaddingLeft() + layoutParams.cellX * cellWidth;
+            final int top = getPaddingTop() + layoutParams.cellY * cellHeight;
+
+            isChildSizeChanged |= child.getWidth() != child.getMeasuredWidth() || child.getHeight() != child.getMeasuredHeight();
+
+            child.layout(left, top, left + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+        }
+
+        // Notify after the pass, so multiple passes within one frame only cause one notification
+        if (isChildSizeChanged && onLayoutChangedListener != null && !isLayoutChangedPending) {
+            isLayoutChangedPending = true;
+            post(notifyLayoutChangedRunnable);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        removeCallbacks(notifyLayoutChangedRunnable);
+        isLayoutChangedPending = false;
+
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public boolean shouldDelayChildPressedState() {
+        return false;
+    }
+
+    @Override
+    protected boolean checkLayoutParams(@Nullable final ViewGroup.LayoutParams p) {
+        return p instanceof LayoutParams;
+    }
+
+    @Override
+    @NonNull
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(0, 0, COLUMN_COUNT, ROW_COUNT);
+    }
+
+    @Override
+    @NonNull
+    protected LayoutParams generateLayoutParams(@NonNull final ViewGroup.LayoutParams p) {
+        if (p instanceof LayoutParams) {
+            final LayoutParams layoutParams = (LayoutParams) p;
+
+            return new LayoutParams(layoutParams.cellX, layoutParams.cellY, layoutParams.spanX, layoutParams.spanY);
+        }
+
+        return generateDefaultLayoutParams();
+    }
+
+    @Override
+    @NonNull
+    public ViewGroup.LayoutParams generateLayoutParams(@Nullable final AttributeSet attrs) {
+        return generateDefaultLayoutParams();
+    }
+
+    /**
+     * Listener for changed child sizes.
+     * @author Clemens Bartz
+     * @since 2.3
+     */
+    public interface OnLayoutChangedListener {
+        /**
+         * Called after a layout pass changed the size of at least one child.
+         * @param widgetGridLayout the layout
+         */
+        void onLayoutChanged(@NonNull WidgetGridLayout widgetGridLayout);
+    }
+
+    /**
+     * Layout parameters for children of the {@link WidgetGridLayout}.
+     * @author Clemens Bartz
+     * @since 2.3
+     */
+    public static final class LayoutParams extends ViewGroup.LayoutParams {
+        /** The first column. */
+        public int cellX;
+        /** The first row. */
+        public int cellY;
+        /** The number of columns. */
+        public int spanX;
+        /** The number of rows. */
+        public int spanY;
+
+        /**
+         * Create new layout parameters. The values are clamped to the grid.
+         * @param cellX the first column
+         * @param cellY the first row
+         * @param spanX the number of columns
+         * @param spanY the number of rows
+         */
+        public LayoutParams(final int cellX, final int cellY, final int spanX, final int spanY) {
+            super(MATCH_PARENT, MATCH_PARENT);
+
+            this.cellX = Math.max(0, Math.min(cellX, COLUMN_COUNT - 1));
+            this.cellY = Math.max(0, Math.min(cellY, ROW_COUNT - 1));
+            this.spanX = Math.max(1, Math.min(spanX, COLUMN_COUNT - this.cellX));
+            this.spanY = Math.max(1, Math.min(spanY, ROW_COUNT - this.cellY));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.views;
+
+import android.appwidget.AppWidgetHost;
+import android.appwidget.AppWidgetHostView;
+import android.appwidget.AppWidgetProviderInfo;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * App widget host creating {@link WidgetHostView}s, which can defer their updates while they
+ * are not visible. Counts the updates applied and dropped by its views.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class WidgetHost extends AppWidgetHost {
+
+    /** The number of updates applied to views. */
+    private int appliedUpdateCount = 0;
+    /** The number of updates replaced by newer ones before they could be applied. */
+    private int droppedUpdateCount = 0;
+
+    /**
+     * Create a new host.
+     * @param context the context
+     * @param hostId the host id, which must be stable to keep the bound widgets
+     */
+    public WidgetHost(@NonNull final Context context, final int hostId) {
+        super(context, hostId);
+    }
+
+    @Override
+    @NonNull
+    protected AppWidgetHostView onCreateView(@NonNull final Context context, final int appWidgetId, @Nullable final AppWidgetProviderInfo appWidget) {
+        return new WidgetHostView(context, this);
+    }
+
+    /**
+     * Count an applied update.
+     */
+    void onUpdateApplied() {
+        appliedUpdateCount++;
+    }
+
+    /**
+     * Count a dropped update.
+     */
+    void onUpdateDropped() {
+        droppedUpdateCount++;
+    }
+
+    /**
+     *
+     * @return the number of updates applied to views
+     */
+    public int getAppliedUpdateCount() {
+        return appliedUpdateCount;
+    }
+
+    /**
+     *
+     * @return the number of updates replaced by newer ones before they could be applied
+     */
+    public int getDroppedUpdateCount() {
+        return droppedUpdateCount;
+    }
+}
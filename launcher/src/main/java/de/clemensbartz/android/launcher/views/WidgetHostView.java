@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.views;
+
+import android.appwidget.AppWidgetHostView;
+import android.content.Context;
+import android.os.SystemClock;
+import android.widget.RemoteViews;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import de.clemensbartz.android.launcher.util.LowRamUtil;
+
+/**
+ * Host view for a widget, which keeps only the newest update while updates are deferred and
+ * applies it when they are not deferred anymore. In the low-RAM mode, at most one update per
+ * interval is applied, later updates in the interval are replaced by the newest one.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public final class WidgetHostView extends AppWidgetHostView {
+
+    /** The minimum interval between applied updates in the low-RAM mode in milliseconds. */
+    private static final long LOW_RAM_UPDATE_INTERVAL_MILLIS = 1000L;
+
+    /** The host, which counts the updates. */
+    @NonNull
+    private final WidgetHost widgetHost;
+
+    /** The newest update received while deferring. */
+    @Nullable
+    private RemoteViews pendingRemoteViews = null;
+    /** If an update has been received while deferring, as remote views may be <code>null</code>. */
+    private boolean hasPendingRemoteViews = false;
+    /** If updates are deferred. */
+    private boolean isDeferringUpdates = false;
+    /** If the newest update is waiting for the end of the interval. */
+    private boolean isThrottlingUpdates = false;
+    /** The uptime of the last applied update in milliseconds. */
+    private long lastUpdateMillis = 0;
+
+    /** Apply the newest update at the end of the interval. */
+    @NonNull
+    private final Runnable throttledUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isThrottlingUpdates = false;
+
+            applyPendingUpdate();
+        }
+    };
+
+    /**
+     * Create a new host view.
+     * @param context the context
+     * @param widgetHost the host, which counts the updates
+     */
+    public WidgetHostView(@NonNull final Context context, @NonNull final WidgetHost widgetHost) {
+        super(context);
+
+        this.widgetHost = widgetHost;
+    }
+
+    @Override
+    public void updateAppWidget(@Nullable final RemoteViews remoteViews) {
+        final long now = SystemClock.uptimeMillis();
+
+        // Keep the update until the end of the interval
+        if (!isDeferringUpdates && !isThrottlingUpdates && LowRamUtil.isLowRamDevice() && now - lastUpdateMillis < LOW_RAM_UPDATE_INTERVAL_MILLIS) {
+            isThrottlingUpdates = true;
+            postDelayed(throttledUpdateRunnable, lastUpdateMillis + LOW_RAM_UPDATE_INTERVAL_MILLIS - now);
+        }
+
+        if (isDeferringUpdates || isThrottlingUpdates) {
+            if (hasPendingRemoteViews) {
+                widgetHost.onUpdateDropped();
+            }
+
+            pendingRemoteViews = remoteViews;
+            hasPendingRemoteViews = true;
+
+            return;
+        }
+
+        lastUpdateMillis = now;
+        super.updateAppWidget(remoteViews);
+        widgetHost.onUpdateApplied();
+    }
+
+    /**
+     * Defer updates or apply the newest deferred update.
+     * @param isDeferringUpdates if updates should be deferred
+     */
+    public void setDeferringUpdates(final boolean isDeferringUpdates) {
+        this.isDeferringUpdates = isDeferringUpdates;
+
+        if (!isDeferringUpdates && !isThrottlingUpdates) {
+            applyPendingUpdate();
+        }
+    }
+
+    /**
+     * Apply the newest update, which has been deferred or throttled.
+     */
+    private void applyPendingUpdate() {
+        if (hasPendingRemoteViews) {
+            final RemoteViews remoteViews = pendingRemoteViews;
+
+            pendingRemoteViews = null;
+            hasPendingRemoteViews = false;
+
+            updateAppWidget(remoteViews);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import de.clemensbartz.android.launcher.comparators.ApplicationModelComparator;
+import de.clemensbartz.android.launcher.models.ApplicationModel;
+
+/**
+ * Benchmarks for sorting the catalog by label.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ApplicationModelComparatorBenchmark {
+
+    /** The number of apps in the catalog. */
+    @Param({"100", "1000", "10000"})
+    public int catalogSize;
+
+    /** The catalog in random order. */
+    private List<ApplicationModel> catalog;
+    /** The comparator. */
+    private ApplicationModelComparator comparator;
+    /** The list to sort. */
+    private List<ApplicationModel> applicationModels;
+
+    /**
+     * Create the catalog and the comparator.
+     */
+    @Setup
+    public void setUp() {
+        catalog = Catalogs.create(catalogSize);
+        comparator = new ApplicationModelComparator(new BenchmarkContext(Locale.GERMANY));
+    }
+
+    /**
+     * Copy the unsorted catalog, as sorting an already sorted list is not representative. Even for
+     * the smallest catalog, the copy is much cheaper than the sort.
+     */
+    @Setup(Level.Invocation)
+    public void copyCatalog() {
+        applicationModels = new ArrayList<>(catalog);
+    }
+
+    /**
+     * Sort the catalog.
+     * @return the sorted catalog
+     */
+    @Benchmark
+    public List<ApplicationModel> sort() {
+        Collections.sort(applicationModels, comparator);
+
+        return applicationModels;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.benchmarks;
+
+import android.content.ContextWrapper;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Context for benchmarks on the JVM, which only provides a configuration with a locale.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+final class BenchmarkContext extends ContextWrapper {
+
+    /** The resources with the configuration. */
+    @NonNull
+    private final Resources resources;
+
+    /**
+     * Create a new context.
+     * @param locale the locale of the configuration
+     */
+    BenchmarkContext(@NonNull final Locale locale) {
+        super(null);
+
+        final Configuration configuration = new Configuration();
+        configuration.locale = locale;
+
+        this.resources = new Resources(null, null, configuration) {
+            @Override
+            @NonNull
+            public Configuration getConfiguration() {
+                return configuration;
+            }
+        };
+    }
+
+    @Override
+    @NonNull
+    public Resources getResources() {
+        return resources;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.benchmarks;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs all benchmarks of this package and writes a JSON report. Only runs if the system property
+ * <code>benchmark</code> is set, e. g. with <code>./gradlew testDebugUnitTest -Pbenchmark</code>.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+public class BenchmarksTest {
+
+    /** The number of warmup and measurement iterations. */
+    private static final int ITERATIONS = 5;
+    /** The benchmarks of this package, which all have to run. */
+    private static final Class<?>[] BENCHMARK_CLASSES = {
+            ApplicationModelComparatorBenchmark.class,
+            DockPinBenchmark.class,
+            DrawerListAdapterBenchmark.class
+    };
+    /** The separator between a benchmark and its parameters. */
+    private static final String PARAMS_SEPARATOR = ":";
+
+    /**
+     * Run all benchmarks.
+     * @throws RunnerException if a benchmark fails
+     */
+    @Test
+    public void runBenchmarks() throws RunnerException {
+        Assume.assumeTrue("Benchmarks are disabled", Boolean.getBoolean("benchmark"));
+
+        final File reportDir = new File(System.getProperty("benchmark.reportDir", "build/reports/benchmarks"));
+        assertTrue("Report directory could not be created", reportDir.isDirectory() || reportDir.mkdirs());
+
+        // Forked JVMs would not see the class path of the test worker
+        final Options options = new OptionsBuilder()
+                .include(BenchmarksTest.class.getPackage().getName() + ".*Benchmark")
+                .forks(0)
+                .shouldFailOnError(true)
+                .warmupIterations(ITERATIONS)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(ITERATIONS)
+                .measurementTime(TimeValue.seconds(1))
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(reportDir, "benchmarks.json").getAbsolutePath())
+                .build();
+
+        final Collection<RunResult> runResults = new Runner(options).run();
+        final Set<String> results = new TreeSet<>();
+
+        for (final RunResult runResult : runResults) {
+            final StringBuilder key = new StringBuilder(runResult.getParams().getBenchmark());
+
+            for (final String paramKey : runResult.getParams().getParamsKeys()) {
+                key.append(PARAMS_SEPARATOR).append(runResult.getParams().getParam(paramKey));
+            }
+
+            results.add(key.toString());
+        }
+
+        assertEquals("Benchmarks are missing in the report", getExpectedResults(), results);
+    }
+
+    /**
+     * Get the benchmark methods of all benchmarks with each value of their parameter. Benchmarks
+     * have at most one parameter.
+     * @return the benchmark methods with their parameters
+     */
+    private static Set<String> getExpectedResults() {
+        final Set<String> results = new TreeSet<>();
+
+        for (final Class<?> benchmarkClass : BENCHMARK_CLASSES) {
+            String[] paramValues = null;
+
+            for (final Field field : benchmarkClass.getFields()) {
+                final Param param = field.getAnnotation(Param.class);
+
+                if (param != null) {
+                    paramValues = param.value();
+                }
+            }
+
+            for (final Method method : benchmarkClass.getMethods()) {
+                if (method.getAnnotation(Benchmark.class) == null) {
+                    continue;
+                }
+
+                final String benchmark = benchmarkClass.getName() + "." + method.getName();
+
+                if (paramValues == null) {
+                    results.add(benchmark);
+                } else {
+                    for (final String paramValue : paramValues) {
+                        results.add(benchmark + PARAMS_SEPARATOR + paramValue);
+                    }
+                }
+            }
+        }
+
+        return results;
+    }
+}
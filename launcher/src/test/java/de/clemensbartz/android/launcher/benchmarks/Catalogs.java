@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.benchmarks;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.clemensbartz.android.launcher.models.ApplicationModel;
+
+/**
+ * Factory for synthetic app catalogs. The same size always creates the same catalog.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+final class Catalogs {
+
+    /** The seed for the labels. */
+    private static final long SEED = 42L;
+    /** The syllables labels are made of. */
+    @NonNull
+    private static final String[] SYLLABLES = {
+            "ma", "ps", "ca", "lc", "ul", "at", "or", "me", "ss", "ag", "es", "ph", "ot", "os", "mu", "si",
+            "c", "Ä", "ö", "ß", "é", "ka", "le", "nd", "er", "we", "at", "he", "r", "cl", "oc", "k"
+    };
+    /** The maximum number of syllables of a label. */
+    private static final int MAXIMUM_SYLLABLES = 6;
+
+    /**
+     * Hidden constructor.
+     */
+    private Catalogs() {
+
+    }
+
+    /**
+     * Create a catalog in random order.
+     * @param size the number of apps
+     * @return the catalog
+     */
+    @NonNull
+    static List<ApplicationModel> create(final int size) {
+        final Random random = new Random(SEED);
+        final List<ApplicationModel> applicationModels = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            final StringBuilder label = new StringBuilder();
+            final int syllables = 1 + random.nextInt(MAXIMUM_SYLLABLES);
+
+            for (int j = 0; j < syllables; j++) {
+                label.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+
+            // Upper-case the first character like real labels
+            label.setCharAt(0, Character.toUpperCase(label.charAt(0)));
+
+            final ApplicationModel applicationModel = new ApplicationModel();
+            applicationModel.label = label.toString();
+            applicationModel.packageName = "com.example.app" + i;
+            applicationModel.className = applicationModel.packageName + ".MainActivity";
+            applicationModel.hidden = random.nextInt(100) == 0;
+
+            applicationModels.add(applicationModel);
+        }
+
+        return applicationModels;
+    }
+}
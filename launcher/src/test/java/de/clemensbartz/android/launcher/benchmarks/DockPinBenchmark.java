@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import de.clemensbartz.android.launcher.controllers.DockController;
+
+/**
+ * Benchmarks for parsing the dock pins, as done by the dock task on every start.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DockPinBenchmark {
+
+    /** The pins of a full dock. */
+    private String[] pins;
+
+    /**
+     * Create the pins.
+     */
+    @Setup
+    public void setUp() {
+        pins = new String[DockController.NUMBER_OF_ITEMS];
+
+        for (int i = 0; i < pins.length; i++) {
+            pins[i] = "com.example.app" + i + "|com.example.app" + i + ".MainActivity";
+        }
+    }
+
+    /**
+     * Parse all pins of the dock.
+     * @param blackhole the blackhole to consume the application models
+     */
+    @Benchmark
+    public void getPinnedApplicationModels(final Blackhole blackhole) {
+        for (final String pin : pins) {
+            blackhole.consume(DockController.getPinnedApplicationModel(pin, null));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.benchmarks;
+
+import android.graphics.drawable.ColorDrawable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import de.clemensbartz.android.launcher.adapters.DrawerListAdapter;
+import de.clemensbartz.android.launcher.comparators.ApplicationModelComparator;
+
+/**
+ * Benchmarks for filtering the drawer and building its sections.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DrawerListAdapterBenchmark {
+
+    /** The number of apps in the catalog. */
+    @Param({"100", "1000", "10000"})
+    public int catalogSize;
+
+    /** The adapter with the sorted catalog. */
+    private DrawerListAdapter drawerListAdapter;
+
+    /**
+     * Create the adapter with the sorted and filtered catalog. No item views are requested, so
+     * the adapter does not need an inflater, which the JVM does not provide.
+     */
+    @Setup
+    public void setUp() {
+        final BenchmarkContext context = new BenchmarkContext(Locale.GERMANY);
+
+        drawerListAdapter = new DrawerListAdapter(context, new ColorDrawable());
+        drawerListAdapter.addAll(Catalogs.create(catalogSize));
+        drawerListAdapter.sort(new ApplicationModelComparator(context));
+        drawerListAdapter.filter();
+    }
+
+    /**
+     * Filter without a query, which shows all apps and builds all sections.
+     * @return the number of apps shown
+     */
+    @Benchmark
+    public int filterWithoutQuery() {
+        drawerListAdapter.onQueryTextChange("");
+
+        return drawerListAdapter.getCount();
+    }
+
+    /**
+     * Filter with a query of two words.
+     * @return the number of apps shown
+     */
+    @Benchmark
+    public int filterWithQuery() {
+        drawerListAdapter.onQueryTextChange("ma ka");
+
+        return drawerListAdapter.getCount();
+    }
+
+    /**
+     * Look up the section of every position, like the fast scroller does.
+     * @return the sum of all sections
+     */
+    @Benchmark
+    public int getSectionForPosition() {
+        int sum = 0;
+
+        for (int i = 0; i < drawerListAdapter.getCount(); i++) {
+            sum += drawerListAdapter.getSectionForPosition(i);
+        }
+
+        return sum;
+    }
+}
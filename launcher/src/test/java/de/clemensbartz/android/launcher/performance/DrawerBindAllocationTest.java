@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.clemensbartz.android.launcher.performance;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import de.clemensbartz.android.launcher.adapters.DrawerIconBinder;
+import de.clemensbartz.android.launcher.caches.IconCache;
+import de.clemensbartz.android.launcher.models.ApplicationModel;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Allocation regression test for binding the icons of drawer cells. Scrolling through application
+ * models with cached icons must not allocate wrappers, keys or tasks.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class DrawerBindAllocationTest {
+
+    /** The number of application models, about three screens of the drawer. */
+    private static final int MODEL_COUNT = 64;
+    /** The number of recycled cells. */
+    private static final int VIEW_COUNT = 16;
+    /** The size of the icons in pixels. */
+    private static final int ICON_SIZE = 48;
+    /** The number of scrolls through all application models before measuring. */
+    private static final int WARM_UP_ROUNDS = 10;
+    /** The number of measured scrolls through all application models. */
+    private static final int MEASURED_ROUNDS = 100;
+
+    /**
+     * Budget for the allocations of a bind in bytes. Setting a drawable on an image view
+     * allocates the weak reference of its callback, everything else has to be reused.
+     */
+    private static final long BIND_ALLOCATION_BUDGET = 128L;
+
+    /** The application models. */
+    @NonNull
+    private final ApplicationModel[] applicationModels = new ApplicationModel[MODEL_COUNT];
+    /** The recycled cells. */
+    @NonNull
+    private final ImageView[] imageViews = new ImageView[VIEW_COUNT];
+    /** The binder to test. */
+    private DrawerIconBinder drawerIconBinder;
+
+    /**
+     * Create the application models with cached icons and the cells.
+     */
+    @Before
+    public void setUp() {
+        final Context context = RuntimeEnvironment.application;
+
+        IconCache.getInstance().clear();
+
+        for (int i = 0; i < MODEL_COUNT; i++) {
+            final ApplicationModel applicationModel = new ApplicationModel();
+            applicationModel.packageName = "com.example.app" + i;
+            applicationModel.className = applicationModel.packageName + ".MainActivity";
+            applicationModel.label = "App " + i;
+
+            final Bitmap bitmap = Bitmap.createBitmap(ICON_SIZE, ICON_SIZE, Bitmap.Config.ARGB_8888);
+            IconCache.getInstance().put(applicationModel, new BitmapDrawable(context.getResources(), bitmap));
+
+            applicationModels[i] = applicationModel;
+        }
+
+        for (int i = 0; i < VIEW_COUNT; i++) {
+            imageViews[i] = new ImageView(context);
+        }
+
+        final Drawable defaultDrawable = new ColorDrawable(Color.GRAY);
+        drawerIconBinder = new DrawerIconBinder(context.getPackageManager(), null, defaultDrawable);
+    }
+
+    /**
+     * Measure the allocations of binding cached icons while scrolling.
+     */
+    @Test
+    public void bindCachedIcons() {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        assumeTrue("Allocations cannot be measured", threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported());
+
+        final com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        final long threadId = Thread.currentThread().getId();
+
+        scroll(WARM_UP_ROUNDS);
+
+        final long startAllocatedBytes = sunThreadMXBean.getThreadAllocatedBytes(threadId);
+        scroll(MEASURED_ROUNDS);
+        final long allocatedBytes = sunThreadMXBean.getThreadAllocatedBytes(threadId) - startAllocatedBytes;
+
+        final long bytesPerBind = allocatedBytes / ((long) MEASURED_ROUNDS * MODEL_COUNT);
+
+        // The last cells show the icons of the last application models
+        for (int i = 0; i < VIEW_COUNT; i++) {
+            assertSame("Cell does not show its application model", applicationModels[MODEL_COUNT - VIEW_COUNT + i], imageViews[i].getTag());
+        }
+
+        assertTrue("Allocation budget exceeded with " + bytesPerBind + " bytes per bind", bytesPerBind <= BIND_ALLOCATION_BUDGET);
+    }
+
+    /**
+     * Check that dropping the icons of a package makes its cells bind again.
+     */
+    @Test
+    public void removePackageUnbindsCells() {
+        scroll(1);
+
+        final ApplicationModel applicationModel = applicationModels[MODEL_COUNT - 1];
+        final ImageView imageView = imageViews[(MODEL_COUNT - 1) % VIEW_COUNT];
+
+        drawerIconBinder.removePackage(applicationModels[0].packageName);
+        assertTrue("Cell of another package was unbound", drawerIconBinder.isBound(imageView, applicationModel));
+
+        drawerIconBinder.removePackage(applicationModel.packageName);
+        assertFalse("Cell of the package is still bound", drawerIconBinder.isBound(imageView, applicationModel));
+    }
+
+    /**
+     * Scroll through all application models, recycling the cells in order.
+     * @param rounds the number of scrolls
+     */
+    private void scroll(final int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < MODEL_COUNT; i++) {
+                drawerIconBinder.bind(imageViews[i % VIEW_COUNT], applicationModels[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.performance;
+
+import android.os.Build;
+import android.os.Process;
+import android.widget.AbsListView;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import de.clemensbartz.android.launcher.Launcher;
+import de.clemensbartz.android.launcher.adapters.DrawerListAdapter;
+import de.clemensbartz.android.launcher.caches.CatalogCache;
+import de.clemensbartz.android.launcher.caches.IconCache;
+import de.clemensbartz.android.launcher.receivers.LauncherAppsCallback;
+import de.clemensbartz.android.launcher.util.Bootstrap;
+import de.clemensbartz.android.launcher.util.ExecutorUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Performance regression tests for starting the launcher, reloading a package and searching with
+ * a large synthetic catalog. Every pipeline has a budget for allocations on the main thread and
+ * the catalog executor and for Binder-equivalent calls. The wall time is only reported, as it
+ * depends on the machine.
+ * <br/>
+ * The tests run on Android Q, which checks the enabled state of every package and activity.
+ * Robolectric needs a Java 9 runtime for Android Q.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.Q, shadows = ShadowCatalogLauncherApps.class)
+public class LauncherPerformanceTest {
+
+    /** The number of activities in the catalog. */
+    private static final int CATALOG_SIZE = 2000;
+    /** The maximum number of rounds to run pending tasks. */
+    private static final int MAXIMUM_ROUNDS = 100;
+    /** The number of apps with 12 in their number. */
+    private static final int SEARCH_RESULT_COUNT = 139;
+    /** Bytes per megabyte. */
+    private static final long MEGABYTE = 1024L * 1024L;
+    /** The Binder-equivalent calls per activity, i. e. checking its package and itself. */
+    private static final int CALLS_PER_ACTIVITY = 2;
+
+    /** Budget for the allocations of a start. */
+    private static final long START_ALLOCATION_BUDGET = 256L * MEGABYTE;
+    /**
+     * Budget for the Binder-equivalent calls of a start. Besides checking every activity, the
+     * calls must not depend on the catalog size.
+     */
+    private static final int START_CALL_BUDGET = 8 + CALLS_PER_ACTIVITY * CATALOG_SIZE;
+    /** Budget for the allocations of a package reload. */
+    private static final long RELOAD_ALLOCATION_BUDGET = 16L * MEGABYTE;
+    /** Budget for the Binder-equivalent calls of a package reload with one activity. */
+    private static final int RELOAD_CALL_BUDGET = 4 + CALLS_PER_ACTIVITY;
+    /** Budget for the allocations of a search. */
+    private static final long SEARCH_ALLOCATION_BUDGET = 32L * MEGABYTE;
+    /** Budget for the Binder-equivalent calls of a search. */
+    private static final int SEARCH_CALL_BUDGET = 0;
+
+    /**
+     * Fill the catalog.
+     */
+    @Before
+    public void setUp() {
+        ShadowCatalogLauncherApps.reset();
+        ShadowCatalogLauncherApps.addActivities(CATALOG_SIZE);
+        // Measure cold starts, the caches of the process survive between tests
+        CatalogCache.getInstance().clear();
+        IconCache.getInstance().clear();
+        // The activities queried by the bootstrap were queried before the catalog was set up
+        Bootstrap.getInstance().dropActivityLists();
+    }
+
+    /**
+     * Measure the start of the launcher until the drawer is loaded.
+     */
+    @Test
+    public void start() {
+        final Measurement measurement = new Measurement();
+
+        final Launcher launcher = Robolectric.buildActivity(Launcher.class).setup().get();
+        runPendingTasks();
+
+        measurement.end();
+
+        assertEquals("Catalog not loaded", CATALOG_SIZE, getDrawerListAdapter(launcher).getCount());
+        measurement.assertWithinBudget("start", START_ALLOCATION_BUDGET, START_CALL_BUDGET);
+    }
+
+    /**
+     * Measure the reload of an added package.
+     */
+    @Test
+    public void reloadPackage() {
+        final Launcher launcher = Robolectric.buildActivity(Launcher.class).setup().get();
+        runPendingTasks();
+
+        ShadowCatalogLauncherApps.addActivity("com.example.added", "Added");
+
+        final Measurement measurement = new Measurement();
+
+        LauncherAppsCallback.getInstance().onPackageAdded("com.example.added", Process.myUserHandle());
+        runPendingTasks();
+
+        measurement.end();
+
+        assertEquals("Package not added", CATALOG_SIZE + 1, getDrawerListAdapter(launcher).getCount());
+        measurement.assertWithinBudget("reload", RELOAD_ALLOCATION_BUDGET, RELOAD_CALL_BUDGET);
+    }
+
+    /**
+     * Measure typing a query character by character.
+     */
+    @Test
+    public void search() {
+        final Launcher launcher = Robolectric.buildActivity(Launcher.class).setup().get();
+        runPendingTasks();
+
+        final DrawerListAdapter drawerListAdapter = getDrawerListAdapter(launcher);
+        final String query = "12";
+
+        final Measurement measurement = new Measurement();
+
+        for (int i = 1; i <= query.length(); i++) {
+            drawerListAdapter.onQueryTextChange(query.substring(0, i));
+            runPendingTasks();
+        }
+
+        measurement.end();
+
+        // All apps with 12 in their number
+        assertEquals("Search result does not match", SEARCH_RESULT_COUNT, drawerListAdapter.getCount());
+        measurement.assertWithinBudget("search", SEARCH_ALLOCATION_BUDGET, SEARCH_CALL_BUDGET);
+    }
+
+    /**
+     * Get the drawer list adapter of a launcher.
+     * @param launcher the launcher
+     * @return the adapter
+     */
+    @NonNull
+    private static DrawerListAdapter getDrawerListAdapter(@NonNull final Launcher launcher) {
+        final AbsListView absListView = launcher.inflateDrawer();
+
+        return (DrawerListAdapter) absListView.getAdapter();
+    }
+
+    /**
+     * Run all pending tasks on the background and the main thread, including tasks posted by them.
+     */
+    private static void runPendingTasks() {
+        for (int i = 0; i < MAXIMUM_ROUNDS; i++) {
+            if (!Robolectric.getBackgroundThreadScheduler().areAnyRunnable()
+                    && !Robolectric.getForegroundThreadScheduler().areAnyRunnable()) {
+                return;
+            }
+
+            Robolectric.flushBackgroundThreadScheduler();
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        }
+    }
+
+    /**
+     * Measurement of wall time, allocations of the current thread and the threads of the catalog
+     * executor and Binder-equivalent calls. Background tasks run on the current thread.
+     */
+    private static final class Measurement {
+        /** Nanoseconds per millisecond. */
+        private static final long NANOS_PER_MILLI = 1000000L;
+
+        /** The thread bean to get allocations from. */
+        @NonNull
+        private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        /** The start time in nanoseconds. */
+        private final long startTime;
+        /** The allocated bytes per measured thread at the start. */
+        @NonNull
+        private final Map<Long, Long> startAllocatedBytes;
+        /** The call count at the start. */
+        private final int startCallCount;
+
+        /** The wall time in milliseconds. */
+        private long wallTime;
+        /** The allocated bytes or -1, if not supported by the JVM. */
+        private long allocatedBytes;
+        /** The number of calls. */
+        private int callCount;
+
+        /**
+         * Start a new measurement.
+         */
+        Measurement() {
+            startCallCount = ShadowCatalogLauncherApps.getCallCount();
+            startAllocatedBytes = getAllocatedBytes();
+            startTime = System.nanoTime();
+        }
+
+        /**
+         * End the measurement.
+         */
+        void end() {
+            wallTime = (System.nanoTime() - startTime) / NANOS_PER_MILLI;
+
+            allocatedBytes = getAllocatedBytesSince(startAllocatedBytes);
+
+            callCount = ShadowCatalogLauncherApps.getCallCount() - startCallCount;
+        }
+
+        /**
+         * Assert the measurement is within budget. The wall time depends on the machine running
+         * the tests, so it is only reported in the message.
+         * @param name the name of the pipeline
+         * @param allocationBudget the budget for allocations in bytes
+         * @param callBudget the budget for Binder-equivalent calls
+         */
+        void assertWithinBudget(@NonNull final String name, final long allocationBudget, final int callBudget) {
+            final String summary = String.format(Locale.ROOT, "%s: %d ms, %d bytes, %d calls", name, wallTime, allocatedBytes, callCount);
+
+            assertTrue("Allocation budget exceeded in " + summary, allocatedBytes <= allocationBudget);
+            assertTrue("Call budget exceeded in " + summary, callCount <= callBudget);
+        }
+
+        /**
+         *
+         * @return the allocated bytes per measured thread, empty if not supported by the JVM
+         */
+        @NonNull
+        private Map<Long, Long> getAllocatedBytes() {
+            final Map<Long, Long> allocatedBytesPerThread = new HashMap<>();
+
+            if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)
+                    || !((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()) {
+                return allocatedBytesPerThread;
+            }
+
+            final com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+
+            for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread == Thread.currentThread() || thread.getName().startsWith(ExecutorUtil.CATALOG_THREAD_NAME)) {
+                    final long bytes = sunThreadMXBean.getThreadAllocatedBytes(thread.getId());
+
+                    if (bytes >= 0) {
+                        allocatedBytesPerThread.put(thread.getId(), bytes);
+                    }
+                }
+            }
+
+            return allocatedBytesPerThread;
+        }
+
+        /**
+         * Get the bytes allocated by the measured threads since the start. Threads started since
+         * then are counted completely.
+         * @param startAllocatedBytesPerThread the allocated bytes per measured thread at the start
+         * @return the allocated bytes or -1, if not supported by the JVM
+         */
+        private long getAllocatedBytesSince(@NonNull final Map<Long, Long> startAllocatedBytesPerThread) {
+            final Map<Long, Long> endAllocatedBytesPerThread = getAllocatedBytes();
+
+            if (startAllocatedBytesPerThread.isEmpty() || endAllocatedBytesPerThread.isEmpty()) {
+                return -1;
+            }
+
+            long bytes = 0;
+
+            for (final Map.Entry<Long, Long> entry : endAllocatedBytesPerThread.entrySet()) {
+                final Long startBytes = startAllocatedBytesPerThread.get(entry.getKey());
+
+                bytes += entry.getValue() - ((startBytes != null) ? startBytes : 0L);
+            }
+
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2020  Clemens Bartz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.clemensbartz.android.launcher.performance;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.LauncherActivityInfo;
+import android.content.pm.LauncherApps;
+import android.os.Build;
+import android.os.UserHandle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowLauncherApps;
+import org.robolectric.util.ReflectionHelpers;
+import org.robolectric.util.ReflectionHelpers.ClassParameter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fake {@link LauncherApps} serving a synthetic catalog of activities. Every call, which would be a
+ * Binder call on a device, is counted.
+ * @author Clemens Bartz
+ * @since 2.3
+ */
+@Implements(value = LauncherApps.class, minSdk = Build.VERSION_CODES.LOLLIPOP)
+public class ShadowCatalogLauncherApps extends ShadowLauncherApps {
+
+    /** The activities of the catalog. */
+    @NonNull
+    private static final List<ActivityInfo> ACTIVITY_INFOS = new ArrayList<>();
+    /** The number of Binder-equivalent calls. */
+    @NonNull
+    private static final AtomicInteger CALL_COUNT = new AtomicInteger();
+
+    /**
+     * Remove all activities and reset the call count.
+     */
+    static void reset() {
+        synchronized (ACTIVITY_INFOS) {
+            ACTIVITY_INFOS.clear();
+        }
+
+        CALL_COUNT.set(0);
+    }
+
+    /**
+     * Add synthetic activities, one per package.
+     * @param count the number of activities
+     */
+    static void addActivities(final int count) {
+        for (int i = 0; i < count; i++) {
+            addActivity("com.example.app" + i, "App " + i);
+        }
+    }
+
+    /**
+     * Add a synthetic activity.
+     * @param packageName the package name
+     * @param label the label
+     */
+    static void addActivity(@NonNull final String packageName, @NonNull final String label) {
+        final ApplicationInfo applicationInfo = new ApplicationInfo();
+        applicationInfo.packageName = packageName;
+        applicationInfo.enabled = true;
+
+        final ActivityInfo activityInfo = new ActivityInfo();
+        activityInfo.packageName = packageName;
+        activityInfo.name = packageName + ".MainActivity";
+        activityInfo.nonLocalizedLabel = label;
+        activityInfo.applicationInfo = applicationInfo;
+
+        synchronized (ACTIVITY_INFOS) {
+            ACTIVITY_INFOS.add(activityInfo);
+        }
+    }
+
+    /**
+     *
+     * @return the number of Binder-equivalent calls since the last reset
+     */
+    static int getCallCount() {
+        return CALL_COUNT.get();
+    }
+
+    /**
+     * Create a launcher activity info, whose constructor is hidden.
+     * @param activityInfo the activity info
+     * @param userHandle the profile
+     * @return the launcher activity info
+     */
+    @NonNull
+    private static LauncherActivityInfo createLauncherActivityInfo(@NonNull final ActivityInfo activityInfo, @NonNull final UserHandle userHandle) {
+        return ReflectionHelpers.callConstructor(LauncherActivityInfo.class,
+                ClassParameter.from(Context.class, RuntimeEnvironment.application),
+                ClassParameter.from(ActivityInfo.class, activityInfo),
+                ClassParameter.from(UserHandle.class, userHandle));
+    }
+
+    /**
+     * Return the activities of the catalog.
+     * @param packageName the package name or <code>null</code> for all packages
+     * @param user the profile
+     * @return the activities
+     */
+    @Implementation
+    @NonNull
+    protected List<LauncherActivityInfo> getActivityList(@Nullable final String packageName, @NonNull final UserHandle user) {
+        CALL_COUNT.incrementAndGet();
+
+        final List<LauncherActivityInfo> launcherActivityInfos = new ArrayList<>();
+
+        synchronized (ACTIVITY_INFOS) {
+            for (final ActivityInfo activityInfo : ACTIVITY_INFOS) {
+                if (packageName == null || packageName.equals(activityInfo.packageName)) {
+                    launcherActivityInfos.add(createLauncherActivityInfo(activityInfo, user));
+                }
+            }
+        }
+
+        return launcherActivityInfos;
+    }
+
+    /**
+     * Resolve an activity of the catalog.
+     * @param intent the intent with the component
+     * @param user the profile
+     * @return the activity or <code>null</code>, if it is not in the catalog
+     */
+    @Implementation
+    @Nullable
+    protected LauncherActivityInfo resolveActivity(@NonNull final Intent intent, @NonNull final UserHandle user) {
+        CALL_COUNT.incrementAndGet();
+
+        final ComponentName componentName = intent.getComponent();
+
+        synchronized (ACTIVITY_INFOS) {
+            for (final ActivityInfo activityInfo : ACTIVITY_INFOS) {
+                if (componentName != null
+                        && componentName.getPackageName().equals(activityInfo.packageName)
+                        && componentName.getClassName().equals(activityInfo.name)) {
+                    return createLauncherActivityInfo(activityInfo, user);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    @Implementation
+    protected boolean isActivityEnabled(@Nullable final ComponentName component, @Nullable final UserHandle user) {
+        CALL_COUNT.incrementAndGet();
+
+        return true;
+    }
+
+    @Override
+    @Implementation
+    protected boolean isPackageEnabled(@Nullable final String packageName, @Nullable final UserHandle user) {
+        CALL_COUNT.incrementAndGet();
+
+        return true;
+    }
+
+    @Override
+    @Implementation
+    protected boolean hasShortcutHostPermission() {
+        CALL_COUNT.incrementAndGet();
+
+        return false;
+    }
+}